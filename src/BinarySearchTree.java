@@ -1,8 +1,12 @@
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+import redblacktree.OrderedIntSet;
+
 /**
  * Implements a basic Binary Search Tree data structure for analysis and comparison.
  * Author: Alex Matthes
  */
-public class BinarySearchTree {
+public class BinarySearchTree implements OrderedIntSet {
   /**
    *  Represents a node in the Binary Search Tree.
    *  Each node contains data and references to parent and children.
@@ -24,6 +28,7 @@ public class BinarySearchTree {
   }
 
   private Node root;
+  private int size;
 
   /**
    * Constructs an empty Binary Search Tree.
@@ -39,6 +44,7 @@ public class BinarySearchTree {
    *
    * @param item The data key to be inserted.
    */
+  @Override
   public void insert(int item) {
     Node newNode = new Node(item);
 
@@ -64,6 +70,50 @@ public class BinarySearchTree {
     } else  {
       parent.rightChild = newNode;
     }
+    size++;
+  }
+
+  /**
+   * Deletes a key from the tree, without any rebalancing.
+   *
+   * @param key The data key to delete.
+   *
+   * @throws NoSuchElementException If the given key is not present.
+   */
+  @Override
+  public void delete(int key) {
+    Node node = this.root;
+
+    while (node != null && node.data != key) {
+      node = key < node.data ? node.leftChild : node.rightChild;
+    }
+    if (node == null) {
+      throw new NoSuchElementException("Key not found: " + key);
+    }
+
+    if (node.leftChild != null && node.rightChild != null) {
+      // Move the successor's key here and unlink the successor instead.
+      Node successor = node.rightChild;
+      while (successor.leftChild != null) {
+        successor = successor.leftChild;
+      }
+      node.data = successor.data;
+      node = successor;
+    }
+
+    Node child = node.leftChild != null ? node.leftChild : node.rightChild;
+    if (child != null) {
+      child.parent = node.parent;
+    }
+
+    if (node.parent == null) {
+      this.root = child;
+    } else if (node == node.parent.leftChild) {
+      node.parent.leftChild = child;
+    } else {
+      node.parent.rightChild = child;
+    }
+    size--;
   }
 
   /**
@@ -73,6 +123,7 @@ public class BinarySearchTree {
    *
    * @return true if the key is found, false otherwise.
    */
+  @Override
   public boolean search(int key) {
     Node current = this.root;
 
@@ -87,4 +138,90 @@ public class BinarySearchTree {
     }
     return false;
   }
+
+  /**
+   * Visits every key between low and high (both inclusive) in ascending order.
+   *
+   * @param low The smallest key to visit.
+   * @param high The largest key to visit.
+   * @param action The callback receiving each key.
+   */
+  @Override
+  public void range(int low, int high, IntConsumer action) {
+    // Iterative, since the tree can be as deep as it is large.
+    Node current = this.root;
+    Node previous = null;
+
+    while (current != null) {
+      if (previous == current.parent) {
+        if (low <= current.data && current.leftChild != null) {
+          previous = current;
+          current = current.leftChild;
+          continue;
+        }
+        previous = null;
+      }
+
+      if (previous == null || previous == current.leftChild) {
+        if (low <= current.data && current.data <= high) {
+          action.accept(current.data);
+        }
+        if (current.data <= high && current.rightChild != null) {
+          previous = current;
+          current = current.rightChild;
+          continue;
+        }
+      }
+
+      previous = current;
+      current = current.parent;
+    }
+  }
+
+  /**
+   * Returns the number of keys in the tree.
+   *
+   * @return The key count.
+   */
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the height of the tree, counting nodes on the longest root-to-leaf path.
+   * This walks the whole tree.
+   *
+   * @return The height, or 0 if the tree is empty.
+   */
+  @Override
+  public int height() {
+    int height = 0;
+    Node current = this.root;
+    Node previous = null;
+    int depth = 0;
+
+    // Iterative, since the tree can be as deep as it is large.
+    while (current != null) {
+      Node next;
+
+      if (previous == current.parent) {
+        depth++;
+        height = Math.max(height, depth);
+        next = current.leftChild != null ? current.leftChild
+                : current.rightChild != null ? current.rightChild : current.parent;
+      } else if (previous == current.leftChild && current.rightChild != null) {
+        next = current.rightChild;
+      } else {
+        next = current.parent;
+      }
+
+      if (next == current.parent) {
+        depth--;
+      }
+      previous = current;
+      current = next;
+    }
+    return height;
+  }
 }
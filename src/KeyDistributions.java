@@ -0,0 +1,118 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generates key sequences that resemble real access patterns, for benchmarking
+ * trees against more than shuffled and sorted arrays.
+ * Author: Alex Matthes
+ */
+public final class KeyDistributions {
+
+  private KeyDistributions() {
+  }
+
+  /**
+   * Draws keys whose popularity follows a Zipf law: the k-th most popular key is
+   * requested with probability proportional to 1 / k^exponent. Ranks are scrambled
+   * so hot keys are spread over the int range instead of clustering near zero.
+   *
+   * @param count The number of keys to draw.
+   * @param distinctKeys The number of distinct keys.
+   * @param exponent The skew; 0.99 is the usual YCSB setting.
+   * @param seed The random seed.
+   *
+   * @return The drawn keys.
+   */
+  public static int[] zipfian(int count, int distinctKeys, double exponent, long seed) {
+    double[] cumulative = new double[distinctKeys];
+    double sum = 0;
+
+    for (int rank = 0; rank < distinctKeys; rank++) {
+      sum += 1.0 / Math.pow(rank + 1, exponent);
+      cumulative[rank] = sum;
+    }
+
+    SplittableRandom random = new SplittableRandom(seed);
+    int[] keys = new int[count];
+
+    for (int i = 0; i < count; i++) {
+      int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+      keys[i] = scramble(rank < 0 ? -rank - 1 : rank);
+    }
+    return keys;
+  }
+
+  /**
+   * Draws keys where a small hot set receives most requests.
+   *
+   * @param count The number of keys to draw.
+   * @param distinctKeys The number of distinct keys.
+   * @param hotFraction The fraction of keys that are hot, e.g. 0.01.
+   * @param hotProbability The probability that a request goes to the hot set, e.g. 0.9.
+   * @param seed The random seed.
+   *
+   * @return The drawn keys.
+   */
+  public static int[] hotspot(int count, int distinctKeys, double hotFraction,
+                              double hotProbability, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    int hotKeys = Math.max(1, (int) (distinctKeys * hotFraction));
+    int[] keys = new int[count];
+
+    for (int i = 0; i < count; i++) {
+      int rank = random.nextDouble() < hotProbability
+              ? random.nextInt(hotKeys)
+              : hotKeys + random.nextInt(Math.max(1, distinctKeys - hotKeys));
+      keys[i] = scramble(rank);
+    }
+    return keys;
+  }
+
+  /**
+   * Produces keys that rise steadily and then drop back, like time-bucketed
+   * identifiers that wrap around: 0, 1, ..., period - 1, 0, 1, ...
+   *
+   * @param count The number of keys to produce.
+   * @param period The length of one ramp.
+   *
+   * @return The keys.
+   */
+  public static int[] sawtooth(int count, int period) {
+    int[] keys = new int[count];
+
+    for (int i = 0; i < count; i++) {
+      keys[i] = i % period;
+    }
+    return keys;
+  }
+
+  /**
+   * Produces strictly ascending keys, the worst case for an unbalanced tree and
+   * the case that triggers the most rebalancing in a balanced one.
+   *
+   * @param count The number of keys to produce.
+   *
+   * @return The keys 0 to count - 1 in order.
+   */
+  public static int[] adversarialSorted(int count) {
+    int[] keys = new int[count];
+
+    for (int i = 0; i < count; i++) {
+      keys[i] = i;
+    }
+    return keys;
+  }
+
+  /**
+   * Maps a rank to a key with a bijective integer hash, so distinct ranks stay distinct.
+   */
+  private static int scramble(int rank) {
+    int h = rank;
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
@@ -0,0 +1,110 @@
+/**
+ * A log-linear latency histogram in the style of HdrHistogram.
+ * Values below 128 are counted exactly; larger values fall into buckets whose
+ * width doubles every 64 buckets, so every recorded value keeps about two
+ * significant decimal digits (under 1.6% relative error) using a fixed 30 KB.
+ * A histogram is not thread-safe: give each thread its own and merge them.
+ * Author: Alex Matthes
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+  private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKETS;
+
+  private final long[] counts = new long[BUCKET_COUNT];
+  private long totalCount;
+  private long maxValue;
+
+  /**
+   * Records one value.
+   *
+   * @param value The value to record, e.g. a latency in nanoseconds. Negative values count as 0.
+   */
+  public void record(long value) {
+    long clamped = Math.max(0, value);
+
+    counts[indexOf(clamped)]++;
+    totalCount++;
+    maxValue = Math.max(maxValue, clamped);
+  }
+
+  /**
+   * Adds all values recorded by another histogram to this one.
+   *
+   * @param other The histogram to merge in.
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] += other.counts[i];
+    }
+    totalCount += other.totalCount;
+    maxValue = Math.max(maxValue, other.maxValue);
+  }
+
+  /**
+   * Returns the number of recorded values.
+   *
+   * @return The total count.
+   */
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  /**
+   * Returns the largest recorded value.
+   *
+   * @return The maximum value, or 0 if nothing was recorded.
+   */
+  public long getMaxValue() {
+    return maxValue;
+  }
+
+  /**
+   * Returns the value at the given percentile.
+   *
+   * @param percentile The percentile between 0 and 100.
+   *
+   * @return The highest value equivalent to the bucket holding the percentile.
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (totalCount == 0) {
+      return 0;
+    }
+
+    long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+    long seen = 0;
+
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+
+      if (seen >= target) {
+        return Math.min(highestEquivalentValue(i), maxValue);
+      }
+    }
+    return maxValue;
+  }
+
+  /**
+   * Maps a value to its bucket. The first 128 buckets are exact; after that each
+   * group of 64 buckets covers twice the range of the previous group.
+   */
+  private static int indexOf(long value) {
+    int magnitude = 63 - Long.numberOfLeadingZeros(value | (SUB_BUCKETS - 1));
+    int shift = magnitude - (SUB_BUCKET_BITS - 1);
+
+    return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+  }
+
+  private static long highestEquivalentValue(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+
+    int shift = index / HALF_SUB_BUCKETS - 1;
+    long subBucket = index - (long) shift * HALF_SUB_BUCKETS;
+
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,317 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import redblacktree.RedBlackTree;
+import redblacktree.TreeService;
+
+/**
+ * Drives a shared RedBlackTree at a fixed target rate from several threads
+ * and reports latency percentiles and throughput for each thread count.
+ *
+ * <p>Each thread issues operations on a fixed schedule. Latency is measured from
+ * the time an operation was scheduled to start, not from when it actually started,
+ * so a stall also counts against every operation that queued up behind it
+ * (coordinated-omission correction). The uncorrected service time is shown too.
+ *
+ * <p>Usage: LoadGenerator [maxThreads] [opsPerSecond] [seconds] [insert:delete:search]
+ * [keySpace]. A rate of 0 runs every thread as fast as it can.
+ * Author: Alex Matthes
+ */
+public class LoadGenerator {
+
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99, 100};
+  private static final long PARK_THRESHOLD_NANOS = 200_000;
+
+  /**
+   * A way of sharing one tree between threads.
+   */
+  private interface SharedTree {
+    void insert(int key);
+
+    void delete(int key);
+
+    boolean search(int key);
+
+    default void close() {
+    }
+  }
+
+  /**
+   * The latencies and completed operations of one run.
+   */
+  private static class RunResult {
+    final LatencyHistogram corrected = new LatencyHistogram();
+    final LatencyHistogram uncorrected = new LatencyHistogram();
+    long operations;
+  }
+
+  /**
+   * Runs the load generator.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+    long opsPerSecond = args.length > 1 ? Long.parseLong(args[1]) : 200_000;
+    int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+    int[] mix = parseMix(args.length > 3 ? args[3] : "20:10:70");
+    int keySpace = args.length > 4 ? Integer.parseInt(args[4]) : 1_000_000;
+
+    String rate = opsPerSecond == 0 ? "unthrottled" : opsPerSecond + " ops/s";
+    System.out.println("Target rate: " + rate + ", mix insert:delete:search = "
+            + mix[0] + ":" + mix[1] + ":" + mix[2] + ", key space = " + keySpace + "\n");
+
+    for (String variant : new String[] {"lock", "rwlock", "service"}) {
+      System.out.println("=== RedBlackTree with " + variant + " ===");
+
+      // Unmeasured warm-up so the first thread count does not pay for JIT compilation.
+      SharedTree warmUp = newSharedTree(variant, keySpace);
+      run(warmUp, 1, 0, 1, mix, keySpace);
+      warmUp.close();
+
+      System.out.println("threads   ops/s       p50(us)   p99(us)   p99.9(us) max(us)   "
+              + "p99 uncorrected(us)");
+
+      for (int threads = 1; threads <= maxThreads; threads *= 2) {
+        SharedTree tree = newSharedTree(variant, keySpace);
+        RunResult result = run(tree, threads, opsPerSecond, seconds, mix, keySpace);
+        tree.close();
+
+        System.out.printf("%-9d %-11d %-9.1f %-9.1f %-9.1f %-9.1f %.1f%n",
+                threads, result.operations / seconds,
+                micros(result.corrected.getValueAtPercentile(50)),
+                micros(result.corrected.getValueAtPercentile(99)),
+                micros(result.corrected.getValueAtPercentile(99.9)),
+                micros(result.corrected.getMaxValue()),
+                micros(result.uncorrected.getValueAtPercentile(99)));
+
+        if (threads == maxThreads || threads * 2 > maxThreads) {
+          printPercentiles(result);
+        }
+      }
+      System.out.println();
+    }
+  }
+
+  /**
+   * Builds a tree half-filled with keys, shared through the given locking strategy.
+   *
+   * @param variant "lock" for one exclusive lock, "rwlock" for shared searches, or
+   *                "service" for a single writer thread fed through a TreeService queue.
+   * @param keySpace The number of distinct keys.
+   *
+   * @return The shared tree.
+   */
+  private static SharedTree newSharedTree(String variant, int keySpace) {
+    RedBlackTree tree = new RedBlackTree();
+
+    for (int key = 0; key < keySpace; key += 2) {
+      tree.insert(key);
+    }
+
+    if (variant.equals("service")) {
+      TreeService service = new TreeService(tree, 4096);
+      return new SharedTree() {
+        @Override
+        public void insert(int key) {
+          service.insert(key).join();
+        }
+
+        @Override
+        public void delete(int key) {
+          service.delete(key).join();
+        }
+
+        @Override
+        public boolean search(int key) {
+          return service.search(key).join();
+        }
+
+        @Override
+        public void close() {
+          service.close();
+        }
+      };
+    }
+
+    if (variant.equals("lock")) {
+      Lock lock = new ReentrantLock();
+      return new SharedTree() {
+        @Override
+        public void insert(int key) {
+          lock.lock();
+          try {
+            tree.insert(key);
+          } finally {
+            lock.unlock();
+          }
+        }
+
+        @Override
+        public void delete(int key) {
+          lock.lock();
+          try {
+            if (tree.search(key)) {
+              tree.delete(key);
+            }
+          } finally {
+            lock.unlock();
+          }
+        }
+
+        @Override
+        public boolean search(int key) {
+          lock.lock();
+          try {
+            return tree.search(key);
+          } finally {
+            lock.unlock();
+          }
+        }
+      };
+    }
+
+    ReadWriteLock lock = new ReentrantReadWriteLock();
+    return new SharedTree() {
+      @Override
+      public void insert(int key) {
+        lock.writeLock().lock();
+        try {
+          tree.insert(key);
+        } finally {
+          lock.writeLock().unlock();
+        }
+      }
+
+      @Override
+      public void delete(int key) {
+        lock.writeLock().lock();
+        try {
+          if (tree.search(key)) {
+            tree.delete(key);
+          }
+        } finally {
+          lock.writeLock().unlock();
+        }
+      }
+
+      @Override
+      public boolean search(int key) {
+        // Searches do not modify the tree, so they can share the read lock.
+        lock.readLock().lock();
+        try {
+          return tree.search(key);
+        } finally {
+          lock.readLock().unlock();
+        }
+      }
+    };
+  }
+
+  /**
+   * Runs the given number of threads against the tree for a fixed duration.
+   *
+   * @return The merged latencies of all threads.
+   */
+  private static RunResult run(SharedTree tree, int threads, long opsPerSecond, int seconds,
+                               int[] mix, int keySpace) throws InterruptedException {
+    long intervalNanos = opsPerSecond == 0 ? 0 : threads * 1_000_000_000L / opsPerSecond;
+    long start = System.nanoTime() + 10_000_000; // Give every thread time to start.
+    long end = start + seconds * 1_000_000_000L;
+
+    List<Thread> workers = new ArrayList<>();
+    List<RunResult> results = new ArrayList<>();
+
+    for (int t = 0; t < threads; t++) {
+      RunResult result = new RunResult();
+      SplittableRandom random = new SplittableRandom(t);
+      results.add(result);
+
+      Thread worker = new Thread(() -> drive(tree, random, result, start, end, intervalNanos,
+              mix, keySpace), "load-" + t);
+      workers.add(worker);
+      worker.start();
+    }
+
+    RunResult merged = new RunResult();
+
+    for (int t = 0; t < threads; t++) {
+      workers.get(t).join();
+      merged.corrected.add(results.get(t).corrected);
+      merged.uncorrected.add(results.get(t).uncorrected);
+      merged.operations += results.get(t).operations;
+    }
+    return merged;
+  }
+
+  /**
+   * Issues operations on a fixed schedule until the end time.
+   */
+  private static void drive(SharedTree tree, SplittableRandom random, RunResult result,
+                            long start, long end, long intervalNanos, int[] mix, int keySpace) {
+    int total = mix[0] + mix[1] + mix[2];
+    long intended = start;
+
+    while (intended < end) {
+      long now = System.nanoTime();
+
+      if (now < intended) {
+        // Park for long waits, but spin the last stretch: parking overshoots by tens
+        // of microseconds, which would show up as latency.
+        if (intended - now > PARK_THRESHOLD_NANOS) {
+          LockSupport.parkNanos(intended - now - PARK_THRESHOLD_NANOS / 2);
+        } else {
+          Thread.onSpinWait();
+        }
+        continue;
+      }
+
+      int key = random.nextInt(keySpace);
+      int choice = random.nextInt(total);
+      long actualStart = System.nanoTime();
+
+      if (choice < mix[0]) {
+        tree.insert(key);
+      } else if (choice < mix[0] + mix[1]) {
+        tree.delete(key);
+      } else {
+        tree.search(key);
+      }
+
+      long finish = System.nanoTime();
+      result.corrected.record(finish - (intervalNanos == 0 ? actualStart : intended));
+      result.uncorrected.record(finish - actualStart);
+      result.operations++;
+
+      // Unthrottled runs just issue the next operation when this one is done.
+      intended = intervalNanos == 0 ? finish : intended + intervalNanos;
+    }
+  }
+
+  private static void printPercentiles(RunResult result) {
+    System.out.println("  percentile  corrected(us)  uncorrected(us)");
+
+    for (double percentile : PERCENTILES) {
+      System.out.printf("  %-11s %-14.1f %.1f%n", percentile,
+              micros(result.corrected.getValueAtPercentile(percentile)),
+              micros(result.uncorrected.getValueAtPercentile(percentile)));
+    }
+  }
+
+  private static int[] parseMix(String text) {
+    String[] parts = text.split(":");
+
+    if (parts.length != 3) {
+      throw new IllegalArgumentException("Mix must be insert:delete:search, got " + text);
+    }
+    return new int[] {Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+        Integer.parseInt(parts[2])};
+  }
+
+  private static double micros(long nanos) {
+    return nanos / 1000.0;
+  }
+}
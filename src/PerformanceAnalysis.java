@@ -1,7 +1,33 @@
+import com.sun.management.ThreadMXBean;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+import redblacktree.AvlTree;
+import redblacktree.BPlusTree;
+import redblacktree.BufferedRedBlackTree;
+import redblacktree.ByteKeyRedBlackTree;
+import redblacktree.IndexedRedBlackTree;
+import redblacktree.OrderedIntSet;
+import redblacktree.PagedRedBlackTree;
+import redblacktree.PersistentRedBlackTree;
 import redblacktree.RedBlackTree;
+import redblacktree.SlidingWindowStatistics;
+import redblacktree.TreeImporter;
+import redblacktree.Treap;
+import redblacktree.WavlTree;
 
 /**
  * Runs the performance analysis for the report.
@@ -17,7 +43,7 @@ public class PerformanceAnalysis {
    * Runs the performance analysis for the report.
    * Compares RedBlackTree vs. BinarySearchTree for random and sorted data.
    */
-  public static void main(String[] args) {
+  public static void main(String[] args) throws IOException {
 
     // --- 1. Create Test Data ---
     System.out.println("Preparing test data for N = " + N + "...");
@@ -45,6 +71,17 @@ public class PerformanceAnalysis {
       shuffledData[i] = list.get(i);
     }
 
+    // Create nearly sorted data: ascending with each key moved up to 8 slots
+    int[] nearlySortedData = sortedData.clone();
+    Random random = new Random(42);
+
+    for (int i = 0; i < N; i++) {
+      int j = Math.min(N - 1, i + random.nextInt(8));
+      int temp = nearlySortedData[i];
+      nearlySortedData[i] = nearlySortedData[j];
+      nearlySortedData[j] = temp;
+    }
+
     System.out.println("Data ready. Running experiments...\n");
 
     // --- 2. Run Experiments ---
@@ -110,5 +147,515 @@ public class PerformanceAnalysis {
     long bstSortedTime = (endTime - startTime) / 1_000_000; // ms
 
     System.out.println("BinarySearchTree (Sorted):  " + bstSortedTime + " ms");
+
+    System.out.println("---");
+
+    // Scenario 5: RedBlackTree (Nearly Sorted Data), root descent vs. finger insertion
+    RedBlackTree rbtNearlySorted = new RedBlackTree();
+
+    startTime = System.nanoTime();
+
+    for (int item : nearlySortedData) {
+      rbtNearlySorted.insert(item);
+    }
+
+    endTime = System.nanoTime();
+
+    long rbtNearlySortedTime = (endTime - startTime) / 1_000_000; // ms
+
+    System.out.println("RedBlackTree (Nearly Sorted):        " + rbtNearlySortedTime + " ms");
+
+    RedBlackTree rbtFinger = new RedBlackTree();
+
+    startTime = System.nanoTime();
+
+    for (int item : nearlySortedData) {
+      rbtFinger.insertNearLast(item);
+    }
+
+    endTime = System.nanoTime();
+
+    long rbtFingerTime = (endTime - startTime) / 1_000_000; // ms
+
+    System.out.println("RedBlackTree (Nearly Sorted, Finger): " + rbtFingerTime + " ms");
+
+    System.out.println("---");
+
+    // Scenario 6: Steady-state delete/insert churn, with and without node recycling
+    runChurn("RedBlackTree (Churn):           ", new RedBlackTree(), shuffledData);
+
+    RedBlackTree recyclingTree = new RedBlackTree();
+    recyclingTree.enableNodeRecycling(1024);
+    runChurn("RedBlackTree (Churn, Recycled): ", recyclingTree, shuffledData);
+
+    System.out.printf("Recycled pool hit rate: %.4f%n", recyclingTree.getPoolHitRate());
+
+    System.out.println("---");
+
+    // Scenario 7: Lookups on trees built from random data
+    BPlusTree bptRandom = new BPlusTree();
+
+    startTime = System.nanoTime();
+
+    for (int item : shuffledData) {
+      bptRandom.insert(item);
+    }
+
+    endTime = System.nanoTime();
+
+    long bptRandomTime = (endTime - startTime) / 1_000_000; // ms
+
+    System.out.println("BPlusTree (Random Data):    " + bptRandomTime + " ms");
+
+    runSearches("RedBlackTree (Search):      ", rbtRandom::search, shuffledData);
+    runSearches("BinarySearchTree (Search):  ", bstRandom::search, shuffledData);
+    runSearches("BPlusTree (Search):         ", bptRandom::search, shuffledData);
+    runSearches("FrozenTree (Search):        ", rbtRandom.freeze()::search, shuffledData);
+
+    // Keys N to 2N - 1 were never inserted, so every one of these searches misses.
+    int[] missData = new int[N];
+
+    for (int i = 0; i < N; i++) {
+      missData[i] = shuffledData[i] + N;
+    }
+
+    runSearches("RedBlackTree (Misses):      ", rbtRandom::search, missData);
+    rbtRandom.enableBloomFilter(0.01);
+    runSearches("RBT (Misses, Bloom):        ", rbtRandom::search, missData);
+    System.out.println("Bloom filter memory:        " + rbtRandom.getBloomFilterBytes() / 1024
+            + " KiB");
+
+    IndexedRedBlackTree indexed = new IndexedRedBlackTree();
+
+    for (int item : shuffledData) {
+      indexed.insert(item);
+    }
+
+    runSearches("IndexedRBT (Search):        ", indexed::search, shuffledData);
+
+    startTime = System.nanoTime();
+
+    for (int item : shuffledData) {
+      rbtRandom.delete(item);
+    }
+
+    long rbtDeleteTime = (System.nanoTime() - startTime) / 1_000_000; // ms
+
+    startTime = System.nanoTime();
+
+    for (int item : shuffledData) {
+      indexed.delete(item);
+    }
+
+    long indexedDeleteTime = (System.nanoTime() - startTime) / 1_000_000; // ms
+
+    System.out.println("RedBlackTree (Delete):      " + rbtDeleteTime + " ms");
+    System.out.println("IndexedRBT (Delete):        " + indexedDeleteTime + " ms");
+    System.out.println("IndexedRBT index memory:    " + indexed.indexMemoryBytes() / 1024 + " KiB");
+
+    System.out.println("---");
+
+    // Scenario 8: Disk-backed tree with buffer pools holding about 10% and 100% of its pages
+    int totalPages = N / 256 + 2;
+    runPaged("PagedRBT (10% pool):        ", shuffledData, Math.max(2, totalPages / 10));
+    runPaged("PagedRBT (100% pool):       ", shuffledData, totalPages);
+
+    System.out.println("---");
+
+    // Scenario 9: Bootstrapping from an unsorted key file, per-key inserts vs. bulk import
+    Path keyFile = Files.createTempFile("rbt-keys", ".bin");
+
+    try {
+      try (DataOutputStream out = new DataOutputStream(
+              new BufferedOutputStream(Files.newOutputStream(keyFile)))) {
+        for (int item : shuffledData) {
+          out.writeInt(item);
+        }
+      }
+
+      startTime = System.nanoTime();
+
+      RedBlackTree inserted = new RedBlackTree();
+      try (DataInputStream in = new DataInputStream(
+              new BufferedInputStream(Files.newInputStream(keyFile)))) {
+        for (int i = 0; i < N; i++) {
+          inserted.insert(in.readInt());
+        }
+      }
+
+      long insertImportTime = (System.nanoTime() - startTime) / 1_000_000; // ms
+
+      TreeImporter importer = new TreeImporter(TreeImporter.Format.BINARY, 64L << 20,
+              Runtime.getRuntime().availableProcessors(), keyFile.getParent());
+      startTime = System.nanoTime();
+      importer.importFile(keyFile);
+      long bulkImportTime = (System.nanoTime() - startTime) / 1_000_000; // ms
+
+      System.out.println("RedBlackTree (File, insert): " + insertImportTime + " ms");
+      System.out.printf("TreeImporter (File, bulk):  %d ms (%.0f MB/s)%n", bulkImportTime,
+              importer.getBytesPerSecond() / 1e6);
+    } finally {
+      Files.delete(keyFile);
+    }
+
+    System.out.println("---");
+
+    // Scenario 10: Random ingest burst, direct inserts vs. sharded write buffers
+    RedBlackTree direct = new RedBlackTree();
+
+    startTime = System.nanoTime();
+
+    for (int item : shuffledData) {
+      direct.insert(item);
+    }
+
+    long directIngestTime = (System.nanoTime() - startTime) / 1_000_000; // ms
+
+    BufferedRedBlackTree buffered = new BufferedRedBlackTree();
+
+    startTime = System.nanoTime();
+
+    for (int item : shuffledData) {
+      buffered.insert(item);
+    }
+    buffered.flush();
+
+    long bufferedIngestTime = (System.nanoTime() - startTime) / 1_000_000; // ms
+
+    System.out.println("RedBlackTree (Ingest):      " + directIngestTime + " ms");
+    System.out.println("BufferedRBT (Ingest):       " + bufferedIngestTime + " ms ("
+            + buffered.getFlushes() + " flushes, " + buffered.getRebuilds() + " rebuilds)");
+
+    System.out.println("---");
+
+    // Scenario 11: Changes between two versions, full in-order walks vs. a shared-structure diff
+    PersistentRedBlackTree older = PersistentRedBlackTree.empty();
+
+    for (int item : shuffledData) {
+      older = older.insert(item);
+    }
+
+    PersistentRedBlackTree newer = older;
+
+    for (int i = 0; i < 100; i++) {
+      newer = newer.delete(shuffledData[i]).insert(N + i);
+    }
+
+    int[] changes = new int[1];
+
+    startTime = System.nanoTime();
+    int[] olderKeys = new int[older.size()];
+    int[] newerKeys = new int[newer.size()];
+    int[] filled = new int[1];
+    older.range(Integer.MIN_VALUE, Integer.MAX_VALUE, key -> olderKeys[filled[0]++] = key);
+    filled[0] = 0;
+    newer.range(Integer.MIN_VALUE, Integer.MAX_VALUE, key -> newerKeys[filled[0]++] = key);
+
+    for (int i = 0, j = 0; i < olderKeys.length || j < newerKeys.length; ) {
+      if (j == newerKeys.length || (i < olderKeys.length && olderKeys[i] < newerKeys[j])) {
+        i++;
+        changes[0]++;
+      } else if (i == olderKeys.length || newerKeys[j] < olderKeys[i]) {
+        j++;
+        changes[0]++;
+      } else {
+        i++;
+        j++;
+      }
+    }
+
+    long walkDiffTime = (System.nanoTime() - startTime) / 1_000; // us
+    int walkChanges = changes[0];
+
+    changes[0] = 0;
+    startTime = System.nanoTime();
+    PersistentRedBlackTree.diff(older, newer, key -> changes[0]++, key -> changes[0]++);
+    long sharedDiffTime = (System.nanoTime() - startTime) / 1_000; // us
+
+    System.out.println("Full walks (Diff):          " + walkDiffTime + " us, " + walkChanges
+            + " changes");
+    System.out.println("PersistentRBT (Diff):       " + sharedDiffTime + " us, " + changes[0]
+            + " changes");
+
+    System.out.println("---");
+
+    // Scenario 12: Rolling p99 over the last 10,000 latencies, sorting each window vs. a
+    // windowed order-statistic tree
+    int windowSize = 10_000;
+    int[] latencies = new int[N];
+
+    for (int i = 0; i < N; i++) {
+      latencies[i] = shuffledData[i] % 5_000;
+    }
+
+    startTime = System.nanoTime();
+    long sortedChecksum = 0;
+
+    for (int end = windowSize; end <= N; end += 1_000) {
+      int[] window = Arrays.copyOfRange(latencies, end - windowSize, end);
+      Arrays.sort(window);
+      sortedChecksum += window[(int) Math.ceil(0.99 * windowSize) - 1];
+    }
+
+    long sortedWindowTime = (System.nanoTime() - startTime) / 1_000_000; // ms
+
+    SlidingWindowStatistics rolling = new SlidingWindowStatistics(windowSize);
+    long rollingChecksum = 0;
+
+    startTime = System.nanoTime();
+
+    for (int i = 0; i < N; i++) {
+      rolling.add(latencies[i]);
+      if (i + 1 >= windowSize && (i + 1) % 1_000 == 0) {
+        rollingChecksum += rolling.percentile(99);
+      }
+    }
+
+    long rollingWindowTime = (System.nanoTime() - startTime) / 1_000_000; // ms
+
+    System.out.println("Sorted windows (p99):       " + sortedWindowTime + " ms");
+    System.out.println("SlidingWindow (p99):        " + rollingWindowTime + " ms ("
+            + (rollingChecksum == sortedChecksum ? "same" : "different") + " results, "
+            + rolling.memoryBytes() / 1024 + " KB)");
+
+    System.out.println("---");
+
+    // Scenario 13: String keys sharing a namespace, String comparisons vs. byte keys with
+    // inline prefixes
+    String[] stringKeys = new String[N];
+    byte[][] byteKeys = new byte[N][];
+
+    for (int i = 0; i < N; i++) {
+      stringKeys[i] = String.format("%08x/session", shuffledData[i] * 0x9E3779B9);
+      byteKeys[i] = stringKeys[i].getBytes(StandardCharsets.UTF_8);
+    }
+
+    TreeSet<String> stringTree = new TreeSet<>();
+
+    startTime = System.nanoTime();
+
+    for (String key : stringKeys) {
+      stringTree.add(key);
+    }
+    for (String key : stringKeys) {
+      stringTree.contains(key);
+    }
+
+    long stringKeyTime = (System.nanoTime() - startTime) / 1_000_000; // ms
+
+    ByteKeyRedBlackTree byteTree = new ByteKeyRedBlackTree();
+
+    startTime = System.nanoTime();
+
+    for (byte[] key : byteKeys) {
+      byteTree.insert(key);
+    }
+    for (byte[] key : byteKeys) {
+      byteTree.search(key);
+    }
+
+    long byteKeyTime = (System.nanoTime() - startTime) / 1_000_000; // ms
+
+    System.out.println("TreeSet<String> (Keys):     " + stringKeyTime + " ms");
+    System.out.printf("ByteKeyRBT (Keys):          %d ms (%.1f%% of comparisons read the arena)%n",
+            byteKeyTime, 100.0 * byteTree.getArenaComparisons() / byteTree.getComparisons());
+
+    System.out.println("---");
+
+    // Scenario 14: Every balancing engine through the same OrderedIntSet workload
+    runEngine("RedBlackTree (Engine):    ", new RedBlackTree(), shuffledData);
+    runEngine("AvlTree (Engine):         ", new AvlTree(), shuffledData);
+    runEngine("WavlTree (Engine):        ", new WavlTree(), shuffledData);
+    runEngine("Treap (Engine):           ", new Treap(42), shuffledData);
+    runEngine("BPlusTree (Engine):       ", new BPlusTree(), shuffledData);
+    runEngine("BinarySearchTree (Engine):", new BinarySearchTree(), shuffledData);
+
+    System.out.println("---");
+
+    // Scenario 15: Zipfian searches, plain descents vs. a hot-key cache in front of the tree
+    int[] zipfianKeys = KeyDistributions.zipfian(10 * N, N, 0.99, 42);
+    RedBlackTree skewed = new RedBlackTree();
+
+    for (int item : shuffledData) {
+      skewed.insert(item);
+    }
+    for (int key : zipfianKeys) {
+      if (!skewed.search(key)) {
+        skewed.insert(key);
+      }
+    }
+
+    runSkewedSearches("RedBlackTree (Zipfian):     ", skewed, zipfianKeys);
+    skewed.enableHotKeyCache(1024);
+    runSkewedSearches("RedBlackTree (Zipfian, Hot):", skewed, zipfianKeys);
+  }
+
+  /**
+   * Inserts and then searches every key in a fresh disk-backed tree and prints the
+   * time and buffer pool statistics.
+   *
+   * @param label The label to print.
+   * @param data The keys to insert and look up.
+   * @param poolPages The number of pages the buffer pool may hold.
+   */
+  private static void runPaged(String label, int[] data, int poolPages) throws IOException {
+    Path file = Files.createTempFile("rbt-paged", ".db");
+
+    try (PagedRedBlackTree tree = new PagedRedBlackTree(file, poolPages)) {
+      long startTime = System.nanoTime();
+
+      for (int item : data) {
+        tree.insert(item);
+      }
+      for (int item : data) {
+        tree.search(item);
+      }
+
+      long elapsed = (System.nanoTime() - startTime) / 1_000_000; // ms
+
+      System.out.printf("%s%d ms, hit ratio %.4f, %d faults, %d write-backs%n", label, elapsed,
+              tree.getHitRatio(), tree.getPageFaults(), tree.getWriteBacks());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * Looks up every key once as a warm-up and once measured, then prints the time.
+   *
+   * @param label The label to print.
+   * @param search The search operation of the tree under test.
+   * @param data The keys to look up.
+   */
+  private static void runSearches(String label, IntPredicate search, int[] data) {
+    int found = 0;
+
+    for (int item : data) {
+      found += search.test(item) ? 1 : 0;
+    }
+
+    long startTime = System.nanoTime();
+
+    for (int item : data) {
+      found += search.test(item) ? 1 : 0;
+    }
+
+    long endTime = System.nanoTime();
+
+    System.out.println(label + (endTime - startTime) / 1_000_000 + " ms (" + found / 2 + " found)");
+  }
+
+  /**
+   * Searches the keys twice, timing the second pass, and prints the time per search.
+   *
+   * @param label The label to print.
+   * @param tree The tree holding every key.
+   * @param keys The keys to search, in order.
+   */
+  private static void runSkewedSearches(String label, RedBlackTree tree, int[] keys) {
+    int found = 0;
+
+    // Warm-up pass, which also fills the hot-key cache if there is one.
+    for (int key : keys) {
+      if (tree.search(key)) {
+        found++;
+      }
+    }
+
+    long startTime = System.nanoTime();
+
+    for (int key : keys) {
+      if (tree.search(key)) {
+        found++;
+      }
+    }
+
+    long endTime = System.nanoTime();
+
+    System.out.printf("%s %d ms, %.1f ns/search (%d found)%n", label,
+            (endTime - startTime) / 1_000_000, (double) (endTime - startTime) / keys.length,
+            found / 2);
+  }
+
+  /**
+   * Inserts every key, searches every key twice, then deletes every other key,
+   * and prints the time of each phase and the height after the inserts.
+   *
+   * @param label The label to print.
+   * @param set The empty engine to run.
+   * @param data The keys to use, in insertion order.
+   */
+  private static void runEngine(String label, OrderedIntSet set, int[] data) {
+    long startTime = System.nanoTime();
+
+    for (int item : data) {
+      set.insert(item);
+    }
+
+    long insertTime = System.nanoTime();
+    int found = 0;
+
+    for (int pass = 0; pass < 2; pass++) {
+      for (int item : data) {
+        if (set.search(item)) {
+          found++;
+        }
+      }
+    }
+
+    long searchTime = System.nanoTime();
+
+    for (int i = 0; i < data.length; i += 2) {
+      set.delete(data[i]);
+    }
+
+    long deleteTime = System.nanoTime();
+
+    System.out.printf("%s insert %d ms, search %d ms, delete %d ms, height %d (%d found)%n",
+            label, (insertTime - startTime) / 1_000_000, (searchTime - insertTime) / 1_000_000,
+            (deleteTime - searchTime) / 1_000_000, set.height(), found / 2);
+  }
+
+  /**
+   * Fills the tree, then deletes and re-inserts every key, reporting the time
+   * and the bytes allocated per delete/insert pair on the measured pass.
+   *
+   * @param label The label to print.
+   * @param tree The tree to churn.
+   * @param data The keys to insert and churn.
+   */
+  private static void runChurn(String label, RedBlackTree tree, int[] data) {
+    ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    for (int item : data) {
+      tree.insert(item);
+    }
+
+    // Warm-up pass so the measured pass runs compiled code.
+    churn(tree, data);
+
+    long startBytes = threads.getCurrentThreadAllocatedBytes();
+    long startTime = System.nanoTime();
+
+    churn(tree, data);
+
+    long endTime = System.nanoTime();
+    long endBytes = threads.getCurrentThreadAllocatedBytes();
+
+    System.out.printf("%s%d ms, %.1f B/op%n", label, (endTime - startTime) / 1_000_000,
+            (double) (endBytes - startBytes) / data.length);
+  }
+
+  /**
+   * Deletes and immediately re-inserts every key once.
+   *
+   * @param tree The tree to churn.
+   * @param data The keys to churn.
+   */
+  private static void churn(RedBlackTree tree, int[] data) {
+    for (int item : data) {
+      tree.delete(item);
+      tree.insert(item);
+    }
   }
 }
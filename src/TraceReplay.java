@@ -0,0 +1,148 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+import redblacktree.AvlTree;
+import redblacktree.BPlusTree;
+import redblacktree.OrderedIntSet;
+import redblacktree.RedBlackTree;
+import redblacktree.TraceReader;
+import redblacktree.TraceRecorder;
+import redblacktree.Treap;
+import redblacktree.WavlTree;
+
+/**
+ * Generates synthetic operation traces and replays traces against a tree engine.
+ *
+ * <p>Usage:
+ * <pre>
+ *   TraceReplay generate (zipfian|hotspot|sawtooth|sorted) traceFile [count]
+ *   TraceReplay replay traceFile (rbt|rbt-hot|bst|avl|wavl|treap|bplus) [timed]
+ * </pre>
+ * Replay runs at full speed unless "timed" is given, in which case every
+ * operation waits for its original offset from the start of the recording.
+ * Author: Alex Matthes
+ */
+public class TraceReplay {
+
+  /**
+   * Runs the trace tool.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length >= 3 && args[0].equals("generate")) {
+      int count = args.length > 3 ? Integer.parseInt(args[3]) : 1_000_000;
+      generate(args[1], Path.of(args[2]), count);
+    } else if (args.length >= 3 && args[0].equals("replay")) {
+      boolean timed = args.length > 3 && args[3].equals("timed");
+      replay(Path.of(args[1]), args[2], timed);
+    } else {
+      System.out.println("Usage: TraceReplay generate (zipfian|hotspot|sawtooth|sorted) file "
+              + "[count]");
+      System.out.println("       TraceReplay replay file (rbt|rbt-hot|bst|avl|wavl|treap|bplus) "
+              + "[timed]");
+    }
+  }
+
+  /**
+   * Writes a trace of searches, inserts and deletes over keys from a distribution.
+   * Absent keys are inserted; present keys are deleted 20% of the time and searched
+   * otherwise. Keys are never inserted twice, so set and multiset engines agree.
+   */
+  private static void generate(String distribution, Path file, int count) throws IOException {
+    int[] keys = switch (distribution) {
+      case "zipfian" -> KeyDistributions.zipfian(count, Math.max(1, count / 10), 0.99, 42);
+      case "hotspot" -> KeyDistributions.hotspot(count, Math.max(1, count / 10), 0.01, 0.9, 42);
+      case "sawtooth" -> KeyDistributions.sawtooth(count, 10_000);
+      case "sorted" -> KeyDistributions.adversarialSorted(count);
+      default -> throw new IllegalArgumentException("Unknown distribution: " + distribution);
+    };
+
+    SplittableRandom random = new SplittableRandom(42);
+    RedBlackTree present = new RedBlackTree();
+
+    try (TraceRecorder recorder = new TraceRecorder(file)) {
+      for (int key : keys) {
+        int choice = random.nextInt(100);
+
+        if (!present.search(key)) {
+          present.insert(key);
+          recorder.record(TraceRecorder.INSERT, key);
+        } else if (choice < 20) {
+          present.delete(key);
+          recorder.record(TraceRecorder.DELETE, key);
+        } else {
+          recorder.record(TraceRecorder.SEARCH, key);
+        }
+      }
+    }
+
+    System.out.println("Wrote " + count + " operations to " + file);
+  }
+
+  /**
+   * Feeds a trace into a fresh engine and prints the achieved throughput.
+   */
+  private static void replay(Path file, String engineName, boolean timed) throws IOException {
+    OrderedIntSet engine = newEngine(engineName);
+    long operations = 0;
+    long maxLagNanos = 0;
+    long start = System.nanoTime();
+
+    try (TraceReader reader = new TraceReader(file)) {
+      while (reader.next()) {
+        if (timed) {
+          long due = start + reader.elapsedNanos();
+          long now;
+
+          while ((now = System.nanoTime()) < due) {
+            if (due - now > 200_000) {
+              LockSupport.parkNanos(due - now - 100_000);
+            } else {
+              Thread.onSpinWait();
+            }
+          }
+          maxLagNanos = Math.max(maxLagNanos, now - due);
+        }
+
+        switch (reader.operation()) {
+          case TraceRecorder.INSERT -> engine.insert(reader.key());
+          case TraceRecorder.DELETE -> {
+            try {
+              engine.delete(reader.key());
+            } catch (NoSuchElementException e) {
+              // A trace recorded against another engine may delete absent keys.
+            }
+          }
+          default -> engine.search(reader.key());
+        }
+        operations++;
+      }
+    }
+
+    long elapsed = System.nanoTime() - start;
+    System.out.printf("%s: %d operations in %d ms (%.0f ops/s)%n", engineName, operations,
+            elapsed / 1_000_000, operations * 1e9 / elapsed);
+
+    if (timed) {
+      System.out.printf("Maximum lag behind the original timing: %.1f us%n", maxLagNanos / 1000.0);
+    }
+  }
+
+  private static OrderedIntSet newEngine(String name) {
+    return switch (name) {
+      case "rbt" -> new RedBlackTree();
+      case "rbt-hot" -> {
+        RedBlackTree tree = new RedBlackTree();
+        tree.enableHotKeyCache(1024);
+        yield tree;
+      }
+      case "bst" -> new BinarySearchTree();
+      case "avl" -> new AvlTree();
+      case "wavl" -> new WavlTree();
+      case "treap" -> new Treap();
+      case "bplus" -> new BPlusTree();
+      default -> throw new IllegalArgumentException("Unknown engine: " + name);
+    };
+  }
+}
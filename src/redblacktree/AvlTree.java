@@ -0,0 +1,244 @@
+package redblacktree;
+
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements an AVL tree: the heights of every node's two subtrees differ by at
+ * most one. That keeps the tree at most about 1.44 log n deep against about
+ * 2 log n for a Red-Black Tree, so searches visit fewer nodes, at the cost of
+ * more rotations on updates. A good fit for read-heavy workloads.
+ * Author: Alex Matthes
+ */
+public class AvlTree implements OrderedIntSet {
+
+  /**
+   * Represents a node with the height of its subtree.
+   */
+  private static final class Node {
+    final int data;
+    int height = 1;
+    Node leftChild;
+    Node rightChild;
+
+    Node(int data) {
+      this.data = data;
+    }
+  }
+
+  private Node root;
+  private int size;
+  private long rotations;
+
+  @Override
+  public void insert(int item) {
+    root = insert(root, item);
+    size++;
+  }
+
+  private Node insert(Node node, int item) {
+    if (node == null) {
+      return new Node(item);
+    }
+
+    // Equal keys go to the right, as in RedBlackTree.
+    if (item < node.data) {
+      node.leftChild = insert(node.leftChild, item);
+    } else {
+      node.rightChild = insert(node.rightChild, item);
+    }
+    return rebalance(node);
+  }
+
+  @Override
+  public void delete(int key) {
+    int sizeBefore = size;
+    root = delete(root, key);
+
+    if (size == sizeBefore) {
+      throw new NoSuchElementException("Key not found: " + key);
+    }
+  }
+
+  private Node delete(Node node, int key) {
+    if (node == null) {
+      return null;
+    }
+
+    if (key < node.data) {
+      node.leftChild = delete(node.leftChild, key);
+    } else if (key > node.data) {
+      node.rightChild = delete(node.rightChild, key);
+    } else {
+      size--;
+
+      if (node.leftChild == null) {
+        return node.rightChild;
+      }
+      if (node.rightChild == null) {
+        return node.leftChild;
+      }
+
+      // Replace the node by its successor, detached from the right subtree.
+      Node successor = node.rightChild;
+      while (successor.leftChild != null) {
+        successor = successor.leftChild;
+      }
+      successor.rightChild = deleteMinimum(node.rightChild);
+      successor.leftChild = node.leftChild;
+      node = successor;
+    }
+    return rebalance(node);
+  }
+
+  private Node deleteMinimum(Node node) {
+    if (node.leftChild == null) {
+      return node.rightChild;
+    }
+    node.leftChild = deleteMinimum(node.leftChild);
+    return rebalance(node);
+  }
+
+  @Override
+  public boolean search(int key) {
+    Node current = root;
+
+    while (current != null) {
+      if (key == current.data) {
+        return true;
+      }
+      current = key < current.data ? current.leftChild : current.rightChild;
+    }
+    return false;
+  }
+
+  @Override
+  public void range(int low, int high, IntConsumer action) {
+    rangeHelper(root, low, high, action);
+  }
+
+  private void rangeHelper(Node node, int low, int high, IntConsumer action) {
+    if (node == null) {
+      return;
+    }
+
+    // Rotations can move equal keys to the left, so both sides are checked inclusively.
+    if (low <= node.data) {
+      rangeHelper(node.leftChild, low, high, action);
+    }
+    if (low <= node.data && node.data <= high) {
+      action.accept(node.data);
+    }
+    if (node.data <= high) {
+      rangeHelper(node.rightChild, low, high, action);
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int height() {
+    return height(root);
+  }
+
+  /**
+   * Returns the number of rotations performed so far.
+   *
+   * @return The rotation count.
+   */
+  public long getRotations() {
+    return rotations;
+  }
+
+  /**
+   * Checks the binary search tree, height and balance properties.
+   *
+   * @return true if the tree is a valid AVL tree.
+   */
+  public boolean isAvlTree() {
+    return validate(root, Long.MIN_VALUE, Long.MAX_VALUE) == size;
+  }
+
+  /**
+   * Returns the number of nodes in a valid subtree, or -1 if it is invalid.
+   */
+  private int validate(Node node, long low, long high) {
+    if (node == null) {
+      return 0;
+    }
+    if (node.data < low || node.data > high) {
+      return -1;
+    }
+    if (node.height != 1 + Math.max(height(node.leftChild), height(node.rightChild))
+            || Math.abs(balance(node)) > 1) {
+      return -1;
+    }
+
+    int left = validate(node.leftChild, low, node.data);
+    int right = validate(node.rightChild, node.data, high);
+    return left < 0 || right < 0 ? -1 : left + 1 + right;
+  }
+
+  /*
+   ---------------------Balancing Methods------------------------
+   */
+
+  private static int height(Node node) {
+    return node == null ? 0 : node.height;
+  }
+
+  private static int balance(Node node) {
+    return height(node.leftChild) - height(node.rightChild);
+  }
+
+  private static void updateHeight(Node node) {
+    node.height = 1 + Math.max(height(node.leftChild), height(node.rightChild));
+  }
+
+  /**
+   * Restores the balance of a node whose subtrees differ in height by up to two.
+   *
+   * @return The new root of the subtree.
+   */
+  private Node rebalance(Node node) {
+    updateHeight(node);
+    int balance = balance(node);
+
+    if (balance > 1) {
+      if (balance(node.leftChild) < 0) {
+        node.leftChild = rotateLeft(node.leftChild);
+      }
+      return rotateRight(node);
+    }
+    if (balance < -1) {
+      if (balance(node.rightChild) > 0) {
+        node.rightChild = rotateRight(node.rightChild);
+      }
+      return rotateLeft(node);
+    }
+    return node;
+  }
+
+  private Node rotateLeft(Node node) {
+    rotations++;
+    Node pivot = node.rightChild;
+    node.rightChild = pivot.leftChild;
+    pivot.leftChild = node;
+    updateHeight(node);
+    updateHeight(pivot);
+    return pivot;
+  }
+
+  private Node rotateRight(Node node) {
+    rotations++;
+    Node pivot = node.leftChild;
+    node.leftChild = pivot.rightChild;
+    pivot.rightChild = node;
+    updateHeight(node);
+    updateHeight(pivot);
+    return pivot;
+  }
+}
@@ -0,0 +1,515 @@
+package redblacktree;
+
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements a B+ tree of int keys with the same insert, delete, search and
+ * range operations as the Red-Black Tree.
+ * Keys are packed into int arrays a few cache lines wide, so a lookup touches
+ * O(log_64 n) nodes instead of O(log_2 n), and leaves are linked for range scans.
+ * Unlike the Red-Black Tree, inserting a key that is already present has no effect.
+ * Author: Alex Matthes
+ */
+public class BPlusTree implements OrderedIntSet {
+
+  // 64 ints = 256 bytes = four 64-byte cache lines per key array.
+  private static final int LEAF_CAPACITY = 64;
+  private static final int INNER_CAPACITY = 64;
+  private static final int MIN_LEAF = LEAF_CAPACITY / 2;
+  private static final int MIN_INNER = INNER_CAPACITY / 2;
+
+  /**
+   * Base type for tree nodes. Size is the number of keys in use.
+   */
+  private abstract static class Node {
+    final int[] keys;
+    int size;
+
+    Node(int capacity) {
+      this.keys = new int[capacity];
+    }
+  }
+
+  /**
+   * Leaf node holding the keys themselves, linked to the next leaf in key order.
+   */
+  private static final class Leaf extends Node {
+    Leaf next;
+
+    Leaf() {
+      super(LEAF_CAPACITY);
+    }
+  }
+
+  /**
+   * Inner node holding separator keys. Every key in children[i + 1] is
+   * greater than or equal to keys[i], and every key in children[i] is smaller.
+   */
+  private static final class Inner extends Node {
+    final Node[] children = new Node[INNER_CAPACITY + 1];
+
+    Inner() {
+      super(INNER_CAPACITY);
+    }
+  }
+
+  private Node root;
+  private int size;
+
+  // Separator produced by the most recent split, consumed by the caller.
+  private int splitKey;
+
+  /**
+   * Constructs an empty B+ tree.
+   */
+  public BPlusTree() {
+    this.root = new Leaf();
+  }
+
+  /**
+   * Returns the number of keys in the tree.
+   *
+   * @return The key count.
+   */
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the height of the tree, counting nodes on any root-to-leaf path.
+   * All leaves are at the same depth.
+   *
+   * @return The number of levels, or 0 if the tree is empty.
+   */
+  @Override
+  public int height() {
+    if (size == 0) {
+      return 0;
+    }
+
+    int height = 1;
+
+    for (Node node = root; node instanceof Inner inner; node = inner.children[0]) {
+      height++;
+    }
+    return height;
+  }
+
+  /*
+   ---------------------Search Methods------------------------
+   */
+
+  /**
+   * Searches for a specific key within the tree.
+   *
+   * @param key The data key to search for.
+   *
+   * @return true if the key is found, false otherwise.
+   */
+  @Override
+  public boolean search(int key) {
+    Leaf leaf = findLeaf(key);
+    int index = lowerBound(leaf.keys, leaf.size, key);
+
+    return index < leaf.size && leaf.keys[index] == key;
+  }
+
+  /**
+   * Visits every key between low and high (both inclusive) in ascending order.
+   *
+   * @param low The smallest key to visit.
+   * @param high The largest key to visit.
+   * @param action The callback receiving each key.
+   */
+  @Override
+  public void range(int low, int high, IntConsumer action) {
+    Leaf leaf = findLeaf(low);
+    int index = lowerBound(leaf.keys, leaf.size, low);
+
+    while (leaf != null) {
+      for (; index < leaf.size; index++) {
+        int key = leaf.keys[index];
+
+        if (key > high) {
+          return;
+        }
+        action.accept(key);
+      }
+      leaf = leaf.next;
+      index = 0;
+    }
+  }
+
+  /**
+   * Descends to the leaf whose key range contains the given key.
+   *
+   * @param key The key to locate.
+   *
+   * @return The leaf that holds the key if it is present.
+   */
+  private Leaf findLeaf(int key) {
+    Node node = root;
+
+    while (node instanceof Inner inner) {
+      node = inner.children[upperBound(inner.keys, inner.size, key)];
+    }
+
+    return (Leaf) node;
+  }
+
+  /*
+   ---------------------Insert Methods------------------------
+   */
+
+  /**
+   * Inserts a new item into the tree. Does nothing if the item is already present.
+   *
+   * @param item The data key to be inserted.
+   */
+  @Override
+  public void insert(int item) {
+    Node sibling = insertHelper(root, item);
+
+    if (sibling != null) {
+      Inner newRoot = new Inner();
+      newRoot.keys[0] = splitKey;
+      newRoot.children[0] = root;
+      newRoot.children[1] = sibling;
+      newRoot.size = 1;
+      root = newRoot;
+    }
+  }
+
+  /**
+   * Helper method to recursively insert a key into a subtree.
+   *
+   * @param node The root of the subtree.
+   * @param item The key to insert.
+   *
+   * @return The new right sibling if the node was split (its separator is left in
+   *         splitKey), or null otherwise.
+   */
+  private Node insertHelper(Node node, int item) {
+    if (node instanceof Leaf leaf) {
+      return insertIntoLeaf(leaf, item);
+    }
+
+    Inner inner = (Inner) node;
+    int childIndex = upperBound(inner.keys, inner.size, item);
+    Node sibling = insertHelper(inner.children[childIndex], item);
+
+    if (sibling == null) {
+      return null;
+    }
+
+    return insertIntoInner(inner, childIndex, splitKey, sibling);
+  }
+
+  /**
+   * Inserts a key into a leaf, splitting it in half when it is full.
+   *
+   * @param leaf The leaf to insert into.
+   * @param item The key to insert.
+   *
+   * @return The new right leaf if the leaf was split, or null otherwise.
+   */
+  private Leaf insertIntoLeaf(Leaf leaf, int item) {
+    int index = lowerBound(leaf.keys, leaf.size, item);
+
+    if (index < leaf.size && leaf.keys[index] == item) {
+      return null;
+    }
+    size++;
+
+    if (leaf.size < LEAF_CAPACITY) {
+      insertAt(leaf.keys, leaf.size, index, item);
+      leaf.size++;
+      return null;
+    }
+
+    Leaf right = new Leaf();
+    int half = LEAF_CAPACITY / 2;
+
+    System.arraycopy(leaf.keys, half, right.keys, 0, LEAF_CAPACITY - half);
+    right.size = LEAF_CAPACITY - half;
+    leaf.size = half;
+
+    if (index <= half) {
+      insertAt(leaf.keys, leaf.size, index, item);
+      leaf.size++;
+    } else {
+      insertAt(right.keys, right.size, index - half, item);
+      right.size++;
+    }
+
+    right.next = leaf.next;
+    leaf.next = right;
+    splitKey = right.keys[0];
+    return right;
+  }
+
+  /**
+   * Inserts a separator and the child to its right into an inner node,
+   * splitting the node when it is full.
+   *
+   * @param inner The inner node to insert into.
+   * @param childIndex The index of the child that was split.
+   * @param separator The separator between the split child and its new sibling.
+   * @param sibling The new sibling.
+   *
+   * @return The new right inner node if this node was split, or null otherwise.
+   */
+  private Inner insertIntoInner(Inner inner, int childIndex, int separator, Node sibling) {
+    if (inner.size < INNER_CAPACITY) {
+      insertAt(inner.keys, inner.size, childIndex, separator);
+      insertAt(inner.children, inner.size + 1, childIndex + 1, sibling);
+      inner.size++;
+      return null;
+    }
+
+    // Build the overfull node in scratch arrays, then split around the middle key.
+    int[] keys = new int[INNER_CAPACITY + 1];
+    Node[] children = new Node[INNER_CAPACITY + 2];
+
+    System.arraycopy(inner.keys, 0, keys, 0, INNER_CAPACITY);
+    System.arraycopy(inner.children, 0, children, 0, INNER_CAPACITY + 1);
+    insertAt(keys, INNER_CAPACITY, childIndex, separator);
+    insertAt(children, INNER_CAPACITY + 1, childIndex + 1, sibling);
+
+    int middle = (INNER_CAPACITY + 1) / 2;
+    Inner right = new Inner();
+
+    inner.size = middle;
+    System.arraycopy(keys, 0, inner.keys, 0, middle);
+    System.arraycopy(children, 0, inner.children, 0, middle + 1);
+    for (int i = middle + 1; i <= INNER_CAPACITY; i++) {
+      inner.children[i] = null;
+    }
+
+    right.size = INNER_CAPACITY - middle;
+    System.arraycopy(keys, middle + 1, right.keys, 0, right.size);
+    System.arraycopy(children, middle + 1, right.children, 0, right.size + 1);
+
+    splitKey = keys[middle];
+    return right;
+  }
+
+  /*
+   ---------------------Delete Methods------------------------
+   */
+
+  /**
+   * Deletes a key from the tree.
+   *
+   * @param key The data key to delete.
+   *
+   * @throws NoSuchElementException If the given key is not found in the tree.
+   */
+  @Override
+  public void delete(int key) {
+    if (!deleteHelper(root, key)) {
+      throw new NoSuchElementException("Key not found: " + key);
+    }
+    size--;
+
+    if (root instanceof Inner inner && inner.size == 0) {
+      root = inner.children[0];
+    }
+  }
+
+  /**
+   * Helper method to recursively delete a key, repairing underfull children
+   * on the way back up.
+   *
+   * @param node The root of the subtree.
+   * @param key The key to delete.
+   *
+   * @return true if the key was found and removed.
+   */
+  private boolean deleteHelper(Node node, int key) {
+    if (node instanceof Leaf leaf) {
+      int index = lowerBound(leaf.keys, leaf.size, key);
+
+      if (index == leaf.size || leaf.keys[index] != key) {
+        return false;
+      }
+
+      System.arraycopy(leaf.keys, index + 1, leaf.keys, index, leaf.size - index - 1);
+      leaf.size--;
+      return true;
+    }
+
+    Inner inner = (Inner) node;
+    int childIndex = upperBound(inner.keys, inner.size, key);
+    Node child = inner.children[childIndex];
+
+    if (!deleteHelper(child, key)) {
+      return false;
+    }
+
+    int minimum = child instanceof Leaf ? MIN_LEAF : MIN_INNER;
+    if (child.size < minimum) {
+      fixUnderflow(inner, childIndex);
+    }
+    return true;
+  }
+
+  /**
+   * Refills an underfull child by borrowing from a sibling, or merges it with one.
+   *
+   * @param parent The parent of the underfull child.
+   * @param childIndex The index of the underfull child.
+   */
+  private void fixUnderflow(Inner parent, int childIndex) {
+    Node child = parent.children[childIndex];
+    Node left = childIndex > 0 ? parent.children[childIndex - 1] : null;
+    Node right = childIndex < parent.size ? parent.children[childIndex + 1] : null;
+    int minimum = child instanceof Leaf ? MIN_LEAF : MIN_INNER;
+
+    if (left != null && left.size > minimum) {
+      borrowFromLeft(parent, childIndex, left, child);
+    } else if (right != null && right.size > minimum) {
+      borrowFromRight(parent, childIndex, child, right);
+    } else if (left != null) {
+      merge(parent, childIndex - 1, left, child);
+    } else {
+      merge(parent, childIndex, child, right);
+    }
+  }
+
+  /**
+   * Moves the largest entry of the left sibling into the child.
+   */
+  private void borrowFromLeft(Inner parent, int childIndex, Node left, Node child) {
+    if (child instanceof Leaf) {
+      insertAt(child.keys, child.size, 0, left.keys[left.size - 1]);
+      child.size++;
+      left.size--;
+      parent.keys[childIndex - 1] = child.keys[0];
+      return;
+    }
+
+    Inner leftInner = (Inner) left;
+    Inner childInner = (Inner) child;
+
+    insertAt(childInner.keys, childInner.size, 0, parent.keys[childIndex - 1]);
+    insertAt(childInner.children, childInner.size + 1, 0, leftInner.children[leftInner.size]);
+    childInner.size++;
+
+    parent.keys[childIndex - 1] = leftInner.keys[leftInner.size - 1];
+    leftInner.children[leftInner.size] = null;
+    leftInner.size--;
+  }
+
+  /**
+   * Moves the smallest entry of the right sibling into the child.
+   */
+  private void borrowFromRight(Inner parent, int childIndex, Node child, Node right) {
+    if (child instanceof Leaf) {
+      child.keys[child.size++] = right.keys[0];
+      System.arraycopy(right.keys, 1, right.keys, 0, right.size - 1);
+      right.size--;
+      parent.keys[childIndex] = right.keys[0];
+      return;
+    }
+
+    Inner childInner = (Inner) child;
+    Inner rightInner = (Inner) right;
+
+    childInner.keys[childInner.size] = parent.keys[childIndex];
+    childInner.children[childInner.size + 1] = rightInner.children[0];
+    childInner.size++;
+
+    parent.keys[childIndex] = rightInner.keys[0];
+    System.arraycopy(rightInner.keys, 1, rightInner.keys, 0, rightInner.size - 1);
+    System.arraycopy(rightInner.children, 1, rightInner.children, 0, rightInner.size);
+    rightInner.children[rightInner.size] = null;
+    rightInner.size--;
+  }
+
+  /**
+   * Merges the right node into the left node and removes the separator between them.
+   *
+   * @param parent The parent of both nodes.
+   * @param separatorIndex The index of the separator between left and right.
+   * @param left The node that absorbs the entries.
+   * @param right The node that is removed.
+   */
+  private void merge(Inner parent, int separatorIndex, Node left, Node right) {
+    if (left instanceof Leaf leftLeaf) {
+      System.arraycopy(right.keys, 0, left.keys, left.size, right.size);
+      left.size += right.size;
+      leftLeaf.next = ((Leaf) right).next;
+    } else {
+      Inner leftInner = (Inner) left;
+      Inner rightInner = (Inner) right;
+
+      leftInner.keys[leftInner.size] = parent.keys[separatorIndex];
+      System.arraycopy(rightInner.keys, 0, leftInner.keys, leftInner.size + 1, rightInner.size);
+      System.arraycopy(rightInner.children, 0, leftInner.children, leftInner.size + 1,
+              rightInner.size + 1);
+      leftInner.size += rightInner.size + 1;
+    }
+
+    System.arraycopy(parent.keys, separatorIndex + 1, parent.keys, separatorIndex,
+            parent.size - separatorIndex - 1);
+    System.arraycopy(parent.children, separatorIndex + 2, parent.children, separatorIndex + 1,
+            parent.size - separatorIndex - 1);
+    parent.children[parent.size] = null;
+    parent.size--;
+  }
+
+  /*
+   ---------------------Array Helpers------------------------
+   */
+
+  /**
+   * Returns the index of the first key that is greater than or equal to the given key.
+   */
+  private static int lowerBound(int[] keys, int size, int key) {
+    int low = 0;
+    int high = size;
+
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+
+      if (keys[middle] < key) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the index of the first key that is strictly greater than the given key.
+   */
+  private static int upperBound(int[] keys, int size, int key) {
+    int low = 0;
+    int high = size;
+
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+
+      if (keys[middle] <= key) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static void insertAt(int[] array, int length, int index, int value) {
+    System.arraycopy(array, index, array, index + 1, length - index);
+    array[index] = value;
+  }
+
+  private static void insertAt(Node[] array, int length, int index, Node value) {
+    System.arraycopy(array, index, array, index + 1, length - index);
+    array[index] = value;
+  }
+}
@@ -0,0 +1,105 @@
+package redblacktree;
+
+/**
+ * A split-block Bloom filter over int keys.
+ * Each key maps to one 512-bit block of eight longs and sets one bit in every
+ * long of that block, so a lookup reads a single 64-byte block, usually one or
+ * two cache lines, whatever the false-positive rate. Bits are never cleared;
+ * the owner rebuilds the filter once enough keys have been deleted.
+ * Author: Alex Matthes
+ */
+final class BlockedBloomFilter {
+
+  private static final int WORDS_PER_BLOCK = 8;
+  private static final int BITS_PER_BLOCK = WORDS_PER_BLOCK * Long.SIZE;
+  private static final int MAX_BLOCKS = Integer.MAX_VALUE / WORDS_PER_BLOCK;
+
+  // One odd multiplier per word picks that word's bit from the key's hash.
+  private static final int[] SALTS = {
+      0x47B6137B, 0x44974D91, 0x8824AD5B, 0xA2B7289D,
+      0x705495C7, 0x2DF1424B, 0x9EFC4947, 0x5C6BFB31
+  };
+
+  private final long[] words;
+  private final int blocks;
+  private final int capacity;
+
+  /**
+   * Sizes a filter for the given number of keys and false-positive rate.
+   *
+   * @param capacity The number of keys the filter is sized for.
+   * @param falsePositiveRate The target false-positive rate at full capacity.
+   */
+  BlockedBloomFilter(int capacity, double falsePositiveRate) {
+    // The classic bits per key, plus a fifth to make up for the uneven load across blocks.
+    double bitsPerKey = 1.2 * -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+    long blocksNeeded = (long) Math.ceil(capacity * bitsPerKey / BITS_PER_BLOCK);
+
+    this.blocks = (int) Math.max(1, Math.min(MAX_BLOCKS, blocksNeeded));
+    this.words = new long[blocks * WORDS_PER_BLOCK];
+    this.capacity = capacity;
+  }
+
+  /**
+   * Adds a key.
+   *
+   * @param key The key to add.
+   */
+  void add(int key) {
+    long hash = hash(key);
+    int base = block(hash);
+    int low = (int) hash;
+
+    for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+      words[base + i] |= 1L << ((low * SALTS[i]) >>> 26);
+    }
+  }
+
+  /**
+   * Checks whether a key may have been added.
+   *
+   * @param key The key to check.
+   *
+   * @return false if the key was definitely never added, true if it may have been.
+   */
+  boolean mightContain(int key) {
+    long hash = hash(key);
+    int base = block(hash);
+    int low = (int) hash;
+
+    for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+      if ((words[base + i] & (1L << ((low * SALTS[i]) >>> 26))) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of keys the filter was sized for.
+   *
+   * @return The capacity.
+   */
+  int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the size of the bit array.
+   *
+   * @return The size in bytes.
+   */
+  long memoryBytes() {
+    return (long) words.length * Long.BYTES;
+  }
+
+  private int block(long hash) {
+    // Maps the high 32 bits onto [0, blocks) without a division or a power-of-two size.
+    return (int) (((hash >>> 32) * blocks) >>> 32) * WORDS_PER_BLOCK;
+  }
+
+  private static long hash(int key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return h ^ (h >>> 29);
+  }
+}
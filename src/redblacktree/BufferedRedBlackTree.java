@@ -0,0 +1,371 @@
+package redblacktree;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Layers small sorted write buffers over a Red-Black Tree, so bursts of inserts
+ * and deletes are applied to the tree in large sorted batches.
+ *
+ * <p>Keys are spread over 64 shards by a multiplicative hash, so dense or clustered
+ * keys still fill the shards evenly. Each shard buffers its newest operation per
+ * key in a sorted array: an insert as a put, a delete as a tombstone. When a shard
+ * fills up, all shards are sorted into one batch and flushed. A batch of at least
+ * half the tree's size is merged with the tree's keys in one linear pass and the
+ * tree is rebuilt with fromSorted; a smaller batch is applied key by key in
+ * ascending order, each search starting from the previous key's node.
+ *
+ * <p>Reads check the key's shard first and fall back to the tree, so the newest
+ * operation always wins. Like the B+ tree, this is a set: inserting a present key
+ * has no effect. Deleting an absent key has no effect either, since checking for
+ * it would cost the tree descent the buffers are there to avoid. Not thread-safe.
+ * Author: Alex Matthes
+ */
+public class BufferedRedBlackTree {
+
+  private static final int SHARD_BITS = 6;
+  private static final int SHARDS = 1 << SHARD_BITS;
+
+  // Rebuild instead of applying key by key once a batch reaches half the tree.
+  private static final int REBUILD_RATIO = 2;
+
+  private RedBlackTree tree;
+
+  private final int shardCapacity;
+  private final int[][] shardKeys = new int[SHARDS][];
+  private final boolean[][] shardPuts = new boolean[SHARDS][];
+  private final int[] shardSizes = new int[SHARDS];
+  private int buffered;
+
+  private long flushes;
+  private long rebuilds;
+
+  /**
+   * Constructs an empty tree with 1024 buffered operations per shard.
+   */
+  public BufferedRedBlackTree() {
+    this(1024);
+  }
+
+  /**
+   * Constructs an empty tree.
+   *
+   * @param shardCapacity The number of operations each of the 64 shards buffers
+   *                      before all shards are flushed.
+   *
+   * @throws IllegalArgumentException If shardCapacity is less than 1.
+   */
+  public BufferedRedBlackTree(int shardCapacity) {
+    if (shardCapacity < 1) {
+      throw new IllegalArgumentException("shardCapacity must be positive: " + shardCapacity);
+    }
+
+    this.tree = new RedBlackTree();
+    this.shardCapacity = shardCapacity;
+
+    for (int shard = 0; shard < SHARDS; shard++) {
+      shardKeys[shard] = new int[shardCapacity];
+      shardPuts[shard] = new boolean[shardCapacity];
+    }
+  }
+
+  /**
+   * Inserts a key. Does nothing once applied if the key is already present.
+   *
+   * @param item The data key to be inserted.
+   */
+  public void insert(int item) {
+    buffer(item, true);
+  }
+
+  /**
+   * Deletes a key. Does nothing once applied if the key is absent.
+   *
+   * @param key The data key to delete.
+   */
+  public void delete(int key) {
+    buffer(key, false);
+  }
+
+  /**
+   * Checks whether a key is present, taking buffered operations into account.
+   *
+   * @param key The key to search for.
+   *
+   * @return true if the key is present.
+   */
+  public boolean search(int key) {
+    int shard = shardOf(key);
+    int index = Arrays.binarySearch(shardKeys[shard], 0, shardSizes[shard], key);
+
+    if (index >= 0) {
+      return shardPuts[shard][index];
+    }
+    return tree.search(key);
+  }
+
+  /**
+   * Passes every present key in the inclusive range [low, high] to the action, in
+   * ascending order, merging buffered operations with the tree's keys.
+   *
+   * @param low The lower bound, inclusive.
+   * @param high The upper bound, inclusive.
+   * @param action The action to apply to each key.
+   */
+  public void range(int low, int high, IntConsumer action) {
+    if (low > high) {
+      return;
+    }
+
+    long[] entries = new long[buffered];
+    int count = 0;
+
+    for (int shard = 0; shard < SHARDS; shard++) {
+      int[] shardKeyArray = shardKeys[shard];
+      int from = lowerBound(shardKeyArray, shardSizes[shard], low);
+
+      for (int i = from; i < shardSizes[shard] && shardKeyArray[i] <= high; i++) {
+        entries[count++] = encode(shardKeyArray[i], shardPuts[shard][i]);
+      }
+    }
+
+    int total = count;
+    int[] keys = new int[total];
+    boolean[] puts = new boolean[total];
+    decode(entries, total, keys, puts);
+
+    int[] next = {0};
+
+    tree.range(low, high, key -> {
+      int i = next[0];
+
+      // Buffered keys before this one can only be new inserts.
+      while (i < total && keys[i] < key) {
+        if (puts[i]) {
+          action.accept(keys[i]);
+        }
+        i++;
+      }
+
+      if (i < total && keys[i] == key) {
+        // The buffered operation is newer than the tree.
+        if (puts[i]) {
+          action.accept(key);
+        }
+        i++;
+      } else {
+        action.accept(key);
+      }
+      next[0] = i;
+    });
+
+    for (int i = next[0]; i < total; i++) {
+      if (puts[i]) {
+        action.accept(keys[i]);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of present keys. Each buffered operation is checked against
+   * the tree, so this costs one search per buffered key but does not flush.
+   *
+   * @return The key count.
+   */
+  public int size() {
+    int size = tree.size();
+
+    for (int shard = 0; shard < SHARDS; shard++) {
+      for (int i = 0; i < shardSizes[shard]; i++) {
+        boolean inTree = tree.search(shardKeys[shard][i]);
+
+        if (shardPuts[shard][i] && !inTree) {
+          size++;
+        } else if (!shardPuts[shard][i] && inTree) {
+          size--;
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Applies every buffered operation to the tree as one sorted batch.
+   */
+  public void flush() {
+    if (buffered == 0) {
+      return;
+    }
+
+    long[] entries = new long[buffered];
+    int count = 0;
+
+    for (int shard = 0; shard < SHARDS; shard++) {
+      for (int i = 0; i < shardSizes[shard]; i++) {
+        entries[count++] = encode(shardKeys[shard][i], shardPuts[shard][i]);
+      }
+      shardSizes[shard] = 0;
+    }
+    buffered = 0;
+
+    int[] keys = new int[count];
+    boolean[] puts = new boolean[count];
+    decode(entries, count, keys, puts);
+    flushes++;
+
+    if ((long) count * REBUILD_RATIO >= tree.size()) {
+      rebuild(keys, puts, count);
+    } else {
+      apply(keys, puts, count);
+    }
+  }
+
+  /**
+   * Returns the number of batches applied to the tree.
+   *
+   * @return The flush count.
+   */
+  public long getFlushes() {
+    return flushes;
+  }
+
+  /**
+   * Returns the number of batches applied by rebuilding the tree.
+   *
+   * @return The rebuild count.
+   */
+  public long getRebuilds() {
+    return rebuilds;
+  }
+
+  /**
+   * Returns the number of operations waiting in the buffers.
+   *
+   * @return The buffered operation count.
+   */
+  public int getBuffered() {
+    return buffered;
+  }
+
+  /**
+   * Checks the Red-Black properties of the underlying tree.
+   *
+   * @return true if the tree is a valid Red-Black Tree.
+   */
+  public boolean isRedBlackTree() {
+    return tree.isRedBlackTree();
+  }
+
+  /**
+   * Records an operation in its shard, replacing an older one on the same key.
+   */
+  private void buffer(int key, boolean put) {
+    int shard = shardOf(key);
+    int[] keys = shardKeys[shard];
+    int size = shardSizes[shard];
+    int index = Arrays.binarySearch(keys, 0, size, key);
+
+    if (index >= 0) {
+      shardPuts[shard][index] = put;
+      return;
+    }
+
+    if (size == shardCapacity) {
+      flush();
+      size = 0;
+      index = -1;
+    }
+
+    int insertAt = -index - 1;
+    System.arraycopy(keys, insertAt, keys, insertAt + 1, size - insertAt);
+    System.arraycopy(shardPuts[shard], insertAt, shardPuts[shard], insertAt + 1, size - insertAt);
+    keys[insertAt] = key;
+    shardPuts[shard][insertAt] = put;
+    shardSizes[shard] = size + 1;
+    buffered++;
+  }
+
+  /**
+   * Applies a sorted batch key by key. Consecutive keys share most of their
+   * search path, so the descents hit nodes the previous one just loaded.
+   */
+  private void apply(int[] keys, boolean[] puts, int count) {
+    RedBlackTree.Node finger = tree.getNullNode();
+
+    for (int i = 0; i < count; i++) {
+      if (puts[i]) {
+        finger = tree.insertNearIfAbsent(finger, keys[i]);
+      } else if (tree.deleteIfPresent(keys[i])) {
+        // The finger may have been the deleted node.
+        finger = tree.getNullNode();
+      }
+    }
+  }
+
+  /**
+   * Merges a sorted batch with the tree's keys in one pass and rebuilds the tree.
+   */
+  private void rebuild(int[] keys, boolean[] puts, int count) {
+    int[] merged = new int[tree.size() + count];
+    int[] state = {0, 0}; // Next batch index, merged count.
+
+    tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE, key -> {
+      int i = state[0];
+
+      while (i < count && keys[i] < key) {
+        if (puts[i]) {
+          merged[state[1]++] = keys[i];
+        }
+        i++;
+      }
+
+      if (i < count && keys[i] == key) {
+        if (puts[i]) {
+          merged[state[1]++] = key;
+        }
+        i++;
+      } else {
+        merged[state[1]++] = key;
+      }
+      state[0] = i;
+    });
+
+    for (int i = state[0]; i < count; i++) {
+      if (puts[i]) {
+        merged[state[1]++] = keys[i];
+      }
+    }
+
+    int[] next = {0};
+    tree = RedBlackTree.fromSorted(state[1], () -> merged[next[0]++]);
+    rebuilds++;
+  }
+
+  /**
+   * Sorts encoded entries by key and splits them back into keys and operations.
+   * Each key lives in exactly one shard, so the batch has no duplicate keys.
+   */
+  private static void decode(long[] entries, int count, int[] keys, boolean[] puts) {
+    Arrays.sort(entries, 0, count);
+
+    for (int i = 0; i < count; i++) {
+      keys[i] = (int) (entries[i] >> 1);
+      puts[i] = (entries[i] & 1) != 0;
+    }
+  }
+
+  private static long encode(int key, boolean put) {
+    // Shifting the signed key keeps long order equal to key order.
+    return ((long) key << 1) | (put ? 1 : 0);
+  }
+
+  private static int lowerBound(int[] keys, int size, int key) {
+    int index = Arrays.binarySearch(keys, 0, size, key);
+    return index >= 0 ? index : -index - 1;
+  }
+
+  private static int shardOf(int key) {
+    // Fibonacci hashing: the top bits of the product mix every bit of the key.
+    return (key * 0x9E3779B9) >>> (Integer.SIZE - SHARD_BITS);
+  }
+}
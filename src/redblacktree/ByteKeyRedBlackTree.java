@@ -0,0 +1,668 @@
+package redblacktree;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * A Red-Black Tree over variable-length byte-string keys, ordered by unsigned
+ * lexicographic comparison. For UTF-8 encoded strings this is code point order.
+ *
+ * <p>Key bytes live back to back in one growable arena array rather than in a
+ * byte[] per key. Each node stores its key's offset and length, plus the first
+ * eight bytes inline as a big-endian long, so comparing two prefixes is a single
+ * unsigned long comparison. Most comparisons on a search path end there; only
+ * keys that share their first eight bytes read the arena, through
+ * Arrays.compareUnsigned, which the JIT turns into a vectorized mismatch. Slicing
+ * the arena with MemorySegment.ofArray and calling mismatch finds the same byte
+ * but builds two segment views per comparison; comparing the array ranges
+ * directly gives the ordering in one call.
+ * Keys of at most eight bytes fit in the prefix entirely and take no arena space.
+ *
+ * <p>Deleted keys leave their bytes behind in the arena; once dead bytes make up
+ * more than half of it, the live keys are copied into a fresh one in key order.
+ * Like the B+ tree, inserting a key that is already present has no effect.
+ * Not thread-safe.
+ * Author: Alex Matthes
+ */
+public final class ByteKeyRedBlackTree {
+
+  private static final VarHandle LONG_BIG_ENDIAN =
+          MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+  private static final int PREFIX_BYTES = Long.BYTES;
+  private static final int MIN_ARENA_BYTES = 1024;
+
+  /**
+   * A tree node with the key's inline prefix and its location in the arena.
+   */
+  private static final class Node {
+    long prefix;
+    int offset;
+    int length;
+    boolean red;
+    Node parent;
+    Node leftChild;
+    Node rightChild;
+  }
+
+  private final Node nullNode;
+  private Node root;
+  private int size;
+
+  private byte[] arena;
+  private int arenaUsed;
+  private int deadBytes;
+
+  private long comparisons;
+  private long arenaComparisons;
+
+  /**
+   * Constructs an empty tree.
+   */
+  public ByteKeyRedBlackTree() {
+    this.nullNode = new Node();
+    this.nullNode.parent = nullNode;
+    this.nullNode.leftChild = nullNode;
+    this.nullNode.rightChild = nullNode;
+    this.root = nullNode;
+    this.arena = new byte[MIN_ARENA_BYTES];
+  }
+
+  /*
+   ---------------------Insertion Methods------------------------
+   */
+
+  /**
+   * Inserts a key. Does nothing if the key is already present.
+   * The key's bytes are copied, so the caller may reuse the array.
+   *
+   * @param key The key to insert.
+   */
+  public void insert(byte[] key) {
+    long prefix = prefixOf(key);
+    Node current = root;
+    Node parent = nullNode;
+    int comparison = 0;
+
+    while (current != nullNode) {
+      comparison = compare(key, prefix, current);
+
+      if (comparison == 0) {
+        return;
+      }
+      parent = current;
+      current = comparison < 0 ? current.leftChild : current.rightChild;
+    }
+
+    Node node = new Node();
+    node.prefix = prefix;
+    node.length = key.length;
+    node.offset = store(key);
+    node.red = true;
+    node.parent = parent;
+    node.leftChild = nullNode;
+    node.rightChild = nullNode;
+
+    if (parent == nullNode) {
+      root = node;
+    } else if (comparison < 0) {
+      parent.leftChild = node;
+    } else {
+      parent.rightChild = node;
+    }
+
+    size++;
+    insertFixUp(node);
+  }
+
+  /*
+   ---------------------Deletion Methods------------------------
+   */
+
+  /**
+   * Deletes a key.
+   *
+   * @param key The key to delete.
+   *
+   * @throws NoSuchElementException If the key is not present.
+   */
+  public void delete(byte[] key) {
+    Node node = findNode(key);
+
+    if (node == nullNode) {
+      throw new NoSuchElementException("Key not found: " + Arrays.toString(key));
+    }
+
+    if (node.length > PREFIX_BYTES) {
+      deadBytes += node.length;
+    }
+    deleteNode(node);
+
+    if (arenaUsed > MIN_ARENA_BYTES && deadBytes * 2 > arenaUsed) {
+      compactArena();
+    }
+  }
+
+  /**
+   * Removes a node from the tree, as in RedBlackTree.
+   *
+   * @param nodeToDelete The node to remove.
+   */
+  private void deleteNode(Node nodeToDelete) {
+    Node successor = nodeToDelete;
+    Node nodeChild;
+    boolean originalRed = successor.red;
+
+    if (nodeToDelete.leftChild == nullNode) {
+      nodeChild = nodeToDelete.rightChild;
+      transplant(nodeToDelete, nodeToDelete.rightChild);
+    } else if (nodeToDelete.rightChild == nullNode) {
+      nodeChild = nodeToDelete.leftChild;
+      transplant(nodeToDelete, nodeToDelete.leftChild);
+    } else {
+      successor = minimum(nodeToDelete.rightChild);
+      originalRed = successor.red;
+      nodeChild = successor.rightChild;
+
+      if (successor.parent == nodeToDelete) {
+        nodeChild.parent = successor;
+      } else {
+        transplant(successor, successor.rightChild);
+        successor.rightChild = nodeToDelete.rightChild;
+        successor.rightChild.parent = successor;
+      }
+
+      transplant(nodeToDelete, successor);
+      successor.leftChild = nodeToDelete.leftChild;
+      successor.leftChild.parent = successor;
+      successor.red = nodeToDelete.red;
+    }
+
+    if (!originalRed) {
+      deleteFixUp(nodeChild);
+    }
+    size--;
+  }
+
+  /*
+   ---------------------Search Methods------------------------
+   */
+
+  /**
+   * Checks whether a key is present.
+   *
+   * @param key The key to search for.
+   *
+   * @return true if the key is present, false otherwise.
+   */
+  public boolean search(byte[] key) {
+    return findNode(key) != nullNode;
+  }
+
+  /**
+   * Finds the node holding a key.
+   *
+   * @param key The key to search for.
+   *
+   * @return The node, or the null node if the key is not present.
+   */
+  private Node findNode(byte[] key) {
+    long prefix = prefixOf(key);
+    Node current = root;
+
+    while (current != nullNode) {
+      int comparison = compare(key, prefix, current);
+
+      if (comparison == 0) {
+        return current;
+      }
+      current = comparison < 0 ? current.leftChild : current.rightChild;
+    }
+    return nullNode;
+  }
+
+  /**
+   * Finds the node holding the smallest key at or above the given key.
+   *
+   * @param key The lower bound.
+   *
+   * @return The node, or the null node if every key is smaller.
+   */
+  private Node ceiling(byte[] key) {
+    long prefix = prefixOf(key);
+    Node current = root;
+    Node candidate = nullNode;
+
+    while (current != nullNode) {
+      int comparison = compare(key, prefix, current);
+
+      if (comparison == 0) {
+        return current;
+      }
+      if (comparison < 0) {
+        candidate = current;
+        current = current.leftChild;
+      } else {
+        current = current.rightChild;
+      }
+    }
+    return candidate;
+  }
+
+  /*
+   ---------------------Range Methods------------------------
+   */
+
+  /**
+   * Visits every key between low and high (both inclusive) in ascending order.
+   *
+   * @param low The smallest key to visit.
+   * @param high The largest key to visit.
+   * @param action The callback receiving a copy of each key.
+   */
+  public void range(byte[] low, byte[] high, Consumer<byte[]> action) {
+    long highPrefix = prefixOf(high);
+
+    for (Node node = ceiling(low); node != nullNode; node = successor(node)) {
+      if (compare(high, highPrefix, node) < 0) {
+        return;
+      }
+      action.accept(keyOf(node));
+    }
+  }
+
+  /**
+   * Visits every key that starts with the given bytes, in ascending order. These
+   * keys are contiguous in key order, so the scan starts at the prefix itself and
+   * stops at the first key without it.
+   *
+   * @param prefix The leading bytes the keys must share.
+   * @param action The callback receiving a copy of each key.
+   */
+  public void prefixScan(byte[] prefix, Consumer<byte[]> action) {
+    // Only the leading min(8, prefix.length) bytes of a node's inline prefix must match.
+    long leading = prefixOf(prefix);
+    long mask = prefix.length >= PREFIX_BYTES ? -1L
+            : ~(-1L >>> (Byte.SIZE * prefix.length));
+
+    for (Node node = ceiling(prefix); node != nullNode; node = successor(node)) {
+      if (node.length < prefix.length || (node.prefix & mask) != leading) {
+        return;
+      }
+      if (prefix.length > PREFIX_BYTES && !Arrays.equals(prefix, PREFIX_BYTES, prefix.length,
+              arena, node.offset + PREFIX_BYTES, node.offset + prefix.length)) {
+        return;
+      }
+      action.accept(keyOf(node));
+    }
+  }
+
+  /**
+   * Returns the node with the next larger key, in tree order.
+   */
+  private Node successor(Node node) {
+    if (node.rightChild != nullNode) {
+      return minimum(node.rightChild);
+    }
+
+    Node current = node;
+    while (current.parent != nullNode && current == current.parent.rightChild) {
+      current = current.parent;
+    }
+    return current.parent;
+  }
+
+  private Node minimum(Node node) {
+    Node current = node;
+
+    while (current.leftChild != nullNode) {
+      current = current.leftChild;
+    }
+    return current;
+  }
+
+  /*
+   ---------------------Key Methods------------------------
+   */
+
+  /**
+   * Compares a key with a node's key, reading the arena only if their first eight
+   * bytes are equal and both are longer than that.
+   *
+   * @param key The key.
+   * @param prefix The key's inline prefix, from prefixOf.
+   * @param node The node to compare with.
+   *
+   * @return A negative number, zero or a positive number as the key is smaller than,
+   *         equal to or larger than the node's key.
+   */
+  private int compare(byte[] key, long prefix, Node node) {
+    comparisons++;
+
+    int comparison = Long.compareUnsigned(prefix, node.prefix);
+
+    if (comparison != 0) {
+      return comparison;
+    }
+    if (key.length <= PREFIX_BYTES || node.length <= PREFIX_BYTES) {
+      // Prefixes are zero-padded, so the shorter key is a prefix of the longer one.
+      return Integer.compare(key.length, node.length);
+    }
+
+    arenaComparisons++;
+    return Arrays.compareUnsigned(key, PREFIX_BYTES, key.length,
+            arena, node.offset + PREFIX_BYTES, node.offset + node.length);
+  }
+
+  /**
+   * Packs the first eight bytes of a key into a long that orders like the bytes do,
+   * padding shorter keys with zeros.
+   */
+  private static long prefixOf(byte[] key) {
+    if (key.length >= PREFIX_BYTES) {
+      return (long) LONG_BIG_ENDIAN.get(key, 0);
+    }
+
+    long prefix = 0;
+    for (int i = 0; i < PREFIX_BYTES; i++) {
+      prefix = (prefix << Byte.SIZE) | (i < key.length ? key[i] & 0xFF : 0);
+    }
+    return prefix;
+  }
+
+  /**
+   * Copies a key into the arena, unless its prefix already holds all of it.
+   *
+   * @return The key's offset in the arena.
+   */
+  private int store(byte[] key) {
+    if (key.length <= PREFIX_BYTES) {
+      return 0;
+    }
+
+    if (arena.length - arenaUsed < key.length) {
+      arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaUsed + key.length));
+    }
+
+    int offset = arenaUsed;
+    System.arraycopy(key, 0, arena, offset, key.length);
+    arenaUsed += key.length;
+    return offset;
+  }
+
+  /**
+   * Returns a copy of a node's key.
+   */
+  private byte[] keyOf(Node node) {
+    if (node.length > PREFIX_BYTES) {
+      return Arrays.copyOfRange(arena, node.offset, node.offset + node.length);
+    }
+
+    byte[] key = new byte[node.length];
+    for (int i = 0; i < node.length; i++) {
+      key[i] = (byte) (node.prefix >>> (Byte.SIZE * (PREFIX_BYTES - 1 - i)));
+    }
+    return key;
+  }
+
+  /**
+   * Copies the live keys into a fresh arena in key order, dropping deleted ones,
+   * so that neighbouring keys also sit next to each other in memory.
+   */
+  private void compactArena() {
+    byte[] compacted = new byte[Math.max(MIN_ARENA_BYTES, (arenaUsed - deadBytes) * 2)];
+    int used = 0;
+
+    for (Node node = root == nullNode ? nullNode : minimum(root); node != nullNode;
+            node = successor(node)) {
+      if (node.length > PREFIX_BYTES) {
+        System.arraycopy(arena, node.offset, compacted, used, node.length);
+        node.offset = used;
+        used += node.length;
+      }
+    }
+
+    arena = compacted;
+    arenaUsed = used;
+    deadBytes = 0;
+  }
+
+  /*
+   ---------------------Balancing Methods------------------------
+   */
+
+  private void insertFixUp(Node currentNode) {
+    while (currentNode.parent.red) {
+      Node parent = currentNode.parent;
+      Node grandparent = parent.parent;
+
+      if (parent == grandparent.leftChild) {
+        Node uncle = grandparent.rightChild;
+
+        if (uncle.red) {
+          parent.red = false;
+          uncle.red = false;
+          grandparent.red = true;
+          currentNode = grandparent;
+        } else {
+          if (currentNode == parent.rightChild) {
+            currentNode = parent;
+            leftRotate(currentNode);
+          }
+          currentNode.parent.red = false;
+          currentNode.parent.parent.red = true;
+          rightRotate(currentNode.parent.parent);
+        }
+      } else {
+        Node uncle = grandparent.leftChild;
+
+        if (uncle.red) {
+          parent.red = false;
+          uncle.red = false;
+          grandparent.red = true;
+          currentNode = grandparent;
+        } else {
+          if (currentNode == parent.leftChild) {
+            currentNode = parent;
+            rightRotate(currentNode);
+          }
+          currentNode.parent.red = false;
+          currentNode.parent.parent.red = true;
+          leftRotate(currentNode.parent.parent);
+        }
+      }
+    }
+    root.red = false;
+  }
+
+  private void deleteFixUp(Node nodeToBeFixed) {
+    while (nodeToBeFixed != root && !nodeToBeFixed.red) {
+      Node parent = nodeToBeFixed.parent;
+
+      if (nodeToBeFixed == parent.leftChild) {
+        Node sibling = parent.rightChild;
+
+        if (sibling.red) {
+          sibling.red = false;
+          parent.red = true;
+          leftRotate(parent);
+          sibling = parent.rightChild;
+        }
+
+        if (!sibling.leftChild.red && !sibling.rightChild.red) {
+          sibling.red = true;
+          nodeToBeFixed = parent;
+        } else {
+          if (!sibling.rightChild.red) {
+            sibling.leftChild.red = false;
+            sibling.red = true;
+            rightRotate(sibling);
+            sibling = parent.rightChild;
+          }
+          sibling.red = parent.red;
+          parent.red = false;
+          sibling.rightChild.red = false;
+          leftRotate(parent);
+          nodeToBeFixed = root;
+        }
+      } else {
+        Node sibling = parent.leftChild;
+
+        if (sibling.red) {
+          sibling.red = false;
+          parent.red = true;
+          rightRotate(parent);
+          sibling = parent.leftChild;
+        }
+
+        if (!sibling.rightChild.red && !sibling.leftChild.red) {
+          sibling.red = true;
+          nodeToBeFixed = parent;
+        } else {
+          if (!sibling.leftChild.red) {
+            sibling.rightChild.red = false;
+            sibling.red = true;
+            leftRotate(sibling);
+            sibling = parent.leftChild;
+          }
+          sibling.red = parent.red;
+          parent.red = false;
+          sibling.leftChild.red = false;
+          rightRotate(parent);
+          nodeToBeFixed = root;
+        }
+      }
+    }
+    nodeToBeFixed.red = false;
+  }
+
+  private void leftRotate(Node currentNode) {
+    Node currentRightChild = currentNode.rightChild;
+    currentNode.rightChild = currentRightChild.leftChild;
+
+    if (currentRightChild.leftChild != nullNode) {
+      currentRightChild.leftChild.parent = currentNode;
+    }
+    transplant(currentNode, currentRightChild);
+    currentRightChild.leftChild = currentNode;
+    currentNode.parent = currentRightChild;
+  }
+
+  private void rightRotate(Node currentNode) {
+    Node currentLeftChild = currentNode.leftChild;
+    currentNode.leftChild = currentLeftChild.rightChild;
+
+    if (currentLeftChild.rightChild != nullNode) {
+      currentLeftChild.rightChild.parent = currentNode;
+    }
+    transplant(currentNode, currentLeftChild);
+    currentLeftChild.rightChild = currentNode;
+    currentNode.parent = currentLeftChild;
+  }
+
+  /**
+   * Puts the new node where the old node hangs from its parent.
+   */
+  private void transplant(Node oldRoot, Node newRoot) {
+    if (oldRoot.parent == nullNode) {
+      root = newRoot;
+    } else if (oldRoot == oldRoot.parent.leftChild) {
+      oldRoot.parent.leftChild = newRoot;
+    } else {
+      oldRoot.parent.rightChild = newRoot;
+    }
+    newRoot.parent = oldRoot.parent;
+  }
+
+  /*
+   ---------------------Property Methods------------------------
+   */
+
+  /**
+   * Returns the number of keys.
+   *
+   * @return The key count.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the bytes currently taken in the arena, including those of deleted keys
+   * that have not been compacted away yet.
+   *
+   * @return The arena bytes in use.
+   */
+  public long getArenaBytes() {
+    return arenaUsed;
+  }
+
+  /**
+   * Returns the number of key comparisons so far.
+   *
+   * @return The comparison count.
+   */
+  public long getComparisons() {
+    return comparisons;
+  }
+
+  /**
+   * Returns the number of key comparisons that the inline prefixes could not decide
+   * and that read the arena.
+   *
+   * @return The arena comparison count.
+   */
+  public long getArenaComparisons() {
+    return arenaComparisons;
+  }
+
+  /**
+   * Checks the binary search tree, red and black height properties.
+   *
+   * @return true if the tree is a valid Red-Black Tree.
+   */
+  public boolean isRedBlackTree() {
+    if (root.red || nullNode.red) {
+      return false;
+    }
+
+    int count = 0;
+    byte[] previous = null;
+
+    for (Node node = root == nullNode ? nullNode : minimum(root); node != nullNode;
+            node = successor(node)) {
+      byte[] key = keyOf(node);
+
+      if (node.prefix != prefixOf(key)
+              || (previous != null && Arrays.compareUnsigned(previous, key) >= 0)) {
+        return false;
+      }
+      previous = key;
+      count++;
+    }
+    return count == size && blackHeight(root) >= 0;
+  }
+
+  /**
+   * Returns the black height of a subtree, or -1 if it breaks a Red-Black property.
+   */
+  private int blackHeight(Node node) {
+    if (node == nullNode) {
+      return 0;
+    }
+    if (node.red && (node.leftChild.red || node.rightChild.red)) {
+      return -1;
+    }
+
+    int leftHeight = blackHeight(node.leftChild);
+    int rightHeight = blackHeight(node.rightChild);
+
+    if (leftHeight < 0 || leftHeight != rightHeight) {
+      return -1;
+    }
+    return leftHeight + (node.red ? 0 : 1);
+  }
+}
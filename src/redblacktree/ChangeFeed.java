@@ -0,0 +1,173 @@
+package redblacktree;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Ships the changes between persistent tree versions to in-process followers as
+ * compact deltas.
+ *
+ * <p>A delta is a magic number, the key counts before and after, the number of
+ * changes, and then one unsigned varint per change in ascending key order: the
+ * distance to the previous changed key shifted left by one, with the low bit set
+ * for an added key and clear for a removed one. Clustered changes therefore cost
+ * one or two bytes each.
+ *
+ * <p>The publisher keeps the last published version and diffs each new version
+ * against it, so publishing costs time proportional to the changes. A follower
+ * starts from the version subscribe returns and applies every delta it receives
+ * in order.
+ * Author: Alex Matthes
+ */
+public class ChangeFeed {
+
+  private static final int MAGIC = 0x52424346; // "RBCF"
+  private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+  private final List<Consumer<ByteBuffer>> followers = new CopyOnWriteArrayList<>();
+  private PersistentRedBlackTree published;
+
+  /**
+   * Constructs a feed whose followers start from the given version.
+   *
+   * @param initial The version followers start from.
+   */
+  public ChangeFeed(PersistentRedBlackTree initial) {
+    this.published = initial;
+  }
+
+  /**
+   * Registers a follower for every delta published from now on.
+   *
+   * @param follower Receives each delta as a read-only buffer, on the publishing thread.
+   *
+   * @return The version the first delta applies to.
+   */
+  public synchronized PersistentRedBlackTree subscribe(Consumer<ByteBuffer> follower) {
+    followers.add(follower);
+    return published;
+  }
+
+  /**
+   * Encodes the changes since the last published version and delivers them to
+   * every follower.
+   *
+   * @param next The new version.
+   *
+   * @return The delta, as a read-only buffer.
+   */
+  public synchronized ByteBuffer publish(PersistentRedBlackTree next) {
+    ByteBuffer delta = encode(published, next);
+    published = next;
+
+    for (Consumer<ByteBuffer> follower : followers) {
+      follower.accept(delta.duplicate());
+    }
+    return delta;
+  }
+
+  /**
+   * Encodes the changes between two versions.
+   *
+   * @param older The version the delta applies to.
+   * @param newer The version the delta produces.
+   *
+   * @return The delta, as a read-only buffer.
+   */
+  public static ByteBuffer encode(PersistentRedBlackTree older, PersistentRedBlackTree newer) {
+    // Diff streams added and removed keys in one ascending order, so the
+    // distances are never negative.
+    long[][] buffer = {new long[16]};
+    int[] count = {0};
+    long[] previous = {Integer.MIN_VALUE};
+
+    PersistentRedBlackTree.diff(older, newer,
+            key -> buffer[0] = record(buffer[0], count, previous, key, true),
+            key -> buffer[0] = record(buffer[0], count, previous, key, false));
+
+    ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + count[0] * 5);
+    out.putInt(MAGIC);
+    out.putInt(older.size());
+    out.putInt(newer.size());
+    out.putInt(count[0]);
+
+    for (int i = 0; i < count[0]; i++) {
+      putVarLong(out, buffer[0][i]);
+    }
+    return out.flip().asReadOnlyBuffer();
+  }
+
+  /**
+   * Applies a delta to the version it was encoded against.
+   *
+   * @param base The version the delta applies to.
+   * @param delta The delta. Its position is advanced past the delta.
+   *
+   * @return The version the delta produces.
+   *
+   * @throws IllegalArgumentException If the buffer is not a delta or does not apply to base.
+   */
+  public static PersistentRedBlackTree apply(PersistentRedBlackTree base, ByteBuffer delta) {
+    if (delta.remaining() < HEADER_BYTES || delta.getInt() != MAGIC) {
+      throw new IllegalArgumentException("Not a change feed delta");
+    }
+
+    int baseSize = delta.getInt();
+    int targetSize = delta.getInt();
+    int count = delta.getInt();
+
+    if (baseSize != base.size()) {
+      throw new IllegalArgumentException("Delta applies to " + baseSize + " keys, base has "
+              + base.size());
+    }
+
+    PersistentRedBlackTree result = base;
+    long key = Integer.MIN_VALUE;
+
+    for (int i = 0; i < count; i++) {
+      long change = getVarLong(delta);
+      key += change >>> 1;
+      result = (change & 1) != 0 ? result.insert((int) key) : result.delete((int) key);
+    }
+
+    if (result.size() != targetSize) {
+      throw new IllegalArgumentException("Delta does not apply to this base");
+    }
+    return result;
+  }
+
+  private static long[] record(long[] changes, int[] count, long[] previous, int key,
+                               boolean added) {
+    if (count[0] == changes.length) {
+      changes = Arrays.copyOf(changes, count[0] * 2);
+    }
+    changes[count[0]++] = (key - previous[0]) << 1 | (added ? 1 : 0);
+    previous[0] = key;
+    return changes;
+  }
+
+  private static void putVarLong(ByteBuffer buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  private static long getVarLong(ByteBuffer buffer) {
+    long value = 0;
+    int shift = 0;
+    byte current;
+
+    do {
+      current = buffer.get();
+      value |= (long) (current & 0x7F) << shift;
+      shift += 7;
+    } while (current < 0);
+
+    return value;
+  }
+}
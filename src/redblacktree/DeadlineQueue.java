@@ -0,0 +1,126 @@
+package redblacktree;
+
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * A double-ended priority queue of int deadlines, backed by a Red-Black Tree.
+ * The tree caches its first and last nodes, so peeking at either end is O(1),
+ * and removing an end skips the search that delete would do. Adds start from
+ * the last node, which makes the common case of mostly increasing deadlines
+ * cheaper than an insert from the root. Duplicate deadlines are kept.
+ * Author: Alex Matthes
+ */
+public class DeadlineQueue {
+  private final RedBlackTree tree;
+
+  /**
+   * Constructs an empty queue.
+   */
+  public DeadlineQueue() {
+    this.tree = new RedBlackTree();
+  }
+
+  /**
+   * Adds a deadline.
+   *
+   * @param deadline The deadline to add.
+   */
+  public void add(int deadline) {
+    tree.insertNear(tree.last(), deadline);
+  }
+
+  /**
+   * Returns the earliest deadline without removing it.
+   *
+   * @return The smallest deadline.
+   *
+   * @throws NoSuchElementException If the queue is empty.
+   */
+  public int peekMin() {
+    return end(tree.first()).data;
+  }
+
+  /**
+   * Returns the latest deadline without removing it.
+   *
+   * @return The largest deadline.
+   *
+   * @throws NoSuchElementException If the queue is empty.
+   */
+  public int peekMax() {
+    return end(tree.last()).data;
+  }
+
+  /**
+   * Removes and returns the earliest deadline.
+   *
+   * @return The smallest deadline.
+   *
+   * @throws NoSuchElementException If the queue is empty.
+   */
+  public int pollMin() {
+    return remove(end(tree.first()));
+  }
+
+  /**
+   * Removes and returns the latest deadline.
+   *
+   * @return The largest deadline.
+   *
+   * @throws NoSuchElementException If the queue is empty.
+   */
+  public int pollMax() {
+    return remove(end(tree.last()));
+  }
+
+  /**
+   * Removes every deadline up to and including the given one and passes each to
+   * the action, earliest first.
+   *
+   * @param deadline The latest deadline to remove.
+   * @param action The action to apply to each removed deadline.
+   *
+   * @return The number of deadlines removed.
+   */
+  public int drainUntil(int deadline, IntConsumer action) {
+    int drained = 0;
+
+    while (tree.size() > 0 && tree.first().data <= deadline) {
+      action.accept(remove(tree.first()));
+      drained++;
+    }
+    return drained;
+  }
+
+  /**
+   * Returns the number of deadlines in the queue.
+   *
+   * @return The deadline count.
+   */
+  public int size() {
+    return tree.size();
+  }
+
+  /**
+   * Checks whether the queue is empty.
+   *
+   * @return true if the queue holds no deadlines.
+   */
+  public boolean isEmpty() {
+    return tree.size() == 0;
+  }
+
+  private RedBlackTree.Node end(RedBlackTree.Node node) {
+    if (tree.size() == 0) {
+      throw new NoSuchElementException("Queue is empty");
+    }
+    return node;
+  }
+
+  private int remove(RedBlackTree.Node node) {
+    int deadline = node.data;
+    tree.removeNode(node);
+    return deadline;
+  }
+}
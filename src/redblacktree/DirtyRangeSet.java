@@ -0,0 +1,112 @@
+package redblacktree;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing set of range ids, so recording a changed range costs no
+ * allocation. Ids are only added between drains, so linear probing needs no
+ * deletion. Each slot packs the id into the upper half of a long and a marker
+ * bit into the lower half, which leaves zero free to mean an empty slot.
+ * Author: Alex Matthes
+ */
+class DirtyRangeSet {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private long[] slots;
+  private int shift;
+  private int size;
+
+  // Updates tend to stay in one range for a while, so repeats skip the probe.
+  private int lastRange;
+  private boolean hasLast;
+
+  /**
+   * Constructs an empty set.
+   */
+  DirtyRangeSet() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Adds a range id if it is not yet in the set.
+   *
+   * @param range The range id.
+   */
+  void add(int range) {
+    if (hasLast && range == lastRange) {
+      return;
+    }
+    lastRange = range;
+    hasLast = true;
+
+    int mask = slots.length - 1;
+    long packed = pack(range);
+    int slot = slotOf(range);
+
+    for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+      if (slots[slot] == packed) {
+        return;
+      }
+    }
+
+    slots[slot] = packed;
+    // Keep the load factor at or below one half.
+    if (2 * ++size > slots.length) {
+      resize(slots.length * 2);
+    }
+  }
+
+  /**
+   * Returns the range ids in the set and empties it.
+   *
+   * @return The sorted range ids.
+   */
+  int[] drain() {
+    int[] ranges = new int[size];
+    int index = 0;
+
+    for (long slot : slots) {
+      if (slot != 0) {
+        ranges[index++] = (int) (slot >>> Integer.SIZE);
+      }
+    }
+
+    Arrays.fill(slots, 0);
+    size = 0;
+    hasLast = false;
+
+    Arrays.sort(ranges);
+    return ranges;
+  }
+
+  private int slotOf(int range) {
+    return (range * 0x9E3779B9) >>> shift;
+  }
+
+  private static long pack(int range) {
+    return ((long) range << Integer.SIZE) | 1;
+  }
+
+  private void resize(int capacity) {
+    long[] oldSlots = slots;
+    allocate(capacity);
+
+    int mask = capacity - 1;
+    for (long packed : oldSlots) {
+      if (packed != 0) {
+        int slot = slotOf((int) (packed >>> Integer.SIZE));
+
+        while (slots[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        slots[slot] = packed;
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    slots = new long[capacity];
+    shift = Integer.SIZE - Integer.numberOfTrailingZeros(capacity);
+  }
+}
@@ -0,0 +1,411 @@
+package redblacktree;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * An ordered set of int keys where every key expires at its own deadline.
+ *
+ * <p>Keys are kept in a hash-indexed Red-Black Tree for lookups and range scans.
+ * Deadlines are kept in a second tree of millisecond ticks, with the keys due at
+ * each tick in a bucket, so expiring everything that is due is a single
+ * removeBelow split of that tree instead of a search and delete per key. Ticks
+ * count from a base that moves forward every 2^30 ms (about 12 days); the tick
+ * tree is then rebuilt from the exact deadlines, and deadlines too far out for
+ * an int tick wait in the last tick until a rebuild brings them in range. A key
+ * whose deadline has passed is treated as absent by every read, even before it
+ * is removed.
+ *
+ * <p>Reads share a read lock, so lookups and range scans run in parallel. A lookup
+ * that finds an expired key only counts it; the key is removed by the next sweep,
+ * or by remove, which takes the write lock. An optional sweeper on a virtual
+ * thread expires keys in the background. Each sweep holds the write lock for a
+ * bounded number of keys and then lets other threads in, so a large backlog of
+ * expired keys never stalls readers and writers for long. All methods are
+ * thread-safe.
+ * Author: Alex Matthes
+ */
+public class ExpiringTreeSet implements AutoCloseable {
+  private static final long REBASE_AFTER_MILLIS = 1L << 30;
+
+  private final IndexedRedBlackTree keys = new IndexedRedBlackTree();
+  private final Map<Integer, Long> deadlineByKey = new HashMap<>();
+  private RedBlackTree deadlines = new RedBlackTree();
+  private final Map<Integer, List<Integer>> keysByDeadline = new HashMap<>();
+  private long tickBase;
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final LongSupplier clockMillis;
+  private final long epochMillis;
+  private Thread sweeper;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder expiredOnRead = new LongAdder();
+  private final LongAdder expiredBySweep = new LongAdder();
+
+  /**
+   * Constructs an empty set using the system clock.
+   */
+  public ExpiringTreeSet() {
+    this(() -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+  }
+
+  /**
+   * Constructs an empty set using the given clock.
+   *
+   * @param clockMillis The clock, in milliseconds; it must never go backwards.
+   */
+  public ExpiringTreeSet(LongSupplier clockMillis) {
+    this.clockMillis = clockMillis;
+    this.epochMillis = clockMillis.getAsLong();
+  }
+
+  /**
+   * Adds a key, or moves the deadline of a key that is already present.
+   *
+   * @param key The key to add.
+   * @param ttlMillis The time to live in milliseconds.
+   *
+   * @throws IllegalArgumentException If the ttl is negative.
+   */
+  public void put(int key, long ttlMillis) {
+    if (ttlMillis < 0) {
+      throw new IllegalArgumentException("ttl must not be negative: " + ttlMillis);
+    }
+
+    lock.writeLock().lock();
+    try {
+      long now = now();
+      rebaseIfDue(now);
+
+      long deadline = ttlMillis > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + ttlMillis;
+      Long previous = deadlineByKey.put(key, deadline);
+
+      // A key that moves deadline stays in its old bucket and is skipped when that expires.
+      if (previous == null) {
+        keys.insert(key);
+      }
+      file(key, tick(deadline));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Checks whether a key is present and not expired.
+   *
+   * @param key The key to look up.
+   *
+   * @return true if the key is live.
+   */
+  public boolean contains(int key) {
+    lock.readLock().lock();
+    try {
+      Long deadline = deadlineByKey.get(key);
+
+      if (deadline == null) {
+        misses.increment();
+        return false;
+      }
+      if (deadline <= now()) {
+        // Removing needs the write lock, so the key is left to the sweeper.
+        expiredOnRead.increment();
+        misses.increment();
+        return false;
+      }
+
+      hits.increment();
+      return true;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a live key. An expired key that has not been swept yet is removed
+   * as well, but still reported as absent.
+   *
+   * @param key The key to remove.
+   *
+   * @throws NoSuchElementException If the key is absent or has expired.
+   */
+  public void remove(int key) {
+    lock.writeLock().lock();
+    try {
+      Long deadline = deadlineByKey.get(key);
+
+      if (deadline == null) {
+        throw new NoSuchElementException("Key not found: " + key);
+      }
+      removeKey(key);
+
+      if (deadline <= now()) {
+        throw new NoSuchElementException("Key not found: " + key);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Passes every live key in the inclusive range [low, high] to the action, in
+   * ascending order. The action runs under the read lock, so it must not modify the set.
+   *
+   * @param low The lower bound, inclusive.
+   * @param high The upper bound, inclusive.
+   * @param action The action to apply to each live key.
+   */
+  public void range(int low, int high, IntConsumer action) {
+    lock.readLock().lock();
+    try {
+      long now = now();
+
+      keys.range(low, high, key -> {
+        if (deadlineByKey.get(key) > now) {
+          action.accept(key);
+        }
+      });
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of keys held, including expired keys not yet removed.
+   *
+   * @return The key count.
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return keys.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Removes up to the given number of expired keys.
+   *
+   * @param maxKeys The most keys to remove, counting stale entries of moved keys.
+   *
+   * @return The number of keys removed.
+   */
+  public int expire(int maxKeys) {
+    lock.writeLock().lock();
+    try {
+      long nowMillis = now();
+      rebaseIfDue(nowMillis);
+
+      int now = tick(nowMillis);
+      RedBlackTree.Node first = deadlines.first();
+
+      if (deadlines.size() == 0 || first.data > now) {
+        return 0;
+      }
+
+      int bound = now + 1;
+      int budget = Math.max(0, maxKeys);
+      List<Integer> partial = null;
+
+      // Stop the split at the first tick that would exceed the budget; that tick
+      // gives up only the keys that still fit and keeps the rest for the next sweep.
+      for (RedBlackTree.Node node = first; node != deadlines.getNullNode();
+           node = deadlines.successor(node)) {
+        if (node.data > now) {
+          break;
+        }
+        List<Integer> bucket = keysByDeadline.get(node.data);
+        if (bucket.size() > budget) {
+          bound = node.data;
+          partial = bucket.subList(bucket.size() - budget, bucket.size());
+          break;
+        }
+        budget -= bucket.size();
+      }
+
+      int[] removed = new int[1];
+      deadlines.removeBelow(bound, tick -> {
+        removed[0] += expireAll(keysByDeadline.remove(tick), tick);
+      });
+      if (partial != null) {
+        removed[0] += expireAll(partial, bound);
+        partial.clear();
+      }
+
+      expiredBySweep.add(removed[0]);
+      return removed[0];
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Starts a virtual thread that expires keys in the background. Each sweep
+   * removes at most maxKeysPerSweep keys under the write lock; sweeps repeat without
+   * waiting while expired keys remain, and otherwise run once per interval.
+   *
+   * @param intervalMillis The time between sweeps when nothing is left to expire.
+   * @param maxKeysPerSweep The most keys one sweep may remove while holding the lock.
+   *
+   * @throws IllegalArgumentException If the interval is negative or the budget is
+   *                                  below one.
+   * @throws IllegalStateException If a sweeper is already running.
+   */
+  public synchronized void startSweeper(long intervalMillis, int maxKeysPerSweep) {
+    if (intervalMillis < 0) {
+      throw new IllegalArgumentException("interval must not be negative: " + intervalMillis);
+    }
+    if (maxKeysPerSweep < 1) {
+      throw new IllegalArgumentException("maxKeysPerSweep must be positive: " + maxKeysPerSweep);
+    }
+    if (sweeper != null) {
+      throw new IllegalStateException("Sweeper already running");
+    }
+
+    sweeper = Thread.ofVirtual().name("expiring-tree-sweeper").start(() -> {
+      try {
+        while (!Thread.currentThread().isInterrupted()) {
+          if (expire(maxKeysPerSweep) < maxKeysPerSweep) {
+            Thread.sleep(intervalMillis);
+          }
+        }
+      } catch (InterruptedException e) {
+        // Stopped by close.
+      }
+    });
+  }
+
+  /**
+   * Stops the sweeper, if one is running, and waits for it to finish.
+   */
+  @Override
+  public synchronized void close() {
+    if (sweeper == null) {
+      return;
+    }
+
+    sweeper.interrupt();
+    try {
+      sweeper.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    sweeper = null;
+  }
+
+  /**
+   * Returns the number of lookups that found a live key.
+   *
+   * @return The hit count.
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of lookups that found no key or an expired one.
+   *
+   * @return The miss count.
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the number of lookups that found an expired key not yet removed.
+   *
+   * @return The count of expired keys seen on read.
+   */
+  public long getExpiredOnRead() {
+    return expiredOnRead.sum();
+  }
+
+  /**
+   * Returns the number of expired keys removed by expire, including sweeper runs.
+   *
+   * @return The count of keys expired in bulk.
+   */
+  public long getExpiredBySweep() {
+    return expiredBySweep.sum();
+  }
+
+  /**
+   * Removes the keys of a bucket that are still due at its tick, skipping entries
+   * left behind by keys whose deadline moved.
+   *
+   * @return The number of keys removed.
+   */
+  private int expireAll(List<Integer> bucket, int tick) {
+    int removed = 0;
+
+    for (int key : bucket) {
+      Long deadline = deadlineByKey.get(key);
+
+      if (deadline != null && tick(deadline) == tick) {
+        removeKey(key);
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  private void removeKey(int key) {
+    deadlineByKey.remove(key);
+    keys.delete(key);
+  }
+
+  /**
+   * Adds a key to the bucket of a tick, creating the bucket if needed.
+   */
+  private void file(int key, int tick) {
+    List<Integer> bucket = keysByDeadline.get(tick);
+
+    if (bucket == null) {
+      bucket = new ArrayList<>();
+      keysByDeadline.put(tick, bucket);
+      deadlines.insert(tick);
+    }
+    bucket.add(key);
+  }
+
+  /**
+   * Moves the tick base up to the current time once it lags by REBASE_AFTER_MILLIS,
+   * rebuilding the buckets from the exact deadlines. This keeps the current tick far
+   * below the last one, which is where deadlines beyond the int range wait.
+   */
+  private void rebaseIfDue(long now) {
+    if (now - tickBase <= REBASE_AFTER_MILLIS) {
+      return;
+    }
+
+    tickBase = now;
+    deadlines = new RedBlackTree();
+    keysByDeadline.clear();
+
+    for (Map.Entry<Integer, Long> entry : deadlineByKey.entrySet()) {
+      file(entry.getKey(), tick(entry.getValue()));
+    }
+  }
+
+  /**
+   * Converts a deadline to a tick, clamping it to the int range.
+   */
+  private int tick(long deadline) {
+    long tick = deadline - tickBase;
+    return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, tick));
+  }
+
+  private long now() {
+    return clockMillis.getAsLong() - epochMillis;
+  }
+}
@@ -0,0 +1,135 @@
+package redblacktree;
+
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable, read-optimized copy of a Red-Black Tree's keys.
+ * Lookups use the Eytzinger (breadth-first) layout of an implicit binary tree
+ * in a flat int array: the first levels share a handful of cache lines, and the
+ * descent is branchless, so it avoids the pointer chasing of searchHelper.
+ * A sorted copy of the keys serves rank and range queries.
+ * Author: Alex Matthes
+ */
+public final class FrozenTree {
+  private final int[] sorted;
+
+  // 1-based: the children of slot k are 2k and 2k + 1. Slot 0 is unused.
+  private final int[] eytzinger;
+
+  /**
+   * Builds the frozen layouts from keys in ascending order.
+   *
+   * @param sorted The keys in ascending order. The array is kept, not copied.
+   */
+  FrozenTree(int[] sorted) {
+    this.sorted = sorted;
+    this.eytzinger = new int[sorted.length + 1];
+    fill(1, 0);
+  }
+
+  /**
+   * Places the sorted keys into the Eytzinger array by an in-order walk of the implicit tree.
+   *
+   * @param slot The implicit tree slot to fill.
+   * @param next The index of the next sorted key to place.
+   *
+   * @return The index of the next sorted key after this subtree is filled.
+   */
+  private int fill(int slot, int next) {
+    if (slot < eytzinger.length) {
+      next = fill(2 * slot, next);
+      eytzinger[slot] = sorted[next++];
+      next = fill(2 * slot + 1, next);
+    }
+    return next;
+  }
+
+  /**
+   * Returns the keys in ascending order. The array is shared, not copied.
+   *
+   * @return The sorted keys.
+   */
+  int[] sortedKeys() {
+    return sorted;
+  }
+
+  /**
+   * Returns the Eytzinger layout, with slot 0 unused. The array is shared, not copied.
+   *
+   * @return The layout.
+   */
+  int[] eytzingerLayout() {
+    return eytzinger;
+  }
+
+  /**
+   * Returns the number of keys.
+   *
+   * @return The key count.
+   */
+  public int size() {
+    return sorted.length;
+  }
+
+  /**
+   * Searches for a specific key.
+   *
+   * @param key The data key to search for.
+   *
+   * @return true if the key is found, false otherwise.
+   */
+  public boolean search(int key) {
+    int[] layout = eytzinger;
+    int n = layout.length - 1;
+    int slot = 1;
+
+    // Always descend to the bottom; the comparison feeds an index, not a branch.
+    while (slot <= n) {
+      slot = 2 * slot + (layout[slot] < key ? 1 : 0);
+    }
+
+    // Drop the trailing right turns plus one left turn to recover the lower bound.
+    slot >>>= Integer.numberOfTrailingZeros(~slot) + 1;
+
+    return slot != 0 && layout[slot] == key;
+  }
+
+  /**
+   * Returns the number of keys strictly smaller than the given key.
+   *
+   * @param key The key to rank.
+   *
+   * @return The rank of the key.
+   */
+  public int rank(int key) {
+    int[] keys = sorted;
+
+    if (keys.length == 0) {
+      return 0;
+    }
+
+    int base = 0;
+    int length = keys.length;
+
+    while (length > 1) {
+      int half = length >>> 1;
+      base += keys[base + half] < key ? half : 0;
+      length -= half;
+    }
+
+    return base + (keys[base] < key ? 1 : 0);
+  }
+
+  /**
+   * Visits every key between low and high (both inclusive) in ascending order.
+   *
+   * @param low The smallest key to visit.
+   * @param high The largest key to visit.
+   * @param action The callback receiving each key.
+   */
+  public void range(int low, int high, IntConsumer action) {
+    for (int i = rank(low); i < sorted.length && sorted[i] <= high; i++) {
+      action.accept(sorted[i]);
+    }
+  }
+}
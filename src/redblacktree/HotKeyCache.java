@@ -0,0 +1,128 @@
+package redblacktree;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A small table of keys known to be present in a tree, so searches for the few
+ * keys that get most of the traffic return after one cache line instead of a
+ * full descent.
+ *
+ * <p>The table is two-way set associative: a key may sit in either slot of the
+ * pair its hash selects. Each slot packs a key and a small hit counter into one
+ * long. Hits raise the counter up to a cap; a key found in the tree but not here
+ * lowers the weaker counter of its pair and takes over the slot once that counter
+ * reaches zero. Keys that keep getting hit therefore stay, and a burst of cold
+ * keys cannot flush them. Once a counter is at its cap, hits no longer write.
+ *
+ * <p>Slots are read and written atomically but without locks, so readers sharing
+ * a tree under a read lock may all use the cache. A racing update can lose an
+ * admission or a count, which only affects what is cached. The owner must call
+ * invalidate for every removed key while it has the tree to itself, so a cached
+ * key is always a present key.
+ * Author: Alex Matthes
+ */
+final class HotKeyCache {
+
+  private static final int MAX_HITS = 15;
+
+  private final AtomicLongArray slots;
+  private final int shift;
+
+  /**
+   * Constructs an empty cache.
+   *
+   * @param capacity The number of keys to hold, rounded up to a power of two.
+   */
+  HotKeyCache(int capacity) {
+    int rounded = Math.max(4, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+
+    this.slots = new AtomicLongArray(rounded);
+    // The hash picks a pair of slots, so it needs one bit less than the index.
+    this.shift = Integer.SIZE - Integer.numberOfTrailingZeros(rounded) + 1;
+  }
+
+  /**
+   * Checks whether a key is cached, counting a hit if it is.
+   *
+   * @param key The key to look up.
+   *
+   * @return true if the key is cached and therefore present.
+   */
+  boolean contains(int key) {
+    int base = pair(key);
+
+    for (int index = base; index < base + 2; index++) {
+      long slot = slots.getOpaque(index);
+
+      if (hits(slot) != 0 && key(slot) == key) {
+        if (hits(slot) < MAX_HITS) {
+          slots.setOpaque(index, pack(key, hits(slot) + 1));
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Offers a key that a search found in the tree.
+   *
+   * @param key The present key.
+   */
+  void admit(int key) {
+    int base = pair(key);
+    long first = slots.getOpaque(base);
+    long second = slots.getOpaque(base + 1);
+    int index = hits(first) <= hits(second) ? base : base + 1;
+    int hits = Math.min(hits(first), hits(second));
+
+    if (hits <= 1) {
+      slots.setOpaque(index, pack(key, 1));
+    } else {
+      slots.setOpaque(index, pack(key(slots.getOpaque(index)), hits - 1));
+    }
+  }
+
+  /**
+   * Removes a key that is being deleted from the tree.
+   *
+   * @param key The key.
+   */
+  void invalidate(int key) {
+    int base = pair(key);
+
+    for (int index = base; index < base + 2; index++) {
+      long slot = slots.getOpaque(index);
+
+      if (hits(slot) != 0 && key(slot) == key) {
+        slots.setOpaque(index, 0);
+      }
+    }
+  }
+
+  /**
+   * Returns the memory used by the slots.
+   *
+   * @return The size in bytes.
+   */
+  long memoryBytes() {
+    return (long) slots.length() * Long.BYTES;
+  }
+
+  private int pair(int key) {
+    // Fibonacci hashing spreads runs of adjacent keys over the pairs.
+    return ((key * 0x9E3779B9) >>> shift) << 1;
+  }
+
+  private static long pack(int key, int hits) {
+    return ((long) key << Integer.SIZE) | hits;
+  }
+
+  private static int key(long slot) {
+    return (int) (slot >>> Integer.SIZE);
+  }
+
+  private static int hits(long slot) {
+    return (int) slot;
+  }
+}
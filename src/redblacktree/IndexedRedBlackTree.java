@@ -0,0 +1,111 @@
+package redblacktree;
+
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * Pairs a Red-Black Tree with a hash index from keys to tree nodes.
+ * Point lookups and deletes go through the index, so they touch one or two
+ * cache lines instead of descending O(log n) nodes; deletes then hand the node
+ * straight to the tree's rebalancing. Range queries still walk the tree.
+ * Like the B+ tree, inserting a key that is already present has no effect.
+ * Author: Alex Matthes
+ */
+public class IndexedRedBlackTree {
+  private final RedBlackTree tree;
+  private final IntNodeIndex index;
+
+  /**
+   * Constructs an empty indexed tree.
+   */
+  public IndexedRedBlackTree() {
+    this.tree = new RedBlackTree();
+    this.index = new IntNodeIndex();
+  }
+
+  /**
+   * Inserts a new item. Does nothing if the item is already present.
+   *
+   * @param item The data key to be inserted.
+   */
+  public void insert(int item) {
+    if (index.get(item) == null) {
+      index.put(item, tree.insertNode(item));
+    }
+  }
+
+  /**
+   * Deletes a key.
+   *
+   * @param key The data key to delete.
+   *
+   * @throws NoSuchElementException If the given key is not present.
+   */
+  public void delete(int key) {
+    // Removing from the index finds the node and unindexes it in a single probe.
+    RedBlackTree.Node node = index.remove(key);
+
+    if (node == null) {
+      throw new NoSuchElementException("Key not found: " + key);
+    }
+    tree.removeNode(node);
+  }
+
+  /**
+   * Checks whether a key is present, without touching the tree.
+   *
+   * @param key The key to search for.
+   *
+   * @return true if the key is present, false otherwise.
+   */
+  public boolean search(int key) {
+    return index.get(key) != null;
+  }
+
+  /**
+   * Passes every key in the inclusive range [low, high] to the action, in ascending order.
+   *
+   * @param low The lower bound, inclusive.
+   * @param high The upper bound, inclusive.
+   * @param action The action to apply to each key.
+   */
+  public void range(int low, int high, IntConsumer action) {
+    tree.range(low, high, action);
+  }
+
+  /**
+   * Returns the number of keys.
+   *
+   * @return The key count.
+   */
+  public int size() {
+    return tree.size();
+  }
+
+  /**
+   * Returns the height of the underlying tree.
+   *
+   * @return The height; 0 for an empty tree.
+   */
+  public int height() {
+    return tree.height();
+  }
+
+  /**
+   * Checks the Red-Black properties of the underlying tree.
+   *
+   * @return true if the tree is a valid Red-Black Tree.
+   */
+  public boolean isRedBlackTree() {
+    return tree.isRedBlackTree();
+  }
+
+  /**
+   * Returns the memory used by the hash index, in addition to the tree itself.
+   *
+   * @return The approximate index size in bytes.
+   */
+  public long indexMemoryBytes() {
+    return index.memoryBytes();
+  }
+}
@@ -0,0 +1,147 @@
+package redblacktree;
+
+/**
+ * An open-addressing hash map from int keys to tree nodes.
+ * Uses linear probing with backward-shift deletion, so there are no tombstones
+ * and lookups stay short after heavy delete churn.
+ * Author: Alex Matthes
+ */
+class IntNodeIndex {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int[] keys;
+  private RedBlackTree.Node[] nodes;
+  private int shift;
+  private int size;
+
+  /**
+   * Constructs an empty index.
+   */
+  IntNodeIndex() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Returns the node stored for a key.
+   *
+   * @param key The key to look up.
+   *
+   * @return The node, or null if the key is not in the index.
+   */
+  RedBlackTree.Node get(int key) {
+    int mask = nodes.length - 1;
+
+    for (int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+      RedBlackTree.Node node = nodes[slot];
+
+      if (node == null || keys[slot] == key) {
+        return node;
+      }
+    }
+  }
+
+  /**
+   * Stores the node for a key that is not yet in the index.
+   *
+   * @param key The key.
+   * @param node The node holding the key.
+   */
+  void put(int key, RedBlackTree.Node node) {
+    // Keep the load factor at or below one half.
+    if (2 * (size + 1) > nodes.length) {
+      resize(nodes.length * 2);
+    }
+
+    int mask = nodes.length - 1;
+    int slot = slotOf(key);
+
+    while (nodes[slot] != null) {
+      slot = (slot + 1) & mask;
+    }
+
+    keys[slot] = key;
+    nodes[slot] = node;
+    size++;
+  }
+
+  /**
+   * Removes a key and returns its node.
+   *
+   * @param key The key to remove.
+   *
+   * @return The removed node, or null if the key was not in the index.
+   */
+  RedBlackTree.Node remove(int key) {
+    int mask = nodes.length - 1;
+    int slot = slotOf(key);
+
+    while (nodes[slot] != null && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+
+    RedBlackTree.Node removed = nodes[slot];
+    if (removed == null) {
+      return null;
+    }
+
+    // Shift later entries of the probe run back so no gap breaks a lookup.
+    int gap = slot;
+    for (int next = (gap + 1) & mask; nodes[next] != null; next = (next + 1) & mask) {
+      int home = slotOf(keys[next]);
+
+      // Move the entry if its home slot is not cyclically within (gap, next].
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        nodes[gap] = nodes[next];
+        gap = next;
+      }
+    }
+
+    nodes[gap] = null;
+    size--;
+    return removed;
+  }
+
+  /**
+   * Returns the number of keys in the index.
+   *
+   * @return The key count.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the memory used by the slot arrays, excluding the nodes themselves.
+   *
+   * @return The approximate size in bytes, assuming compressed references.
+   */
+  long memoryBytes() {
+    return (long) nodes.length * (Integer.BYTES + Integer.BYTES);
+  }
+
+  private int slotOf(int key) {
+    return (key * 0x9E3779B9) >>> shift;
+  }
+
+  private void resize(int capacity) {
+    int[] oldKeys = keys;
+    RedBlackTree.Node[] oldNodes = nodes;
+
+    allocate(capacity);
+    size = 0;
+
+    for (int i = 0; i < oldNodes.length; i++) {
+      if (oldNodes[i] != null) {
+        put(oldKeys[i], oldNodes[i]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    nodes = new RedBlackTree.Node[capacity];
+    shift = Integer.SIZE - Integer.numberOfTrailingZeros(capacity);
+  }
+}
@@ -0,0 +1,510 @@
+package redblacktree;
+
+import java.util.Arrays;
+
+/**
+ * An array-backed Red-Black Tree over a multiset of ints, augmented with subtree
+ * sizes so that rank and select run in O(log n).
+ *
+ * <p>Equal values share one node with a count, and each node's size is the total
+ * count of its subtree. Nodes are indexes into parallel int arrays rather than
+ * objects, which costs about 24 bytes per distinct value instead of a Node's
+ * header, pointers and padding, and lets many small trees live side by side.
+ * Index 0 is the black null sentinel. Freed nodes are chained through the left
+ * array and reused. Not thread-safe.
+ * Author: Alex Matthes
+ */
+final class OrderStatisticTree {
+
+  private static final int NIL = 0;
+
+  private int[] keys;
+  private int[] counts;
+  private int[] sizes;
+  private int[] left;
+  private int[] right;
+  private int[] parent;
+  private boolean[] red;
+
+  private int root = NIL;
+  private int used = 1; // Index 0 is the sentinel.
+  private int freeList = NIL;
+
+  /**
+   * Constructs an empty tree with room for the given number of distinct values.
+   * The arrays grow when more are needed.
+   *
+   * @param initialCapacity The expected number of distinct values.
+   */
+  OrderStatisticTree(int initialCapacity) {
+    allocate(Math.max(2, initialCapacity + 1));
+  }
+
+  /**
+   * Returns the number of values, counting duplicates.
+   *
+   * @return The total count.
+   */
+  int size() {
+    return sizes[root];
+  }
+
+  /**
+   * Adds one occurrence of a value.
+   *
+   * @param value The value to add.
+   */
+  void insert(int value) {
+    int current = root;
+    int above = NIL;
+
+    while (current != NIL) {
+      sizes[current]++;
+
+      if (value == keys[current]) {
+        counts[current]++;
+        return;
+      }
+      above = current;
+      current = value < keys[current] ? left[current] : right[current];
+    }
+
+    int node = newNode(value);
+    parent[node] = above;
+
+    if (above == NIL) {
+      root = node;
+    } else if (value < keys[above]) {
+      left[above] = node;
+    } else {
+      right[above] = node;
+    }
+    insertFixUp(node);
+  }
+
+  /**
+   * Removes one occurrence of a value.
+   *
+   * @param value The value to remove.
+   *
+   * @return false if the value was not present.
+   */
+  boolean remove(int value) {
+    int node = root;
+
+    while (node != NIL && keys[node] != value) {
+      node = value < keys[node] ? left[node] : right[node];
+    }
+    if (node == NIL) {
+      return false;
+    }
+
+    if (counts[node] > 1) {
+      counts[node]--;
+      subtractUpwards(node, NIL, 1);
+      return true;
+    }
+
+    int spliced = node;
+
+    if (left[node] != NIL && right[node] != NIL) {
+      // Move the successor's payload here and splice the successor out instead.
+      spliced = right[node];
+      while (left[spliced] != NIL) {
+        spliced = left[spliced];
+      }
+
+      // Nodes between the two lose the successor's count; from here up, the one
+      // removed occurrence.
+      subtractUpwards(parent[spliced], node, counts[spliced]);
+      keys[node] = keys[spliced];
+      counts[node] = counts[spliced];
+      sizes[node] -= 1;
+      subtractUpwards(parent[node], NIL, 1);
+    } else {
+      subtractUpwards(parent[node], NIL, 1);
+    }
+
+    int child = left[spliced] != NIL ? left[spliced] : right[spliced];
+    parent[child] = parent[spliced];
+
+    if (parent[spliced] == NIL) {
+      root = child;
+    } else if (spliced == left[parent[spliced]]) {
+      left[parent[spliced]] = child;
+    } else {
+      right[parent[spliced]] = child;
+    }
+
+    if (!red[spliced]) {
+      deleteFixUp(child);
+    }
+    freeNode(spliced);
+    return true;
+  }
+
+  /**
+   * Returns the value at a zero-based position in ascending order, counting duplicates.
+   *
+   * @param index The position, from 0 to size() - 1.
+   *
+   * @return The value at that position.
+   */
+  int select(int index) {
+    int node = root;
+
+    while (true) {
+      int below = sizes[left[node]];
+
+      if (index < below) {
+        node = left[node];
+      } else if (index < below + counts[node]) {
+        return keys[node];
+      } else {
+        index -= below + counts[node];
+        node = right[node];
+      }
+    }
+  }
+
+  /**
+   * Returns the number of values strictly smaller than the given value.
+   *
+   * @param value The value to rank.
+   *
+   * @return The count of smaller values.
+   */
+  int rank(int value) {
+    int node = root;
+    int rank = 0;
+
+    while (node != NIL) {
+      if (value <= keys[node]) {
+        if (value == keys[node]) {
+          return rank + sizes[left[node]];
+        }
+        node = left[node];
+      } else {
+        rank += sizes[left[node]] + counts[node];
+        node = right[node];
+      }
+    }
+    return rank;
+  }
+
+  /**
+   * Replaces the contents with sorted values in O(n), building a balanced tree
+   * whose deepest level is red, as RedBlackTree.fromSorted does.
+   *
+   * @param sorted The values in ascending order, duplicates allowed.
+   * @param count The number of values to use.
+   */
+  void rebuild(int[] sorted, int count) {
+    int distinct = 0;
+
+    for (int i = 0; i < count; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        distinct++;
+      }
+    }
+
+    if (keys.length < distinct + 1) {
+      allocate(distinct + 1);
+    }
+    root = NIL;
+    used = 1;
+    freeList = NIL;
+
+    // Collapse runs of equal values into one value and its count.
+    int[] values = new int[distinct];
+    int[] runs = new int[distinct];
+    int next = -1;
+
+    for (int i = 0; i < count; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        values[++next] = sorted[i];
+      }
+      runs[next]++;
+    }
+
+    int redLevel = 31 - Integer.numberOfLeadingZeros(distinct + 1);
+    root = build(values, runs, 0, distinct - 1, 0, redLevel);
+    parent[root] = NIL;
+  }
+
+  /**
+   * Returns the bytes held by the arrays, for sizing many windows.
+   *
+   * @return The approximate memory footprint.
+   */
+  long memoryBytes() {
+    return (long) keys.length * (6 * Integer.BYTES + 1);
+  }
+
+  /**
+   * Checks the binary search tree, red, black height and size properties.
+   *
+   * @return true if the tree is valid.
+   */
+  boolean isValid() {
+    return !red[root] && validate(root, Long.MIN_VALUE, Long.MAX_VALUE) >= 0;
+  }
+
+  private int validate(int node, long low, long high) {
+    if (node == NIL) {
+      return 0;
+    }
+    if (keys[node] <= low || keys[node] >= high || counts[node] < 1) {
+      return -1;
+    }
+    if (red[node] && (red[left[node]] || red[right[node]])) {
+      return -1;
+    }
+    if (sizes[node] != sizes[left[node]] + counts[node] + sizes[right[node]]) {
+      return -1;
+    }
+
+    int leftHeight = validate(left[node], low, keys[node]);
+    int rightHeight = validate(right[node], keys[node], high);
+
+    if (leftHeight < 0 || leftHeight != rightHeight) {
+      return -1;
+    }
+    return leftHeight + (red[node] ? 0 : 1);
+  }
+
+  /*
+   ---------------------Balancing Methods------------------------
+   */
+
+  private int build(int[] values, int[] runs, int low, int high, int level, int redLevel) {
+    if (low > high) {
+      return NIL;
+    }
+
+    int middle = (low + high) >>> 1;
+    int node = newNode(values[middle]);
+    counts[node] = runs[middle];
+    red[node] = level == redLevel;
+
+    left[node] = build(values, runs, low, middle - 1, level + 1, redLevel);
+    right[node] = build(values, runs, middle + 1, high, level + 1, redLevel);
+    parent[left[node]] = node;
+    parent[right[node]] = node;
+    sizes[node] = sizes[left[node]] + counts[node] + sizes[right[node]];
+    return node;
+  }
+
+  private void insertFixUp(int node) {
+    while (red[parent[node]]) {
+      int above = parent[node];
+      int grand = parent[above];
+
+      if (above == left[grand]) {
+        int uncle = right[grand];
+
+        if (red[uncle]) {
+          red[above] = false;
+          red[uncle] = false;
+          red[grand] = true;
+          node = grand;
+        } else {
+          if (node == right[above]) {
+            node = above;
+            rotateLeft(node);
+            above = parent[node];
+          }
+          red[above] = false;
+          red[grand] = true;
+          rotateRight(grand);
+        }
+      } else {
+        int uncle = left[grand];
+
+        if (red[uncle]) {
+          red[above] = false;
+          red[uncle] = false;
+          red[grand] = true;
+          node = grand;
+        } else {
+          if (node == left[above]) {
+            node = above;
+            rotateRight(node);
+            above = parent[node];
+          }
+          red[above] = false;
+          red[grand] = true;
+          rotateLeft(grand);
+        }
+      }
+    }
+    red[root] = false;
+  }
+
+  private void deleteFixUp(int node) {
+    while (node != root && !red[node]) {
+      int above = parent[node];
+
+      if (node == left[above]) {
+        int sibling = right[above];
+
+        if (red[sibling]) {
+          red[sibling] = false;
+          red[above] = true;
+          rotateLeft(above);
+          sibling = right[above];
+        }
+        if (!red[left[sibling]] && !red[right[sibling]]) {
+          red[sibling] = true;
+          node = above;
+        } else {
+          if (!red[right[sibling]]) {
+            red[left[sibling]] = false;
+            red[sibling] = true;
+            rotateRight(sibling);
+            sibling = right[above];
+          }
+          red[sibling] = red[above];
+          red[above] = false;
+          red[right[sibling]] = false;
+          rotateLeft(above);
+          node = root;
+        }
+      } else {
+        int sibling = left[above];
+
+        if (red[sibling]) {
+          red[sibling] = false;
+          red[above] = true;
+          rotateRight(above);
+          sibling = left[above];
+        }
+        if (!red[left[sibling]] && !red[right[sibling]]) {
+          red[sibling] = true;
+          node = above;
+        } else {
+          if (!red[left[sibling]]) {
+            red[right[sibling]] = false;
+            red[sibling] = true;
+            rotateLeft(sibling);
+            sibling = left[above];
+          }
+          red[sibling] = red[above];
+          red[above] = false;
+          red[left[sibling]] = false;
+          rotateRight(above);
+          node = root;
+        }
+      }
+    }
+    red[node] = false;
+  }
+
+  private void rotateLeft(int node) {
+    int pivot = right[node];
+
+    right[node] = left[pivot];
+    if (left[pivot] != NIL) {
+      parent[left[pivot]] = node;
+    }
+    replaceChild(node, pivot);
+    left[pivot] = node;
+    parent[node] = pivot;
+
+    sizes[pivot] = sizes[node];
+    sizes[node] = sizes[left[node]] + counts[node] + sizes[right[node]];
+  }
+
+  private void rotateRight(int node) {
+    int pivot = left[node];
+
+    left[node] = right[pivot];
+    if (right[pivot] != NIL) {
+      parent[right[pivot]] = node;
+    }
+    replaceChild(node, pivot);
+    right[pivot] = node;
+    parent[node] = pivot;
+
+    sizes[pivot] = sizes[node];
+    sizes[node] = sizes[left[node]] + counts[node] + sizes[right[node]];
+  }
+
+  /**
+   * Puts the pivot where the node hangs from its parent.
+   */
+  private void replaceChild(int node, int pivot) {
+    int above = parent[node];
+    parent[pivot] = above;
+
+    if (above == NIL) {
+      root = pivot;
+    } else if (node == left[above]) {
+      left[above] = pivot;
+    } else {
+      right[above] = pivot;
+    }
+  }
+
+  /*
+   ---------------------Storage Methods------------------------
+   */
+
+  /**
+   * Subtracts an amount from the sizes of a node and its ancestors, stopping below the limit.
+   */
+  private void subtractUpwards(int node, int limit, int amount) {
+    while (node != limit) {
+      sizes[node] -= amount;
+      node = parent[node];
+    }
+  }
+
+  private int newNode(int value) {
+    int node;
+
+    if (freeList != NIL) {
+      node = freeList;
+      freeList = left[node];
+    } else {
+      if (used == keys.length) {
+        allocate(keys.length * 2);
+      }
+      node = used++;
+    }
+
+    keys[node] = value;
+    counts[node] = 1;
+    sizes[node] = 1;
+    left[node] = NIL;
+    right[node] = NIL;
+    red[node] = true;
+    return node;
+  }
+
+  private void freeNode(int node) {
+    left[node] = freeList;
+    freeList = node;
+  }
+
+  private void allocate(int capacity) {
+    if (keys == null) {
+      keys = new int[capacity];
+      counts = new int[capacity];
+      sizes = new int[capacity];
+      left = new int[capacity];
+      right = new int[capacity];
+      parent = new int[capacity];
+      red = new boolean[capacity];
+      return;
+    }
+
+    keys = Arrays.copyOf(keys, capacity);
+    counts = Arrays.copyOf(counts, capacity);
+    sizes = Arrays.copyOf(sizes, capacity);
+    left = Arrays.copyOf(left, capacity);
+    right = Arrays.copyOf(right, capacity);
+    parent = Arrays.copyOf(parent, capacity);
+    red = Arrays.copyOf(red, capacity);
+  }
+}
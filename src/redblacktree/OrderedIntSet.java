@@ -0,0 +1,65 @@
+package redblacktree;
+
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * The operations shared by the ordered int trees, so that harnesses and callers
+ * can pick a balancing engine per workload without depending on its class.
+ *
+ * <p>The binary trees keep duplicate keys, as RedBlackTree does: inserting a key
+ * that is already present adds another copy, and deleting it removes one copy.
+ * BPlusTree ignores duplicate inserts instead.
+ * Author: Alex Matthes
+ */
+public interface OrderedIntSet {
+
+  /**
+   * Inserts a key.
+   *
+   * @param item The key to insert.
+   */
+  void insert(int item);
+
+  /**
+   * Deletes one copy of a key.
+   *
+   * @param key The key to delete.
+   *
+   * @throws NoSuchElementException If the key is not present.
+   */
+  void delete(int key);
+
+  /**
+   * Checks whether a key is present.
+   *
+   * @param key The key to search for.
+   *
+   * @return true if the key is present, false otherwise.
+   */
+  boolean search(int key);
+
+  /**
+   * Visits every key between low and high (both inclusive) in ascending order,
+   * once per copy of a duplicate key.
+   *
+   * @param low The smallest key to visit.
+   * @param high The largest key to visit.
+   * @param action The callback receiving each key.
+   */
+  void range(int low, int high, IntConsumer action);
+
+  /**
+   * Returns the number of keys, counting any duplicates.
+   *
+   * @return The key count.
+   */
+  int size();
+
+  /**
+   * Returns the height of the tree, counting nodes on the longest root-to-leaf path.
+   *
+   * @return The height, or 0 if the tree is empty.
+   */
+  int height();
+}
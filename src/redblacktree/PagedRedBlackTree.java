@@ -0,0 +1,762 @@
+package redblacktree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements a Red-Black Tree whose nodes live in fixed-size pages of a file,
+ * for key sets larger than the memory available to the JVM.
+ *
+ * <p>A node is a 16-byte record: key, left child, right child, and parent with
+ * the color in its top bit. Nodes are addressed by id, and node id n sits in
+ * page 1 + n / 256; page 0 holds the header. Id 0 is the null node, which is
+ * all zeros and therefore black.
+ *
+ * <p>Pages are cached in a buffer pool of a fixed number of frames, replaced with
+ * the CLOCK algorithm. Modified pages are written back over the FileChannel when
+ * they are evicted, on flush, and on close. The insert, delete and rotation logic
+ * is the same as RedBlackTree's, reading and writing nodes through the pool.
+ * Duplicate keys are kept, as in RedBlackTree. Not thread-safe.
+ * Author: Alex Matthes
+ */
+public class PagedRedBlackTree implements Closeable {
+
+  static final int PAGE_SIZE = 4096;
+  private static final int NODE_BYTES = 16;
+  private static final int NODES_PER_PAGE = PAGE_SIZE / NODE_BYTES;
+  private static final int MAGIC = 0x52425047; // "RBPG"
+
+  private static final int NIL = 0;
+  private static final int RED_BIT = 0x80000000;
+
+  // Field offsets within a node record.
+  private static final int KEY = 0;
+  private static final int LEFT = 4;
+  private static final int RIGHT = 8;
+  private static final int PARENT = 12;
+
+  private final FileChannel channel;
+
+  private final ByteBuffer[] frames;
+  private final int[] framePage;
+  private final boolean[] referenced;
+  private final boolean[] dirty;
+  // Frame of each page, or -1. Pages are numbered densely, so an array beats a hash map.
+  private int[] pageTable = new int[0];
+  private int clockHand;
+
+  // One-entry cache in front of the page table; consecutive accesses usually share a page.
+  private int lastPage = -1;
+  private int lastFrame;
+
+  private int root;
+  private int size;
+  private int nextNode;
+  private int freeNode;
+
+  private long pageHits;
+  private long pageFaults;
+  private long writeBacks;
+
+  /**
+   * Opens a paged tree file, creating an empty tree if the file is new or empty.
+   *
+   * @param file The file holding the tree.
+   * @param poolPages The number of pages the buffer pool keeps in memory.
+   *
+   * @throws IllegalArgumentException If poolPages is less than 1.
+   * @throws IOException If the file cannot be opened or is not a paged tree.
+   */
+  public PagedRedBlackTree(Path file, int poolPages) throws IOException {
+    if (poolPages < 1) {
+      throw new IllegalArgumentException("Buffer pool needs at least one page: " + poolPages);
+    }
+
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    this.frames = new ByteBuffer[poolPages];
+    this.framePage = new int[poolPages];
+    this.referenced = new boolean[poolPages];
+    this.dirty = new boolean[poolPages];
+
+    for (int i = 0; i < poolPages; i++) {
+      frames[i] = ByteBuffer.allocateDirect(PAGE_SIZE);
+      framePage[i] = -1;
+    }
+
+    if (channel.size() == 0) {
+      // Unwritten pages read as zeros, which is already a black null node.
+      this.root = NIL;
+      this.nextNode = NIL + 1;
+      this.freeNode = NIL;
+      return;
+    }
+
+    ByteBuffer header = ByteBuffer.allocate(20);
+    readFully(header, 0);
+    header.flip();
+
+    if (header.getInt() != MAGIC) {
+      channel.close();
+      throw new IOException("Not a paged tree file: " + file);
+    }
+    this.root = header.getInt();
+    this.size = header.getInt();
+    this.nextNode = header.getInt();
+    this.freeNode = header.getInt();
+  }
+
+  /*
+   ---------------------Insert Methods------------------------
+   */
+
+  /**
+   * Inserts a new item into the tree.
+   *
+   * @param item The data key to be inserted.
+   *
+   * @throws UncheckedIOException If a page cannot be read or written.
+   */
+  public void insert(int item) {
+    int newNode = allocateNode();
+    put(newNode, KEY, item);
+    put(newNode, LEFT, NIL);
+    put(newNode, RIGHT, NIL);
+
+    int parentNode = NIL;
+    int currentNode = root;
+
+    while (currentNode != NIL) {
+      parentNode = currentNode;
+      currentNode = item < key(currentNode) ? left(currentNode) : right(currentNode);
+    }
+
+    put(newNode, PARENT, parentNode | RED_BIT);
+    if (parentNode == NIL) {
+      root = newNode;
+    } else if (item < key(parentNode)) {
+      put(parentNode, LEFT, newNode);
+    } else {
+      put(parentNode, RIGHT, newNode);
+    }
+
+    insertFixUp(newNode);
+    size++;
+  }
+
+  /**
+   * Restores the Red-Black properties after an insert.
+   *
+   * @param currentNode The newly inserted node.
+   */
+  private void insertFixUp(int currentNode) {
+    while (isRed(parent(currentNode))) {
+      int parentNode = parent(currentNode);
+      int grandparent = parent(parentNode);
+
+      if (parentNode == left(grandparent)) {
+        int uncle = right(grandparent);
+
+        if (isRed(uncle)) {
+          setRed(parentNode, false);
+          setRed(uncle, false);
+          setRed(grandparent, true);
+          currentNode = grandparent;
+        } else {
+          if (currentNode == right(parentNode)) {
+            currentNode = parentNode;
+            leftRotate(currentNode);
+          }
+
+          setRed(parent(currentNode), false);
+          setRed(parent(parent(currentNode)), true);
+          rightRotate(parent(parent(currentNode)));
+        }
+      } else {
+        int uncle = left(grandparent);
+
+        if (isRed(uncle)) {
+          setRed(parentNode, false);
+          setRed(uncle, false);
+          setRed(grandparent, true);
+          currentNode = grandparent;
+        } else {
+          if (currentNode == left(parentNode)) {
+            currentNode = parentNode;
+            rightRotate(currentNode);
+          }
+
+          setRed(parent(currentNode), false);
+          setRed(parent(parent(currentNode)), true);
+          leftRotate(parent(parent(currentNode)));
+        }
+      }
+    }
+
+    setRed(root, false);
+  }
+
+  /*
+   ---------------------Delete Methods------------------------
+   */
+
+  /**
+   * Deletes a key from the tree.
+   *
+   * @param key The data key to delete.
+   *
+   * @throws NoSuchElementException If the given key is not found in the tree.
+   * @throws UncheckedIOException If a page cannot be read or written.
+   */
+  public void delete(int key) {
+    int nodeToDelete = findNode(key);
+
+    if (nodeToDelete == NIL) {
+      throw new NoSuchElementException("Key not found: " + key);
+    }
+
+    int successor = nodeToDelete;
+    boolean originalRed = isRed(successor);
+    int nodeChild;
+
+    if (left(nodeToDelete) == NIL) {
+      nodeChild = right(nodeToDelete);
+      transplant(nodeToDelete, nodeChild);
+    } else if (right(nodeToDelete) == NIL) {
+      nodeChild = left(nodeToDelete);
+      transplant(nodeToDelete, nodeChild);
+    } else {
+      successor = minimum(right(nodeToDelete));
+      originalRed = isRed(successor);
+      nodeChild = right(successor);
+
+      if (parent(successor) == nodeToDelete) {
+        setParent(nodeChild, successor);
+      } else {
+        transplant(successor, right(successor));
+        put(successor, RIGHT, right(nodeToDelete));
+        setParent(right(successor), successor);
+      }
+
+      transplant(nodeToDelete, successor);
+      put(successor, LEFT, left(nodeToDelete));
+      setParent(left(successor), successor);
+      setRed(successor, isRed(nodeToDelete));
+    }
+
+    if (!originalRed) {
+      deleteFixUp(nodeChild);
+    }
+
+    freeNode(nodeToDelete);
+    size--;
+  }
+
+  /**
+   * Restores the Red-Black properties after a delete.
+   *
+   * @param nodeToBeFixed The node that took the deleted node's place.
+   */
+  private void deleteFixUp(int nodeToBeFixed) {
+    while (nodeToBeFixed != root && !isRed(nodeToBeFixed)) {
+      int parentNode = parent(nodeToBeFixed);
+
+      if (nodeToBeFixed == left(parentNode)) {
+        int sibling = right(parentNode);
+
+        if (isRed(sibling)) {
+          setRed(sibling, false);
+          setRed(parentNode, true);
+          leftRotate(parentNode);
+          sibling = right(parent(nodeToBeFixed));
+        }
+
+        if (!isRed(left(sibling)) && !isRed(right(sibling))) {
+          setRed(sibling, true);
+          nodeToBeFixed = parent(nodeToBeFixed);
+        } else {
+          if (!isRed(right(sibling))) {
+            setRed(left(sibling), false);
+            setRed(sibling, true);
+            rightRotate(sibling);
+            sibling = right(parent(nodeToBeFixed));
+          }
+
+          setRed(sibling, isRed(parent(nodeToBeFixed)));
+          setRed(parent(nodeToBeFixed), false);
+          setRed(right(sibling), false);
+          leftRotate(parent(nodeToBeFixed));
+          nodeToBeFixed = root;
+        }
+      } else {
+        int sibling = left(parentNode);
+
+        if (isRed(sibling)) {
+          setRed(sibling, false);
+          setRed(parentNode, true);
+          rightRotate(parentNode);
+          sibling = left(parent(nodeToBeFixed));
+        }
+
+        if (!isRed(right(sibling)) && !isRed(left(sibling))) {
+          setRed(sibling, true);
+          nodeToBeFixed = parent(nodeToBeFixed);
+        } else {
+          if (!isRed(left(sibling))) {
+            setRed(right(sibling), false);
+            setRed(sibling, true);
+            leftRotate(sibling);
+            sibling = left(parent(nodeToBeFixed));
+          }
+
+          setRed(sibling, isRed(parent(nodeToBeFixed)));
+          setRed(parent(nodeToBeFixed), false);
+          setRed(left(sibling), false);
+          rightRotate(parent(nodeToBeFixed));
+          nodeToBeFixed = root;
+        }
+      }
+    }
+
+    setRed(nodeToBeFixed, false);
+  }
+
+  /**
+   * Replaces the subtree rooted at oldRoot with the subtree rooted at newRoot.
+   */
+  private void transplant(int oldRoot, int newRoot) {
+    int parentNode = parent(oldRoot);
+
+    if (parentNode == NIL) {
+      root = newRoot;
+    } else if (oldRoot == left(parentNode)) {
+      put(parentNode, LEFT, newRoot);
+    } else {
+      put(parentNode, RIGHT, newRoot);
+    }
+    setParent(newRoot, parentNode);
+  }
+
+  private int minimum(int node) {
+    int current = node;
+
+    while (left(current) != NIL) {
+      current = left(current);
+    }
+    return current;
+  }
+
+  /*
+   ---------------------Rotation Methods------------------------
+   */
+
+  private void leftRotate(int node) {
+    int rightChild = right(node);
+    int innerChild = left(rightChild);
+
+    put(node, RIGHT, innerChild);
+    if (innerChild != NIL) {
+      setParent(innerChild, node);
+    }
+
+    int parentNode = parent(node);
+    setParent(rightChild, parentNode);
+
+    if (parentNode == NIL) {
+      root = rightChild;
+    } else if (node == left(parentNode)) {
+      put(parentNode, LEFT, rightChild);
+    } else {
+      put(parentNode, RIGHT, rightChild);
+    }
+
+    put(rightChild, LEFT, node);
+    setParent(node, rightChild);
+  }
+
+  private void rightRotate(int node) {
+    int leftChild = left(node);
+    int innerChild = right(leftChild);
+
+    put(node, LEFT, innerChild);
+    if (innerChild != NIL) {
+      setParent(innerChild, node);
+    }
+
+    int parentNode = parent(node);
+    setParent(leftChild, parentNode);
+
+    if (parentNode == NIL) {
+      root = leftChild;
+    } else if (node == right(parentNode)) {
+      put(parentNode, RIGHT, leftChild);
+    } else {
+      put(parentNode, LEFT, leftChild);
+    }
+
+    put(leftChild, RIGHT, node);
+    setParent(node, leftChild);
+  }
+
+  /*
+   ---------------------Search Methods------------------------
+   */
+
+  /**
+   * Searches for a key in the tree.
+   *
+   * @param key The key to search for.
+   *
+   * @return true if the key is found, false otherwise.
+   *
+   * @throws UncheckedIOException If a page cannot be read or written.
+   */
+  public boolean search(int key) {
+    return findNode(key) != NIL;
+  }
+
+  private int findNode(int key) {
+    int current = root;
+
+    while (current != NIL) {
+      int currentKey = key(current);
+
+      if (key == currentKey) {
+        return current;
+      }
+      current = key < currentKey ? left(current) : right(current);
+    }
+    return NIL;
+  }
+
+  /**
+   * Passes every key in the inclusive range [low, high] to the action, in ascending order.
+   *
+   * @param low The lower bound, inclusive.
+   * @param high The upper bound, inclusive.
+   * @param action The action to apply to each key.
+   *
+   * @throws UncheckedIOException If a page cannot be read or written.
+   */
+  public void range(int low, int high, IntConsumer action) {
+    rangeHelper(root, low, high, action);
+  }
+
+  private void rangeHelper(int node, int low, int high, IntConsumer action) {
+    if (node == NIL) {
+      return;
+    }
+
+    int key = key(node);
+
+    // Rotations can move equal keys to the left, so both sides are checked inclusively.
+    if (low <= key) {
+      rangeHelper(left(node), low, high, action);
+    }
+    if (low <= key && key <= high) {
+      action.accept(key);
+    }
+    if (key <= high) {
+      rangeHelper(right(node), low, high, action);
+    }
+  }
+
+  /**
+   * Returns the number of keys in the tree.
+   *
+   * @return The key count.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Checks the Red-Black properties: a black root, no red node with a red child,
+   * the same black height on every path, and keys in search-tree order. Rotations
+   * can move equal keys to either side, so keys equal to a node are allowed in
+   * both of its subtrees.
+   *
+   * @return true if the tree is a valid Red-Black Tree.
+   */
+  public boolean isRedBlackTree() {
+    return !isRed(root) && validate(root, Long.MIN_VALUE, Long.MAX_VALUE) != -1;
+  }
+
+  /**
+   * Returns the black height of a subtree whose keys must lie in [min, max].
+   *
+   * @return The black height, or -1 if a property is violated.
+   */
+  private int validate(int node, long min, long max) {
+    if (node == NIL) {
+      return 1;
+    }
+
+    int key = key(node);
+    if (key < min || key > max) {
+      return -1;
+    }
+    if (isRed(node) && (isRed(left(node)) || isRed(right(node)))) {
+      return -1;
+    }
+
+    int leftHeight = validate(left(node), min, key);
+    int rightHeight = validate(right(node), key, max);
+
+    if (leftHeight == -1 || leftHeight != rightHeight) {
+      return -1;
+    }
+    return leftHeight + (isRed(node) ? 0 : 1);
+  }
+
+  /*
+   ---------------------Buffer Pool Methods------------------------
+   */
+
+  /**
+   * Writes every modified page and the header to the file.
+   *
+   * @throws UncheckedIOException If a write fails.
+   */
+  public void flush() {
+    for (int frame = 0; frame < frames.length; frame++) {
+      if (dirty[frame]) {
+        writeBack(frame);
+      }
+    }
+
+    ByteBuffer header = ByteBuffer.allocate(20);
+    header.putInt(MAGIC).putInt(root).putInt(size).putInt(nextNode).putInt(freeNode);
+    header.flip();
+    writeFully(header, 0);
+  }
+
+  /**
+   * Flushes the tree and closes the file.
+   *
+   * @throws IOException If the final write or the close fails.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Returns the number of page accesses served from the buffer pool.
+   *
+   * @return The hit count.
+   */
+  public long getPageHits() {
+    return pageHits;
+  }
+
+  /**
+   * Returns the number of page accesses that had to read the page from the file.
+   *
+   * @return The fault count.
+   */
+  public long getPageFaults() {
+    return pageFaults;
+  }
+
+  /**
+   * Returns the number of modified pages written to the file.
+   *
+   * @return The write-back count.
+   */
+  public long getWriteBacks() {
+    return writeBacks;
+  }
+
+  /**
+   * Returns the share of page accesses served from the buffer pool.
+   *
+   * @return The hit ratio, or 0 before the first access.
+   */
+  public double getHitRatio() {
+    long accesses = pageHits + pageFaults;
+    return accesses == 0 ? 0 : (double) pageHits / accesses;
+  }
+
+  /**
+   * Returns the buffer holding a page, reading it into a frame on a fault.
+   *
+   * @param page The page number.
+   * @param write Whether the caller will modify the page.
+   *
+   * @return The page's buffer; valid only until the next page access.
+   */
+  private ByteBuffer page(int page, boolean write) {
+    int frame;
+
+    if (page == lastPage) {
+      frame = lastFrame;
+      pageHits++;
+    } else {
+      if (page >= pageTable.length) {
+        int oldLength = pageTable.length;
+        pageTable = Arrays.copyOf(pageTable, Math.max(page + 1, 2 * oldLength));
+        Arrays.fill(pageTable, oldLength, pageTable.length, -1);
+      }
+
+      if (pageTable[page] >= 0) {
+        frame = pageTable[page];
+        pageHits++;
+      } else {
+        frame = load(page);
+        pageFaults++;
+      }
+      lastPage = page;
+      lastFrame = frame;
+    }
+
+    referenced[frame] = true;
+    if (write) {
+      dirty[frame] = true;
+    }
+    return frames[frame];
+  }
+
+  /**
+   * Reads a page into a frame chosen by the CLOCK hand, writing back the
+   * frame's previous page first if it was modified.
+   */
+  private int load(int page) {
+    int frame = clockHand;
+
+    // Give every recently used frame a second chance before evicting it.
+    while (framePage[frame] >= 0 && referenced[frame]) {
+      referenced[frame] = false;
+      frame = (frame + 1) % frames.length;
+    }
+    clockHand = (frame + 1) % frames.length;
+
+    if (framePage[frame] >= 0) {
+      if (dirty[frame]) {
+        writeBack(frame);
+      }
+      pageTable[framePage[frame]] = -1;
+    }
+
+    ByteBuffer buffer = frames[frame];
+    buffer.clear();
+    readFully(buffer, (long) page * PAGE_SIZE);
+
+    // Pages past the end of the file have never been written and read as zeros.
+    while (buffer.hasRemaining()) {
+      buffer.put((byte) 0);
+    }
+
+    framePage[frame] = page;
+    dirty[frame] = false;
+    pageTable[page] = frame;
+    return frame;
+  }
+
+  private void writeBack(int frame) {
+    ByteBuffer buffer = frames[frame];
+    buffer.clear();
+    writeFully(buffer, (long) framePage[frame] * PAGE_SIZE);
+    dirty[frame] = false;
+    writeBacks++;
+  }
+
+  private void readFully(ByteBuffer buffer, long position) {
+    try {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, position + buffer.position()) < 0) {
+          break;
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void writeFully(ByteBuffer buffer, long position) {
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, position + buffer.position());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /*
+   ---------------------Node Access Methods------------------------
+   */
+
+  private int get(int node, int field) {
+    return page(1 + node / NODES_PER_PAGE, false)
+            .getInt((node % NODES_PER_PAGE) * NODE_BYTES + field);
+  }
+
+  private void put(int node, int field, int value) {
+    page(1 + node / NODES_PER_PAGE, true)
+            .putInt((node % NODES_PER_PAGE) * NODE_BYTES + field, value);
+  }
+
+  private int key(int node) {
+    return get(node, KEY);
+  }
+
+  private int left(int node) {
+    return get(node, LEFT);
+  }
+
+  private int right(int node) {
+    return get(node, RIGHT);
+  }
+
+  private int parent(int node) {
+    return get(node, PARENT) & ~RED_BIT;
+  }
+
+  private boolean isRed(int node) {
+    return (get(node, PARENT) & RED_BIT) != 0;
+  }
+
+  private void setParent(int node, int parentNode) {
+    put(node, PARENT, parentNode | (get(node, PARENT) & RED_BIT));
+  }
+
+  private void setRed(int node, boolean red) {
+    int parentNode = get(node, PARENT) & ~RED_BIT;
+    put(node, PARENT, red ? parentNode | RED_BIT : parentNode);
+  }
+
+  /**
+   * Takes a node id from the free list, or the next unused id.
+   */
+  private int allocateNode() {
+    if (freeNode != NIL) {
+      int node = freeNode;
+      freeNode = left(node);
+      return node;
+    }
+    return nextNode++;
+  }
+
+  /**
+   * Puts a deleted node's id on the free list, linked through its left field.
+   */
+  private void freeNode(int node) {
+    put(node, LEFT, freeNode);
+    freeNode = node;
+  }
+}
@@ -0,0 +1,468 @@
+package redblacktree;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable Red-Black Tree whose versions share structure. Every update copies
+ * only the nodes on one root-to-leaf path and returns a new version; all other
+ * subtrees are shared by reference with the version it was derived from.
+ *
+ * <p>Updates are built on join and split, as in the mutable tree's removeBelow:
+ * join links two trees and a middle key by descending the spine of the taller
+ * tree to the matching black height, so insert is a split followed by a join and
+ * delete a split followed by a join of the two halves.
+ *
+ * <p>Because unchanged subtrees are the same objects in both versions, diff can
+ * skip them without looking inside, and so runs in time proportional to the
+ * number of changed keys times the tree height rather than to the tree size.
+ * Like the B+ tree, this is a set: inserting a present key returns the same version.
+ * Author: Alex Matthes
+ */
+public final class PersistentRedBlackTree {
+
+  private static final PersistentRedBlackTree EMPTY = new PersistentRedBlackTree(null);
+
+  /**
+   * An immutable node. Sizes and black heights are stored so join and diff can
+   * compare subtrees in O(1).
+   */
+  private static final class Node {
+    final int key;
+    final boolean red;
+    final Node left;
+    final Node right;
+    final int size;
+    final int blackHeight;
+
+    Node(Node left, int key, boolean red, Node right) {
+      this.key = key;
+      this.red = red;
+      this.left = left;
+      this.right = right;
+      this.size = sizeOf(left) + 1 + sizeOf(right);
+      this.blackHeight = blackHeightOf(left) + (red ? 0 : 1);
+    }
+  }
+
+  /**
+   * The two halves of a split and whether the split key was present.
+   */
+  private static final class Split {
+    final Node left;
+    final boolean found;
+    final Node right;
+
+    Split(Node left, boolean found, Node right) {
+      this.left = left;
+      this.found = found;
+      this.right = right;
+    }
+  }
+
+  private final Node root;
+
+  private PersistentRedBlackTree(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * Returns the empty version.
+   *
+   * @return The empty tree.
+   */
+  public static PersistentRedBlackTree empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Returns a version that also contains the key.
+   *
+   * @param key The data key to be inserted.
+   *
+   * @return The new version, or this one if the key is already present.
+   */
+  public PersistentRedBlackTree insert(int key) {
+    if (contains(key)) {
+      return this;
+    }
+
+    Split split = split(root, key);
+    return new PersistentRedBlackTree(blacken(join(split.left, key, split.right)));
+  }
+
+  /**
+   * Returns a version without the key.
+   *
+   * @param key The data key to delete.
+   *
+   * @return The new version, or this one if the key is absent.
+   */
+  public PersistentRedBlackTree delete(int key) {
+    if (!contains(key)) {
+      return this;
+    }
+
+    Split split = split(root, key);
+    return new PersistentRedBlackTree(blacken(join2(split.left, split.right)));
+  }
+
+  /**
+   * Checks whether a key is present in this version.
+   *
+   * @param key The key to search for.
+   *
+   * @return true if the key is present.
+   */
+  public boolean contains(int key) {
+    Node node = root;
+
+    while (node != null) {
+      if (key == node.key) {
+        return true;
+      }
+      node = key < node.key ? node.left : node.right;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of keys in this version.
+   *
+   * @return The key count.
+   */
+  public int size() {
+    return sizeOf(root);
+  }
+
+  /**
+   * Passes every key in the inclusive range [low, high] to the action, in ascending order.
+   *
+   * @param low The lower bound, inclusive.
+   * @param high The upper bound, inclusive.
+   * @param action The action to apply to each key.
+   */
+  public void range(int low, int high, IntConsumer action) {
+    rangeHelper(root, low, high, action);
+  }
+
+  private static void rangeHelper(Node node, int low, int high, IntConsumer action) {
+    if (node == null) {
+      return;
+    }
+
+    if (low < node.key) {
+      rangeHelper(node.left, low, high, action);
+    }
+    if (low <= node.key && node.key <= high) {
+      action.accept(node.key);
+    }
+    if (node.key < high) {
+      rangeHelper(node.right, low, high, action);
+    }
+  }
+
+  /**
+   * Checks the binary search tree, red and black height properties of this version.
+   *
+   * @return true if the version is a valid Red-Black Tree.
+   */
+  public boolean isRedBlackTree() {
+    return !isRed(root) && checkHelper(root, Long.MIN_VALUE, Long.MAX_VALUE) >= 0;
+  }
+
+  /**
+   * Returns the black height of a valid subtree, or -1 if it breaks a property.
+   */
+  private static int checkHelper(Node node, long low, long high) {
+    if (node == null) {
+      return 0;
+    }
+    if (node.key <= low || node.key >= high) {
+      return -1;
+    }
+    if (node.red && (isRed(node.left) || isRed(node.right))) {
+      return -1;
+    }
+
+    int left = checkHelper(node.left, low, node.key);
+    int right = checkHelper(node.right, node.key, high);
+
+    if (left < 0 || left != right || node.blackHeight != left + (node.red ? 0 : 1)
+            || node.size != sizeOf(node.left) + 1 + sizeOf(node.right)) {
+      return -1;
+    }
+    return node.blackHeight;
+  }
+
+  /*
+   ---------------------Diff Methods------------------------
+   */
+
+  /**
+   * Streams the keys that differ between two versions, in ascending order.
+   * Subtrees the versions share are skipped by reference, so versions derived
+   * from one another diff in time proportional to the changes, not the size.
+   *
+   * @param older The earlier version.
+   * @param newer The later version.
+   * @param added Receives each key in newer but not in older.
+   * @param removed Receives each key in older but not in newer.
+   */
+  public static void diff(PersistentRedBlackTree older, PersistentRedBlackTree newer,
+                          IntConsumer added, IntConsumer removed) {
+    Cursor before = new Cursor(older.root);
+    Cursor after = new Cursor(newer.root);
+
+    while (!before.isEmpty() && !after.isEmpty()) {
+      Node x = before.peek();
+      Node y = after.peek();
+      boolean xKey = before.peekIsKey();
+      boolean yKey = after.peekIsKey();
+
+      if (!xKey && !yKey) {
+        if (x == y) {
+          before.pop();
+          after.pop();
+        } else {
+          // A shared subtree is reached on both sides by expanding whichever
+          // candidate is larger, since each of its strict ancestors is larger.
+          int xSize = x.size;
+          int ySize = y.size;
+
+          if (xSize >= ySize) {
+            before.expand();
+          }
+          if (ySize >= xSize) {
+            after.expand();
+          }
+        }
+      } else if (xKey && yKey) {
+        if (x.key == y.key) {
+          before.pop();
+          after.pop();
+        } else if (x.key < y.key) {
+          removed.accept(x.key);
+          before.pop();
+        } else {
+          added.accept(y.key);
+          after.pop();
+        }
+      } else if (xKey) {
+        // A key below everything in the other subtree cannot be in it.
+        if (x.key < minKey(y)) {
+          removed.accept(x.key);
+          before.pop();
+        } else {
+          after.expand();
+        }
+      } else {
+        if (y.key < minKey(x)) {
+          added.accept(y.key);
+          after.pop();
+        } else {
+          before.expand();
+        }
+      }
+    }
+
+    before.drain(removed);
+    after.drain(added);
+  }
+
+  /**
+   * The rest of an in-order walk, as a stack of single keys and whole subtrees.
+   */
+  private static final class Cursor {
+    private Node[] nodes = new Node[16];
+    private boolean[] keyOnly = new boolean[16];
+    private int depth;
+
+    Cursor(Node root) {
+      if (root != null) {
+        push(root, false);
+      }
+    }
+
+    boolean isEmpty() {
+      return depth == 0;
+    }
+
+    Node peek() {
+      return nodes[depth - 1];
+    }
+
+    boolean peekIsKey() {
+      return keyOnly[depth - 1];
+    }
+
+    void pop() {
+      nodes[--depth] = null;
+    }
+
+    /**
+     * Replaces the subtree on top by its left subtree, its key and its right subtree.
+     */
+    void expand() {
+      Node node = nodes[--depth];
+
+      if (node.right != null) {
+        push(node.right, false);
+      }
+      push(node, true);
+      if (node.left != null) {
+        push(node.left, false);
+      }
+    }
+
+    void drain(IntConsumer action) {
+      while (!isEmpty()) {
+        if (peekIsKey()) {
+          action.accept(peek().key);
+          pop();
+        } else {
+          expand();
+        }
+      }
+    }
+
+    private void push(Node node, boolean key) {
+      if (depth == nodes.length) {
+        nodes = Arrays.copyOf(nodes, depth * 2);
+        keyOnly = Arrays.copyOf(keyOnly, depth * 2);
+      }
+      nodes[depth] = node;
+      keyOnly[depth++] = key;
+    }
+  }
+
+  /*
+   ---------------------Join Methods------------------------
+   */
+
+  /**
+   * Splits a tree into the keys below and above the given key.
+   */
+  private static Split split(Node node, int key) {
+    if (node == null) {
+      return new Split(null, false, null);
+    }
+
+    if (key == node.key) {
+      return new Split(blacken(node.left), true, blacken(node.right));
+    }
+
+    if (key < node.key) {
+      Split split = split(node.left, key);
+      return new Split(split.left, split.found, join(split.right, node.key, node.right));
+    }
+
+    Split split = split(node.right, key);
+    return new Split(join(node.left, node.key, split.left), split.found, split.right);
+  }
+
+  /**
+   * Links two trees and a key between them into one valid tree, whose root may be red.
+   */
+  private static Node join(Node left, int key, Node right) {
+    left = blacken(left);
+    right = blacken(right);
+
+    int leftHeight = blackHeightOf(left);
+    int rightHeight = blackHeightOf(right);
+
+    if (leftHeight > rightHeight) {
+      Node joined = joinRight(left, key, right);
+      return joined.red && isRed(joined.right) ? blacken(joined) : joined;
+    }
+
+    if (rightHeight > leftHeight) {
+      Node joined = joinLeft(left, key, right);
+      return joined.red && isRed(joined.left) ? blacken(joined) : joined;
+    }
+
+    return new Node(left, key, true, right);
+  }
+
+  /**
+   * Descends the right spine of the taller left tree to the black height of the
+   * right tree, links there and repairs a red-red pair with a left rotation.
+   */
+  private static Node joinRight(Node left, int key, Node right) {
+    if (!isRed(left) && blackHeightOf(left) == blackHeightOf(right)) {
+      return new Node(left, key, true, right);
+    }
+
+    Node joined = joinRight(left.right, key, right);
+
+    if (!left.red && joined.red && isRed(joined.right)) {
+      return new Node(new Node(left.left, left.key, false, joined.left), joined.key, true,
+              blacken(joined.right));
+    }
+    return new Node(left.left, left.key, left.red, joined);
+  }
+
+  /**
+   * The mirror image of joinRight.
+   */
+  private static Node joinLeft(Node left, int key, Node right) {
+    if (!isRed(right) && blackHeightOf(right) == blackHeightOf(left)) {
+      return new Node(left, key, true, right);
+    }
+
+    Node joined = joinLeft(left, key, right.left);
+
+    if (!right.red && joined.red && isRed(joined.left)) {
+      return new Node(blacken(joined.left), joined.key, true,
+              new Node(joined.right, right.key, false, right.right));
+    }
+    return new Node(joined, right.key, right.red, right.right);
+  }
+
+  /**
+   * Joins two trees whose keys are all ordered, without a middle key.
+   */
+  private static Node join2(Node left, Node right) {
+    if (left == null) {
+      return right;
+    }
+
+    int last = maxKey(left);
+    Split split = split(left, last);
+    return join(split.left, last, right);
+  }
+
+  /*
+   ---------------------Helper Methods------------------------
+   */
+
+  private static Node blacken(Node node) {
+    return node != null && node.red ? new Node(node.left, node.key, false, node.right) : node;
+  }
+
+  private static boolean isRed(Node node) {
+    return node != null && node.red;
+  }
+
+  private static int sizeOf(Node node) {
+    return node == null ? 0 : node.size;
+  }
+
+  private static int blackHeightOf(Node node) {
+    return node == null ? 0 : node.blackHeight;
+  }
+
+  private static int minKey(Node node) {
+    while (node.left != null) {
+      node = node.left;
+    }
+    return node.key;
+  }
+
+  private static int maxKey(Node node) {
+    while (node.right != null) {
+      node = node.right;
+    }
+    return node.key;
+  }
+}
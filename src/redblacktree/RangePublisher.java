@@ -0,0 +1,161 @@
+package redblacktree;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes a key range of a Red-Black Tree as chunks of ascending keys.
+ *
+ * <p>Each subscription keeps the next node to emit as its cursor, so a request
+ * continues where the previous one stopped instead of searching again, and only
+ * the chunk being emitted is ever materialized. Chunks are emitted on the thread
+ * that calls request, which therefore must be allowed to read the tree. Recursive
+ * requests from inside onNext are queued and served by the outer call, so the
+ * stack does not grow with the demand.
+ *
+ * <p>The tree's modification count is captured at subscription and checked
+ * before every chunk. If the tree has been modified, the cursor may point at a
+ * removed node, so the subscriber gets a ConcurrentModificationException
+ * instead of possibly wrong keys. Every signal, including the error for a
+ * non-positive request, is delivered from the same serialized drain loop, and
+ * nothing follows an onError or onComplete.
+ * Author: Alex Matthes
+ */
+final class RangePublisher implements Flow.Publisher<int[]> {
+
+  private final RedBlackTree tree;
+  private final int low;
+  private final int high;
+  private final int chunkSize;
+
+  /**
+   * Constructs a publisher for the keys between low and high, both inclusive.
+   *
+   * @throws IllegalArgumentException If chunkSize is less than 1.
+   */
+  RangePublisher(RedBlackTree tree, int low, int high, int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+    }
+
+    this.tree = tree;
+    this.low = low;
+    this.high = high;
+    this.chunkSize = chunkSize;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super int[]> subscriber) {
+    Objects.requireNonNull(subscriber, "subscriber");
+    subscriber.onSubscribe(new RangeSubscription(subscriber));
+  }
+
+  /**
+   * One scan over the range, driven by the subscriber's demand.
+   */
+  private final class RangeSubscription implements Flow.Subscription {
+    private final Flow.Subscriber<? super int[]> subscriber;
+    private final int expectedModCount = tree.modCount();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile Throwable invalidDemand;
+
+    // Only touched inside drain, which one thread runs at a time.
+    private RedBlackTree.Node cursor;
+    private boolean started;
+    private boolean done;
+
+    RangeSubscription(Flow.Subscriber<? super int[]> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        // Delivered by drain, so it cannot overlap an onNext running on another thread.
+        if (invalidDemand == null) {
+          invalidDemand = new IllegalArgumentException("Demand must be positive: " + n);
+        }
+        drain();
+        return;
+      }
+
+      requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+
+    /**
+     * Emits chunks while there is demand. Only the first of several overlapping
+     * callers loops; the others just leave a note that demand has changed.
+     */
+    private void drain() {
+      if (pending.getAndIncrement() != 0) {
+        return;
+      }
+
+      do {
+        if (invalidDemand != null && !done && !cancelled) {
+          done = true;
+          subscriber.onError(invalidDemand);
+          return;
+        }
+
+        while (!done && !cancelled && invalidDemand == null && requested.get() > 0) {
+          if (tree.modCount() != expectedModCount) {
+            done = true;
+            subscriber.onError(new ConcurrentModificationException(
+                    "Tree modified during range scan"));
+            return;
+          }
+
+          int[] chunk = nextChunk();
+
+          if (chunk.length > 0) {
+            requested.decrementAndGet();
+            subscriber.onNext(chunk);
+          }
+
+          if (cursor == tree.getNullNode() && !done && !cancelled) {
+            done = true;
+            subscriber.onComplete();
+          }
+        }
+      } while (pending.decrementAndGet() != 0);
+    }
+
+    /**
+     * Collects up to chunkSize keys from the cursor on and advances the cursor.
+     */
+    private int[] nextChunk() {
+      RedBlackTree.Node nullNode = tree.getNullNode();
+
+      if (!started) {
+        cursor = tree.ceiling(low);
+        started = true;
+      }
+
+      int[] chunk = new int[chunkSize];
+      int count = 0;
+
+      while (count < chunkSize && cursor != nullNode && cursor.data <= high) {
+        chunk[count++] = cursor.data;
+        cursor = tree.successor(cursor);
+      }
+
+      if (cursor != nullNode && cursor.data > high) {
+        cursor = nullNode;
+      }
+      return count == chunkSize ? chunk : Arrays.copyOf(chunk, count);
+    }
+  }
+}
@@ -1,6 +1,9 @@
 package redblacktree;
 
 import java.util.NoSuchElementException;
+import java.util.concurrent.Flow;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
 
 /**
  * Implements a Red-Black Tree data structure.
@@ -8,7 +11,7 @@ import java.util.NoSuchElementException;
  * and search operations by maintaining a balanced binary search tree.
  * Author: Alex Matthes
  */
-public class RedBlackTree {
+public class RedBlackTree implements OrderedIntSet {
   private enum Color {
     RED,
     BLACK
@@ -36,8 +39,36 @@ public class RedBlackTree {
     }
   }
 
+  private static final int MIN_BLOOM_CAPACITY = 1024;
+
   private Node root;
   private final Node nullNode;
+  private Node lastInserted;
+  private Node firstNode;
+  private Node lastNode;
+  private int size;
+
+  // Counts inserts and deletes, so range publishers can fail fast on modification.
+  private int modCount;
+
+  private TreeMetrics metrics;
+  private long rotationCount;
+  private TraceRecorder traceRecorder;
+
+  private DirtyRangeSet dirtyRanges;
+  private int dirtyRangeBits;
+
+  private Node freeList;
+  private int freeCount;
+  private int poolCapacity;
+  private long poolHits;
+  private long poolMisses;
+
+  private BlockedBloomFilter bloomFilter;
+  private double bloomFalsePositiveRate;
+  private int bloomStaleKeys;
+
+  private HotKeyCache hotKeys;
 
   /**
    * Constructs an empty Red-Black Tree.
@@ -52,6 +83,9 @@ public class RedBlackTree {
     nullNode.rightChild = nullNode;
 
     this.root = nullNode;
+    this.lastInserted = nullNode;
+    this.firstNode = nullNode;
+    this.lastNode = nullNode;
   }
 
   /**
@@ -61,19 +95,233 @@ public class RedBlackTree {
    *
    * @param item The data key to be inserted.
    */
+  @Override
   public void insert(int item) {
-    Node newNode = new Node(item);
+    insertFrom(this.root, item);
+  }
+
+  /**
+   * Inserts a new item and returns the node holding it.
+   *
+   * @param item The data key to be inserted.
+   *
+   * @return The newly inserted node.
+   */
+  Node insertNode(int item) {
+    return insertFrom(this.root, item);
+  }
+
+  /**
+   * Inserts a new item, starting the search from a finger node instead of the root.
+   * The search walks up from the finger through parent references until it reaches
+   * the lowest subtree whose key range covers the item, then descends from there.
+   * For an item d positions away from the finger this costs O(1 + log d) instead of
+   * O(log n), which makes nearly sorted insert streams cheap.
+   *
+   * @param finger A node currently in this tree, typically the node returned by the
+   *               previous insert. The sentinel null node searches from the root.
+   * @param item The data key to be inserted.
+   *
+   * @return The node holding the inserted item, usable as the next finger.
+   */
+  public Node insertNear(Node finger, int item) {
+    if (finger == nullNode || this.root == nullNode) {
+      return insertFrom(this.root, item);
+    }
+
+    return insertFrom(climbFrom(finger, item), item);
+  }
+
+  /**
+   * Inserts an item unless it is already present, searching from the finger when
+   * the item is above it. Meant for applying ascending batches with set semantics.
+   *
+   * @param finger A node currently in this tree, or the sentinel null node.
+   * @param item The data key to be inserted.
+   *
+   * @return The node holding the item, usable as the next finger.
+   */
+  Node insertNearIfAbsent(Node finger, int item) {
+    // Above the finger, the climb stops under an ancestor strictly greater than the
+    // item and keeps the finger's smaller lower bound, so any equal key lies below start.
+    Node start = finger == nullNode || this.root == nullNode || item <= finger.data
+            ? this.root : climbFrom(finger, item);
+    Node existing = findNode(start, item);
+
+    return existing != nullNode ? existing : insertFrom(start, item);
+  }
+
+  /**
+   * Inserts a new item using the node of the previous insert as the finger.
+   *
+   * @param item The data key to be inserted.
+   *
+   * @see #insertNear(Node, int)
+   */
+  public void insertNearLast(int item) {
+    insertNear(lastInserted, item);
+  }
+
+  /**
+   * Builds a tree from strictly ascending keys in O(n), without searches or rotations.
+   * The keys are placed into a perfectly balanced shape by an in-order walk; every
+   * node is black except those on the bottom level when it is only partly filled,
+   * which are red, so all paths have the same black height.
+   *
+   * @param count The number of keys the supplier will provide.
+   * @param sortedKeys Supplies the keys in strictly ascending order.
+   *
+   * @return The new tree.
+   *
+   * @throws IllegalArgumentException If count is negative or the keys are not strictly ascending.
+   */
+  public static RedBlackTree fromSorted(int count, IntSupplier sortedKeys) {
+    if (count < 0) {
+      throw new IllegalArgumentException("count must not be negative: " + count);
+    }
+
+    RedBlackTree tree = new RedBlackTree();
+
+    if (count == 0) {
+      return tree;
+    }
+
+    // The depth of the bottom level; it is red unless the tree is perfect.
+    int redLevel = 31 - Integer.numberOfLeadingZeros(count + 1);
+    long[] previous = {Long.MIN_VALUE};
+
+    tree.root = tree.buildSorted(0, 0, count - 1, redLevel, sortedKeys, previous);
+    tree.root.parent = tree.nullNode;
+    tree.size = count;
+    tree.firstNode = tree.minimum(tree.root);
+    tree.lastNode = tree.root;
+    while (tree.lastNode.rightChild != tree.nullNode) {
+      tree.lastNode = tree.lastNode.rightChild;
+    }
+    return tree;
+  }
+
+  /**
+   * Builds the subtree holding the keys with indexes low to high.
+   *
+   * @param level The depth of the subtree's root.
+   * @param low The index of the subtree's first key.
+   * @param high The index of the subtree's last key.
+   * @param redLevel The depth whose nodes are colored red.
+   * @param sortedKeys The key supplier.
+   * @param previous The last key taken, to check the order.
+   *
+   * @return The root of the subtree, or the null node if it is empty.
+   */
+  private Node buildSorted(int level, int low, int high, int redLevel, IntSupplier sortedKeys,
+                           long[] previous) {
+    if (high < low) {
+      return nullNode;
+    }
+
+    int middle = (low + high) >>> 1;
+    Node left = buildSorted(level + 1, low, middle - 1, redLevel, sortedKeys, previous);
+
+    int key = sortedKeys.getAsInt();
+    if (key <= previous[0]) {
+      throw new IllegalArgumentException("Keys are not strictly ascending at " + key);
+    }
+    previous[0] = key;
+
+    Node node = allocateNode(key);
+    node.color = level == redLevel ? Color.RED : Color.BLACK;
+    node.leftChild = left;
+    left.parent = node;
+
+    Node right = buildSorted(level + 1, middle + 1, high, redLevel, sortedKeys, previous);
+    node.rightChild = right;
+    right.parent = node;
+    return node;
+  }
+
+  /**
+   * Walks up from the finger to the lowest node whose subtree key range contains
+   * the item. A subtree's upper bound is its nearest ancestor reached through a
+   * left child, and its lower bound the nearest one reached through a right child.
+   * Rotations can leave keys equal to a node on either side of it, so both bounds
+   * are inclusive. The climb passes an upper bound equal to the item, and it stops
+   * at a lower bound equal to the item, where the item may still go to the right.
+   *
+   * @param finger The node to start from.
+   * @param item The key being inserted.
+   *
+   * @return The root of the subtree to descend from.
+   */
+  private Node climbFrom(Node finger, int item) {
+    Node current = finger;
+
+    if (item > finger.data) {
+      while (true) {
+        Node ancestor = current;
+
+        while (ancestor.parent != nullNode && ancestor == ancestor.parent.rightChild) {
+          ancestor = ancestor.parent;
+        }
+
+        Node upperBound = ancestor.parent;
+
+        if (upperBound == nullNode || item < upperBound.data) {
+          return current;
+        }
+        current = upperBound;
+      }
+    } else if (item < finger.data) {
+      while (true) {
+        Node ancestor = current;
+
+        while (ancestor.parent != nullNode && ancestor == ancestor.parent.leftChild) {
+          ancestor = ancestor.parent;
+        }
+
+        Node lowerBound = ancestor.parent;
+
+        if (lowerBound == nullNode || item >= lowerBound.data) {
+          return current;
+        }
+        current = lowerBound;
+      }
+    }
+
+    return current;
+  }
+
+  /**
+   * Inserts a new item by descending from the given subtree root, which must
+   * cover the item's position, then restores the Red-Black properties.
+   *
+   * @param start The subtree root to start the descent from.
+   * @param item The data key to be inserted.
+   *
+   * @return The newly inserted node.
+   */
+  private Node insertFrom(Node start, int item) {
+    TreeEvents.Insert event = new TreeEvents.Insert();
+    event.begin();
+    long rotationsBefore = rotationCount;
+
+    if (traceRecorder != null) {
+      traceRecorder.record(TraceRecorder.INSERT, item);
+    }
+
+    Node newNode = allocateNode(item);
 
     newNode.color = Color.RED;
     newNode.parent = nullNode;
     newNode.leftChild = nullNode;
     newNode.rightChild = nullNode;
 
-    Node currentNode = this.root;
+    Node currentNode = start;
     Node parentNode = nullNode;
+    int pathLength = 0;
 
     while (currentNode != nullNode) {
       parentNode = currentNode;
+      pathLength++;
 
       if (newNode.data < currentNode.data) {
         currentNode = currentNode.leftChild;
@@ -85,13 +333,47 @@ public class RedBlackTree {
     newNode.parent = parentNode;
     if (parentNode == nullNode) {
       this.root = newNode;
+      this.firstNode = newNode;
+      this.lastNode = newNode;
     } else if (newNode.data < parentNode.data) {
       parentNode.leftChild = newNode;
+      if (parentNode == firstNode) {
+        this.firstNode = newNode;
+      }
     } else {
       parentNode.rightChild = newNode;
+      if (parentNode == lastNode) {
+        this.lastNode = newNode;
+      }
     }
 
     insertFixUp(newNode);
+    markDirty(item);
+
+    this.size++;
+    this.modCount++;
+    this.lastInserted = newNode;
+
+    if (bloomFilter != null) {
+      if (size > bloomFilter.capacity()) {
+        rebuildBloomFilter();
+      } else {
+        bloomFilter.add(item);
+      }
+    }
+
+    if (metrics != null) {
+      metrics.inserts.increment();
+    }
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.key = item;
+      event.pathLength = pathLength;
+      event.rotations = (int) (rotationCount - rotationsBefore);
+      event.commit();
+    }
+    return newNode;
   }
 
   /*
@@ -105,14 +387,108 @@ public class RedBlackTree {
    *
    * @throws NoSuchElementException If the given key is not found in the tree.
    */
+  @Override
   public void delete(int key) {
+    TreeEvents.Delete event = new TreeEvents.Delete();
+    event.begin();
+    long rotationsBefore = rotationCount;
+
+    if (traceRecorder != null) {
+      traceRecorder.record(TraceRecorder.DELETE, key);
+    }
+
     Node nodeToDelete = findNode(root, key);
 
     if (nodeToDelete == nullNode) {
       throw new NoSuchElementException("Key not found: " + key);
     }
 
+    deleteFound(nodeToDelete, event, rotationsBefore);
+  }
+
+  /**
+   * Deletes a key if it is present, without throwing when it is not.
+   *
+   * @param key The data key to delete.
+   *
+   * @return true if a node was deleted.
+   */
+  boolean deleteIfPresent(int key) {
+    Node nodeToDelete = findNode(this.root, key);
+
+    if (nodeToDelete == nullNode) {
+      return false;
+    }
+    removeNode(nodeToDelete);
+    return true;
+  }
+
+  /**
+   * Deletes a node the caller already located, e.g. through a hash index,
+   * with the same bookkeeping as delete.
+   *
+   * @param nodeToDelete A node currently in this tree.
+   */
+  void removeNode(Node nodeToDelete) {
+    TreeEvents.Delete event = new TreeEvents.Delete();
+    event.begin();
+    long rotationsBefore = rotationCount;
+
+    if (traceRecorder != null) {
+      traceRecorder.record(TraceRecorder.DELETE, nodeToDelete.data);
+    }
+
+    deleteFound(nodeToDelete, event, rotationsBefore);
+  }
+
+  /**
+   * Deletes a located node, then updates dirty ranges, metrics and the delete event.
+   *
+   * @param nodeToDelete The node to delete.
+   * @param event The event started by the caller.
+   * @param rotationsBefore The rotation count when the caller started.
+   */
+  private void deleteFound(Node nodeToDelete, TreeEvents.Delete event, long rotationsBefore) {
+    int key = nodeToDelete.data;
+
+    // Only walk back up for the path length when a recording is listening.
+    int pathLength = event.isEnabled() ? depth(nodeToDelete) : 0;
+
     deleteNode(nodeToDelete);
+    markDirty(key);
+
+    // Deleted keys stay set in the filter until it is rebuilt, raising false positives.
+    if (bloomFilter != null && ++bloomStaleKeys > bloomFilter.capacity() / 2) {
+      rebuildBloomFilter();
+    }
+
+    if (metrics != null) {
+      metrics.deletes.increment();
+    }
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.key = key;
+      event.pathLength = pathLength;
+      event.rotations = (int) (rotationCount - rotationsBefore);
+      event.commit();
+    }
+  }
+
+  /**
+   * Returns the number of nodes from the root down to the given node, inclusive.
+   *
+   * @param node A node in the tree.
+   *
+   * @return The depth of the node.
+   */
+  private int depth(Node node) {
+    int depth = 0;
+
+    for (Node current = node; current != nullNode; current = current.parent) {
+      depth++;
+    }
+    return depth;
   }
 
   /**
@@ -139,6 +515,211 @@ public class RedBlackTree {
     }
   }
 
+  /**
+   * Deletes every key smaller than the bound in one pass, passing each to the
+   * action in ascending order. Instead of deleting keys one by one, the tree is
+   * split at the bound: the kept subtrees along the search path are joined back
+   * together by black height, which costs O(log^2 n) rebalancing work in total,
+   * and the removed subtrees are simply dropped.
+   * The action must not access this tree, which is being restructured while it runs.
+   *
+   * @param bound The smallest key to keep.
+   * @param action The callback receiving each removed key.
+   *
+   * @return The number of keys removed.
+   */
+  public int removeBelow(int bound, IntConsumer action) {
+    if (this.root == nullNode || firstNode.data >= bound) {
+      return 0;
+    }
+
+    TreeEvents.Bulk event = new TreeEvents.Bulk();
+    event.begin();
+    int sizeBefore = size;
+
+    Node remaining = splitFrom(this.root, bound, action);
+    remaining.parent = nullNode;
+    remaining.color = Color.BLACK;
+    this.root = remaining;
+
+    int removed = sizeBefore - size;
+
+    firstNode = remaining == nullNode ? nullNode : minimum(remaining);
+    if (remaining == nullNode) {
+      lastNode = nullNode;
+    }
+
+    if (bloomFilter != null) {
+      bloomStaleKeys += removed;
+      if (bloomStaleKeys > bloomFilter.capacity() / 2) {
+        rebuildBloomFilter();
+      }
+    }
+
+    if (metrics != null) {
+      metrics.deletes.add(removed);
+    }
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.operation = "removeBelow";
+      event.keyCount = removed;
+      event.commit();
+    }
+    return removed;
+  }
+
+  /**
+   * Removes the keys smaller than the bound from a detached subtree.
+   *
+   * @param node The root of the subtree.
+   * @param bound The smallest key to keep.
+   * @param action The callback receiving each removed key.
+   *
+   * @return The root of a valid Red-Black subtree holding the kept keys; its root may be red.
+   */
+  private Node splitFrom(Node node, int bound, IntConsumer action) {
+    if (node == nullNode) {
+      return nullNode;
+    }
+
+    Node left = node.leftChild;
+    Node right = node.rightChild;
+
+    if (node.data < bound) {
+      // The left subtree only holds smaller keys, so all of it goes.
+      dropSubtree(left, action);
+      dropNode(node, action);
+      return splitFrom(right, bound, action);
+    }
+
+    return join(splitFrom(left, bound, action), node, right);
+  }
+
+  /**
+   * Joins two detached subtrees and a middle node, where every key in the left
+   * subtree is smaller than the middle key and every key in the right subtree is
+   * at least the middle key. The middle node is hung from the spine of the taller
+   * subtree at the shorter one's black height, then fixed up like an insert.
+   *
+   * @param left The left subtree, possibly the null node.
+   * @param middle The node to join on.
+   * @param right The right subtree, possibly the null node.
+   *
+   * @return The root of the joined subtree.
+   */
+  private Node join(Node left, Node middle, Node right) {
+    left.color = Color.BLACK;
+    right.color = Color.BLACK;
+    int leftHeight = blackHeight(left);
+    int rightHeight = blackHeight(right);
+
+    middle.leftChild = left;
+    middle.rightChild = right;
+    left.parent = middle;
+    right.parent = middle;
+
+    if (leftHeight == rightHeight) {
+      middle.color = Color.BLACK;
+      middle.parent = nullNode;
+      return middle;
+    }
+
+    Node tallRoot = leftHeight > rightHeight ? left : right;
+    int targetHeight = Math.min(leftHeight, rightHeight);
+    Node parent = nullNode;
+    Node current = tallRoot;
+    int height = Math.max(leftHeight, rightHeight);
+
+    // Walk down the inner spine to the first black node of the shorter subtree's height.
+    while (current.color == Color.RED || height > targetHeight) {
+      if (current.color == Color.BLACK) {
+        height--;
+      }
+      parent = current;
+      current = leftHeight > rightHeight ? current.rightChild : current.leftChild;
+    }
+
+    middle.color = Color.RED;
+    middle.parent = parent;
+    current.parent = middle;
+    tallRoot.parent = nullNode;
+
+    if (leftHeight > rightHeight) {
+      middle.leftChild = current;
+      parent.rightChild = middle;
+    } else {
+      middle.rightChild = current;
+      parent.leftChild = middle;
+    }
+
+    // The fix-up and its rotations work on this.root, so point it at the tall subtree.
+    this.root = tallRoot;
+    insertFixUp(middle);
+    return this.root;
+  }
+
+  /**
+   * Counts the black nodes on the leftmost path of a subtree.
+   *
+   * @param node The root of the subtree.
+   *
+   * @return The black height, 0 for the null node.
+   */
+  private int blackHeight(Node node) {
+    int height = 0;
+
+    for (Node current = node; current != nullNode; current = current.leftChild) {
+      if (current.color == Color.BLACK) {
+        height++;
+      }
+    }
+    return height;
+  }
+
+  /**
+   * Removes every node of a detached subtree in ascending order.
+   *
+   * @param node The root of the subtree.
+   * @param action The callback receiving each removed key.
+   */
+  private void dropSubtree(Node node, IntConsumer action) {
+    if (node == nullNode) {
+      return;
+    }
+
+    Node right = node.rightChild;
+    dropSubtree(node.leftChild, action);
+    dropNode(node, action);
+    dropSubtree(right, action);
+  }
+
+  /**
+   * Does the bookkeeping for one node removed by removeBelow.
+   *
+   * @param node The removed node, already detached from the tree.
+   * @param action The callback receiving the removed key.
+   */
+  private void dropNode(Node node, IntConsumer action) {
+    int key = node.data;
+
+    if (traceRecorder != null) {
+      traceRecorder.record(TraceRecorder.DELETE, key);
+    }
+    markDirty(key);
+    if (hotKeys != null) {
+      hotKeys.invalidate(key);
+    }
+
+    size--;
+    modCount++;
+    if (node == lastInserted) {
+      lastInserted = nullNode;
+    }
+    recycleNode(node);
+    action.accept(key);
+  }
+
   /**
    * Deletes the given node from the Red-Black Tree.
    *
@@ -146,6 +727,15 @@ public class RedBlackTree {
    *
    */
   private void deleteNode(Node nodeToDelete) {
+    // Nodes keep their identity through the transplants below, so the neighbours
+    // found now are still the right ends afterwards.
+    if (nodeToDelete == firstNode) {
+      firstNode = successor(nodeToDelete);
+    }
+    if (nodeToDelete == lastNode) {
+      lastNode = predecessor(nodeToDelete);
+    }
+
     Node successor = nodeToDelete;
     Node nodeChild;
     Color originalColor = successor.color;
@@ -178,6 +768,16 @@ public class RedBlackTree {
     if (originalColor == Color.BLACK) {
       deleteFixUp(nodeChild);
     }
+    if (hotKeys != null) {
+      hotKeys.invalidate(nodeToDelete.data);
+    }
+
+    size--;
+    modCount++;
+    if (nodeToDelete == lastInserted) {
+      lastInserted = nullNode;
+    }
+    recycleNode(nodeToDelete);
   }
 
   /**
@@ -188,7 +788,11 @@ public class RedBlackTree {
    * @param nodeToBeFixed The node to fix.
    */
   private void deleteFixUp(Node nodeToBeFixed) {
+    int iterations = 0;
+
     while (nodeToBeFixed != root && nodeToBeFixed.color == Color.BLACK) {
+      iterations++;
+
       if (nodeToBeFixed == nodeToBeFixed.parent.leftChild) {
         Node sibling = nodeToBeFixed.parent.rightChild;
 
@@ -265,6 +869,10 @@ public class RedBlackTree {
     }
 
     nodeToBeFixed.color = Color.BLACK;
+
+    if (metrics != null) {
+      metrics.deleteFixUpIterations.add(iterations);
+    }
   }
 
   /**
@@ -299,6 +907,98 @@ public class RedBlackTree {
     return current;
   }
 
+  /**
+   * Returns the node with the next larger key, in tree order.
+   *
+   * @param node A node in the tree.
+   *
+   * @return The in-order successor, or the null node if the node is the last one.
+   */
+  Node successor(Node node) {
+    if (node.rightChild != nullNode) {
+      return minimum(node.rightChild);
+    }
+
+    Node current = node;
+    while (current.parent != nullNode && current == current.parent.rightChild) {
+      current = current.parent;
+    }
+    return current.parent;
+  }
+
+  /**
+   * Returns the node with the next smaller key, in tree order.
+   *
+   * @param node A node in the tree.
+   *
+   * @return The in-order predecessor, or the null node if the node is the first one.
+   */
+  private Node predecessor(Node node) {
+    if (node.leftChild != nullNode) {
+      Node current = node.leftChild;
+
+      while (current.rightChild != nullNode) {
+        current = current.rightChild;
+      }
+      return current;
+    }
+
+    Node current = node;
+    while (current.parent != nullNode && current == current.parent.leftChild) {
+      current = current.parent;
+    }
+    return current.parent;
+  }
+
+  /**
+   * Returns the first node whose key is at least the given key.
+   *
+   * @param key The lower bound.
+   *
+   * @return The node, or the null node if every key is smaller.
+   */
+  Node ceiling(int key) {
+    Node current = this.root;
+    Node result = nullNode;
+
+    while (current != nullNode) {
+      if (current.data >= key) {
+        result = current;
+        current = current.leftChild;
+      } else {
+        current = current.rightChild;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of inserts and deletes applied so far.
+   *
+   * @return The modification count.
+   */
+  int modCount() {
+    return modCount;
+  }
+
+  /**
+   * Returns the node with the smallest key without walking the left spine.
+   *
+   * @return The first node, or the null node if the tree is empty.
+   */
+  Node first() {
+    return firstNode;
+  }
+
+  /**
+   * Returns the node with the largest key without walking the right spine.
+   *
+   * @return The last node, or the null node if the tree is empty.
+   */
+  Node last() {
+    return lastNode;
+  }
+
   /*
    ---------------------Search Methods------------------------
   */
@@ -310,8 +1010,71 @@ public class RedBlackTree {
    *
    * @return true if the key is found, false otherwise.
    */
+  @Override
   public boolean search(int key) {
-    return searchHelper(this.root, key);
+    TreeEvents.Search event = new TreeEvents.Search();
+    event.begin();
+
+    if (traceRecorder != null) {
+      traceRecorder.record(TraceRecorder.SEARCH, key);
+    }
+
+    boolean found;
+
+    if (hotKeys != null && hotKeys.contains(key)) {
+      found = true;
+      if (metrics != null) {
+        metrics.hotKeyHits.increment();
+      }
+    } else if (bloomFilter != null && !bloomFilter.mightContain(key)) {
+      found = false;
+      if (metrics != null) {
+        metrics.bloomFilterRejects.increment();
+      }
+    } else {
+      found = searchHelper(this.root, key);
+      if (!found && bloomFilter != null && metrics != null) {
+        metrics.bloomFilterFalsePositives.increment();
+      }
+      if (found && hotKeys != null) {
+        hotKeys.admit(key);
+      }
+    }
+
+    if (metrics != null) {
+      (found ? metrics.searchHits : metrics.searchMisses).increment();
+    }
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.key = key;
+      event.pathLength = searchPathLength(key);
+      event.found = found;
+      event.commit();
+    }
+    return found;
+  }
+
+  /**
+   * Counts the nodes a search for the key visits. Only used for slow-search events.
+   *
+   * @param key The data key that was searched for.
+   *
+   * @return The number of nodes visited.
+   */
+  private int searchPathLength(int key) {
+    int pathLength = 0;
+    Node current = this.root;
+
+    while (current != nullNode) {
+      pathLength++;
+
+      if (current.data == key) {
+        break;
+      }
+      current = key < current.data ? current.leftChild : current.rightChild;
+    }
+    return pathLength;
   }
 
   /**
@@ -345,6 +1108,11 @@ public class RedBlackTree {
    * @param currentNode The node to perform a left rotation around.
    */
   private void leftRotate(Node currentNode) {
+    rotationCount++;
+    if (metrics != null) {
+      metrics.leftRotations.increment();
+    }
+
     Node currentRightChild = currentNode.rightChild;
     currentNode.rightChild = currentRightChild.leftChild;
 
@@ -372,6 +1140,11 @@ public class RedBlackTree {
    * @param currentNode The node to perform a right rotation around.
    */
   private void rightRotate(Node currentNode) {
+    rotationCount++;
+    if (metrics != null) {
+      metrics.rightRotations.increment();
+    }
+
     Node currentLeftChild = currentNode.leftChild;
     currentNode.leftChild = currentLeftChild.rightChild;
 
@@ -401,7 +1174,10 @@ public class RedBlackTree {
    * @param currentNode The newly inserted node.
    */
   private void insertFixUp(Node currentNode) {
+    int iterations = 0;
+
     while (currentNode.parent.color == Color.RED) {
+      iterations++;
 
       if (currentNode.parent == currentNode.parent.parent.leftChild) {
         Node uncle = currentNode.parent.parent.rightChild;
@@ -443,6 +1219,422 @@ public class RedBlackTree {
     }
 
     this.root.color = Color.BLACK;
+
+    if (metrics != null) {
+      metrics.insertFixUpIterations.add(iterations);
+    }
+  }
+
+  /*
+   ---------------------Range Methods------------------------
+   */
+
+  /**
+   * Visits every key between low and high (both inclusive) in ascending order.
+   *
+   * @param low The smallest key to visit.
+   * @param high The largest key to visit.
+   * @param action The callback receiving each key.
+   */
+  @Override
+  public void range(int low, int high, IntConsumer action) {
+    TreeEvents.Bulk event = new TreeEvents.Bulk();
+    event.begin();
+
+    if (!event.isEnabled()) {
+      rangeHelper(this.root, low, high, action);
+      return;
+    }
+
+    long[] count = new long[1];
+    rangeHelper(this.root, low, high, key -> {
+      count[0]++;
+      action.accept(key);
+    });
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.operation = "range";
+      event.keyCount = count[0];
+      event.commit();
+    }
+  }
+
+  /**
+   * Publishes the keys between low and high (both inclusive) in ascending order as
+   * a reactive stream of chunks. Only one chunk is held at a time, however long the
+   * range. Subscribers fail with a ConcurrentModificationException if the tree is
+   * modified during their scan.
+   *
+   * @param low The smallest key to publish.
+   * @param high The largest key to publish.
+   * @param chunkSize The maximum number of keys per chunk.
+   *
+   * @return A publisher that starts a fresh scan for every subscriber.
+   *
+   * @throws IllegalArgumentException If chunkSize is less than 1.
+   */
+  public Flow.Publisher<int[]> rangePublisher(int low, int high, int chunkSize) {
+    return new RangePublisher(this, low, high, chunkSize);
+  }
+
+  /**
+   * Helper method to recursively visit the keys of a subtree within a range.
+   *
+   * @param node The root of the subtree to visit.
+   * @param low The smallest key to visit.
+   * @param high The largest key to visit.
+   * @param action The callback receiving each key.
+   */
+  private void rangeHelper(Node node, int low, int high, IntConsumer action) {
+    if (node == nullNode) {
+      return;
+    }
+
+    // Rotations can move equal keys to the left, so both sides are checked inclusively.
+    if (low <= node.data) {
+      rangeHelper(node.leftChild, low, high, action);
+    }
+
+    if (low <= node.data && node.data <= high) {
+      action.accept(node.data);
+    }
+
+    if (node.data <= high) {
+      rangeHelper(node.rightChild, low, high, action);
+    }
+  }
+
+  /**
+   * Returns the number of keys in the tree.
+   *
+   * @return The key count.
+   */
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the height of the tree, counting nodes on the longest root-to-leaf path.
+   * This walks the whole tree.
+   *
+   * @return The height, or 0 if the tree is empty.
+   */
+  @Override
+  public int height() {
+    return heightHelper(this.root);
+  }
+
+  /**
+   * Helper method to recursively compute the height of a subtree.
+   *
+   * @param node The root of the subtree.
+   *
+   * @return The height of the subtree.
+   */
+  private int heightHelper(Node node) {
+    if (node == nullNode) {
+      return 0;
+    }
+    return 1 + Math.max(heightHelper(node.leftChild), heightHelper(node.rightChild));
+  }
+
+  /**
+   * Copies the keys into an immutable, read-optimized structure.
+   * Later changes to this tree are not reflected in the frozen copy.
+   *
+   * @return The frozen copy of the current keys.
+   */
+  public FrozenTree freeze() {
+    TreeEvents.Bulk event = new TreeEvents.Bulk();
+    event.begin();
+
+    int[] keys = new int[size];
+    int[] count = new int[1];
+
+    rangeHelper(this.root, Integer.MIN_VALUE, Integer.MAX_VALUE, key -> keys[count[0]++] = key);
+    FrozenTree frozen = new FrozenTree(keys);
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.operation = "freeze";
+      event.keyCount = keys.length;
+      event.commit();
+    }
+    return frozen;
+  }
+
+  /*
+   ---------------------Metrics Methods------------------------
+   */
+
+  /**
+   * Starts counting operations, rotations and fix-up iterations.
+   * While metrics are disabled the instrumentation is a single null check.
+   *
+   * @return The counters for this tree, which can be published over JMX.
+   */
+  public TreeMetrics enableMetrics() {
+    if (metrics == null) {
+      metrics = new TreeMetrics(this);
+    }
+    return metrics;
+  }
+
+  /**
+   * Stops counting. Counters already handed out keep their last values.
+   */
+  public void disableMetrics() {
+    metrics = null;
+  }
+
+  /**
+   * Puts a Bloom filter in front of search, so most searches for absent keys
+   * return after reading one filter block instead of descending the tree.
+   * The filter is kept up to date on insert and rebuilt from the tree when the
+   * tree outgrows it or after many deletes, which keeps the false-positive rate
+   * near the target. Calling this again rebuilds the filter with the new rate.
+   *
+   * @param falsePositiveRate The target false-positive rate, e.g. 0.01.
+   *
+   * @throws IllegalArgumentException If the rate is not strictly between 0 and 1.
+   */
+  public void enableBloomFilter(double falsePositiveRate) {
+    if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+      throw new IllegalArgumentException("False-positive rate must be in (0, 1): "
+              + falsePositiveRate);
+    }
+
+    this.bloomFalsePositiveRate = falsePositiveRate;
+    rebuildBloomFilter();
+  }
+
+  /**
+   * Removes the Bloom filter; searches descend the tree again.
+   */
+  public void disableBloomFilter() {
+    bloomFilter = null;
+  }
+
+  /**
+   * Returns the memory used by the Bloom filter.
+   *
+   * @return The filter size in bytes, or 0 if no filter is enabled.
+   */
+  public long getBloomFilterBytes() {
+    BlockedBloomFilter filter = bloomFilter;
+    return filter == null ? 0 : filter.memoryBytes();
+  }
+
+  /**
+   * Puts a small cache of frequently searched keys in front of search, for skewed
+   * workloads where a few keys get most of the lookups. A search for a cached key
+   * reads one cache line instead of descending the tree; other searches descend as
+   * before and may be admitted. The tree itself is not reshaped, so every key keeps
+   * its O(log n) bound. Deletes evict their key. Searches still do not need
+   * exclusive access: concurrent readers may share the cache. Calling this again
+   * replaces the cache with an empty one.
+   *
+   * @param capacity The number of hot keys to hold, rounded up to a power of two.
+   *
+   * @throws IllegalArgumentException If the capacity is less than 1.
+   */
+  public void enableHotKeyCache(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+
+    hotKeys = new HotKeyCache(capacity);
+  }
+
+  /**
+   * Removes the hot-key cache; every search descends the tree again.
+   */
+  public void disableHotKeyCache() {
+    hotKeys = null;
+  }
+
+  /**
+   * Returns the memory used by the hot-key cache.
+   *
+   * @return The cache size in bytes, or 0 if no cache is enabled.
+   */
+  public long getHotKeyCacheBytes() {
+    HotKeyCache cache = hotKeys;
+    return cache == null ? 0 : cache.memoryBytes();
+  }
+
+  /**
+   * Replaces the Bloom filter with one sized for half again the current key count
+   * and fills it from the tree.
+   */
+  private void rebuildBloomFilter() {
+    int capacity = Math.max(MIN_BLOOM_CAPACITY, size + size / 2);
+    BlockedBloomFilter filter = new BlockedBloomFilter(capacity, bloomFalsePositiveRate);
+
+    rangeHelper(this.root, Integer.MIN_VALUE, Integer.MAX_VALUE, filter::add);
+    bloomFilter = filter;
+    bloomStaleKeys = 0;
+
+    if (metrics != null) {
+      metrics.bloomFilterRebuilds.increment();
+    }
+  }
+
+  /**
+   * Streams every insert, delete and search to the given recorder.
+   * Pass null to stop recording. The caller remains responsible for closing the recorder.
+   *
+   * @param recorder The recorder to write to, or null.
+   */
+  public void setTraceRecorder(TraceRecorder recorder) {
+    this.traceRecorder = recorder;
+  }
+
+  /*
+   ---------------------Node Recycling Methods------------------------
+   */
+
+  /**
+   * Enables reuse of deleted nodes by later inserts.
+   * Up to poolCapacity unlinked nodes are kept on a free-list so that
+   * steady-state delete/insert churn does not allocate.
+   * A capacity of 0 disables recycling and releases the pooled nodes.
+   *
+   * @param poolCapacity The maximum number of nodes kept on the free-list.
+   *
+   * @throws IllegalArgumentException If poolCapacity is negative.
+   */
+  public void enableNodeRecycling(int poolCapacity) {
+    if (poolCapacity < 0) {
+      throw new IllegalArgumentException("poolCapacity must not be negative: " + poolCapacity);
+    }
+    this.poolCapacity = poolCapacity;
+
+    while (freeCount > poolCapacity) {
+      freeList = freeList.parent;
+      freeCount--;
+    }
+  }
+
+  /**
+   * Returns the number of inserts that reused a pooled node.
+   *
+   * @return The pool hit count.
+   */
+  public long getPoolHits() {
+    return poolHits;
+  }
+
+  /**
+   * Returns the number of inserts that had to allocate while recycling was enabled.
+   *
+   * @return The pool miss count.
+   */
+  public long getPoolMisses() {
+    return poolMisses;
+  }
+
+  /**
+   * Returns the fraction of inserts served from the free-list.
+   *
+   * @return The hit rate between 0 and 1, or 0 if no insert used the pool yet.
+   */
+  public double getPoolHitRate() {
+    long total = poolHits + poolMisses;
+    return total == 0 ? 0.0 : (double) poolHits / total;
+  }
+
+  /**
+   * Takes a node from the free-list, or allocates one if the list is empty.
+   *
+   * @param item The data key for the node.
+   *
+   * @return A node holding the key, with color and references still to be set.
+   */
+  private Node allocateNode(int item) {
+    if (poolCapacity == 0) {
+      return new Node(item);
+    }
+
+    Node node = freeList;
+
+    if (node == null) {
+      poolMisses++;
+      return new Node(item);
+    }
+
+    freeList = node.parent;
+    freeCount--;
+    poolHits++;
+
+    node.data = item;
+    return node;
+  }
+
+  /**
+   * Puts an unlinked node on the free-list if recycling is enabled and the pool has room.
+   * The parent reference doubles as the free-list link.
+   *
+   * @param node The node that was removed from the tree.
+   */
+  private void recycleNode(Node node) {
+    if (freeCount >= poolCapacity) {
+      return;
+    }
+
+    node.leftChild = null;
+    node.rightChild = null;
+    node.parent = freeList;
+    freeList = node;
+    freeCount++;
+  }
+
+  /*
+   ---------------------Checkpoint Methods------------------------
+   */
+
+  /**
+   * Starts recording which key ranges are changed by insert and delete.
+   * Keys are grouped into ranges of 2^rangeBits consecutive values, so a
+   * checkpoint only has to rewrite the ranges that were touched.
+   *
+   * @param rangeBits The log2 of the number of keys per range (0 to 31).
+   *
+   * @throws IllegalArgumentException If rangeBits is out of bounds.
+   */
+  public void trackDirtyRanges(int rangeBits) {
+    if (rangeBits < 0 || rangeBits > 31) {
+      throw new IllegalArgumentException("rangeBits must be between 0 and 31: " + rangeBits);
+    }
+    this.dirtyRangeBits = rangeBits;
+    this.dirtyRanges = new DirtyRangeSet();
+  }
+
+  /**
+   * Returns the ranges changed since the last call and clears them.
+   *
+   * @return The sorted ids of the dirty ranges.
+   *
+   * @throws IllegalStateException If dirty range tracking is not enabled.
+   */
+  int[] drainDirtyRanges() {
+    if (dirtyRanges == null) {
+      throw new IllegalStateException("Dirty range tracking is not enabled");
+    }
+    return dirtyRanges.drain();
+  }
+
+  /**
+   * Records that the range containing the given key has changed.
+   *
+   * @param key The key that was inserted or deleted.
+   */
+  private void markDirty(int key) {
+    if (dirtyRanges != null) {
+      dirtyRanges.add(key >> dirtyRangeBits);
+    }
   }
 
   /*
@@ -0,0 +1,138 @@
+package redblacktree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Publishes read-only snapshots of a tree's keys into memory-mapped files, so
+ * that several processes on one host can query one shared copy through
+ * SharedTreeReader.
+ *
+ * <p>Each snapshot is a data file named name.version holding the FrozenTree
+ * layouts: a magic number, the key count, the Eytzinger array and the sorted
+ * keys, all as native-order ints. A control file named name.control holds the
+ * current version as one long. A snapshot is written completely before the
+ * control version is flipped to it with a release store, so readers either see
+ * the old snapshot or the whole new one. Put the files on a RAM-backed file
+ * system such as /dev/shm so their pages are shared instead of read from disk.
+ *
+ * <p>One publisher per name. The previous snapshot is kept for readers still
+ * opening it; older ones are deleted, which does not affect readers that have
+ * already mapped them.
+ * Author: Alex Matthes
+ */
+public class SharedTreePublisher implements Closeable {
+
+  /**
+   * The RAM-backed shared memory directory on Linux.
+   */
+  public static final Path DEFAULT_DIRECTORY = Path.of("/dev/shm");
+
+  static final int MAGIC = 0x52425348; // "RBSH"
+  static final int HEADER_INTS = 2;
+
+  // Access to the version long in a mapped buffer with acquire/release ordering.
+  static final VarHandle VERSION = MethodHandles.byteBufferViewVarHandle(long[].class,
+          ByteOrder.nativeOrder());
+
+  private final Path directory;
+  private final String name;
+  private final FileChannel controlChannel;
+  private final MappedByteBuffer control;
+  private long version;
+
+  /**
+   * Opens or creates the control file of the given snapshot name.
+   * A restarted publisher continues from the last published version.
+   *
+   * @param directory The directory for the control and data files.
+   * @param name The name shared by publisher and readers.
+   *
+   * @throws IOException If the control file cannot be opened or mapped.
+   */
+  public SharedTreePublisher(Path directory, String name) throws IOException {
+    this.directory = directory;
+    this.name = name;
+    this.controlChannel = FileChannel.open(controlFile(directory, name),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.control = controlChannel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+    this.version = (long) VERSION.getAcquire(control, 0);
+  }
+
+  /**
+   * Publishes a snapshot of the tree's current keys.
+   *
+   * @param tree The tree to publish.
+   *
+   * @return The version of the new snapshot.
+   *
+   * @throws IOException If the snapshot cannot be written.
+   */
+  public long publish(RedBlackTree tree) throws IOException {
+    return publish(tree.freeze());
+  }
+
+  /**
+   * Publishes a frozen tree as the next snapshot.
+   *
+   * @param tree The keys to publish.
+   *
+   * @return The version of the new snapshot.
+   *
+   * @throws IOException If the snapshot cannot be written.
+   */
+  public synchronized long publish(FrozenTree tree) throws IOException {
+    long next = version + 1;
+    int[] eytzinger = tree.eytzingerLayout();
+    int[] sorted = tree.sortedKeys();
+    long bytes = (long) (HEADER_INTS + eytzinger.length + sorted.length) * Integer.BYTES;
+
+    try (FileChannel channel = FileChannel.open(dataFile(directory, name, next),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+      IntBuffer ints = data.order(ByteOrder.nativeOrder()).asIntBuffer();
+
+      ints.put(MAGIC).put(sorted.length).put(eytzinger).put(sorted);
+    }
+
+    // The file contents are visible to other processes through the page cache
+    // before the version store below, which readers observe with acquire.
+    VERSION.setRelease(control, 0, next);
+    version = next;
+
+    Files.deleteIfExists(dataFile(directory, name, next - 2));
+    return next;
+  }
+
+  /**
+   * Returns the last published version.
+   *
+   * @return The version, or 0 if nothing has been published.
+   */
+  public synchronized long version() {
+    return version;
+  }
+
+  @Override
+  public void close() throws IOException {
+    controlChannel.close();
+  }
+
+  static Path controlFile(Path directory, String name) {
+    return directory.resolve(name + ".control");
+  }
+
+  static Path dataFile(Path directory, String name, long version) {
+    return directory.resolve(name + "." + version);
+  }
+}
@@ -0,0 +1,184 @@
+package redblacktree;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntConsumer;
+
+/**
+ * Queries the snapshots written by a SharedTreePublisher, possibly in another process.
+ * Every query first reads the control version; when it has moved on, the new
+ * snapshot file is mapped and used from then on. Queries never lock or copy
+ * keys, and any number of threads may share one reader.
+ * Author: Alex Matthes
+ */
+public class SharedTreeReader {
+
+  /**
+   * One mapped snapshot.
+   */
+  private static final class Snapshot {
+    final long version;
+    final IntBuffer eytzinger;
+    final IntBuffer sorted;
+
+    Snapshot(long version, IntBuffer eytzinger, IntBuffer sorted) {
+      this.version = version;
+      this.eytzinger = eytzinger;
+      this.sorted = sorted;
+    }
+  }
+
+  private final Path directory;
+  private final String name;
+  private final MappedByteBuffer control;
+  private volatile Snapshot current;
+
+  /**
+   * Opens the snapshots published under the given name.
+   *
+   * @param directory The directory holding the control and data files.
+   * @param name The name used by the publisher.
+   *
+   * @throws IOException If the control file does not exist or cannot be mapped.
+   */
+  public SharedTreeReader(Path directory, String name) throws IOException {
+    this.directory = directory;
+    this.name = name;
+
+    try (FileChannel channel = FileChannel.open(SharedTreePublisher.controlFile(directory, name),
+            StandardOpenOption.READ)) {
+      this.control = channel.map(FileChannel.MapMode.READ_ONLY, 0, Long.BYTES);
+    }
+    this.current = new Snapshot(0, IntBuffer.allocate(1), IntBuffer.allocate(0));
+  }
+
+  /**
+   * Searches the current snapshot for a key.
+   *
+   * @param key The data key to search for.
+   *
+   * @return true if the key is found, false otherwise.
+   *
+   * @throws UncheckedIOException If a new snapshot cannot be mapped.
+   */
+  public boolean search(int key) {
+    IntBuffer layout = snapshot().eytzinger;
+    int n = layout.limit() - 1;
+    int slot = 1;
+
+    // The same branchless descent as FrozenTree.search.
+    while (slot <= n) {
+      slot = 2 * slot + (layout.get(slot) < key ? 1 : 0);
+    }
+    slot >>>= Integer.numberOfTrailingZeros(~slot) + 1;
+
+    return slot != 0 && layout.get(slot) == key;
+  }
+
+  /**
+   * Visits every key of the current snapshot between low and high (both
+   * inclusive) in ascending order. The whole scan sees one snapshot.
+   *
+   * @param low The smallest key to visit.
+   * @param high The largest key to visit.
+   * @param action The callback receiving each key.
+   *
+   * @throws UncheckedIOException If a new snapshot cannot be mapped.
+   */
+  public void range(int low, int high, IntConsumer action) {
+    IntBuffer keys = snapshot().sorted;
+    int base = 0;
+    int length = keys.limit();
+
+    // Lower bound of low, as in FrozenTree.rank.
+    while (length > 1) {
+      int half = length >>> 1;
+      base += keys.get(base + half) < low ? half : 0;
+      length -= half;
+    }
+    if (keys.limit() > 0 && keys.get(base) < low) {
+      base++;
+    }
+
+    for (int i = base; i < keys.limit() && keys.get(i) <= high; i++) {
+      action.accept(keys.get(i));
+    }
+  }
+
+  /**
+   * Returns the number of keys in the current snapshot.
+   *
+   * @return The key count.
+   */
+  public int size() {
+    return snapshot().sorted.limit();
+  }
+
+  /**
+   * Returns the version of the current snapshot.
+   *
+   * @return The version, or 0 if nothing has been published yet.
+   */
+  public long version() {
+    return snapshot().version;
+  }
+
+  /**
+   * Returns the snapshot matching the published version, mapping it if it is new.
+   */
+  private Snapshot snapshot() {
+    Snapshot snapshot = current;
+
+    if (snapshot.version == (long) SharedTreePublisher.VERSION.getAcquire(control, 0)) {
+      return snapshot;
+    }
+    return refresh();
+  }
+
+  private synchronized Snapshot refresh() {
+    while (true) {
+      long version = (long) SharedTreePublisher.VERSION.getAcquire(control, 0);
+
+      if (current.version == version) {
+        return current;
+      }
+
+      try {
+        current = map(version);
+        return current;
+      } catch (NoSuchFileException e) {
+        // The publisher moved on and deleted this version; read the control again.
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  private Snapshot map(long version) throws IOException {
+    try (FileChannel channel = FileChannel.open(
+            SharedTreePublisher.dataFile(directory, name, version), StandardOpenOption.READ)) {
+      IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+              .order(ByteOrder.nativeOrder()).asIntBuffer();
+
+      if (ints.limit() < SharedTreePublisher.HEADER_INTS
+              || ints.get(0) != SharedTreePublisher.MAGIC) {
+        throw new IOException("Not a shared tree snapshot: version " + version);
+      }
+
+      int count = ints.get(1);
+      int eytzingerStart = SharedTreePublisher.HEADER_INTS;
+      int sortedStart = eytzingerStart + count + 1;
+
+      IntBuffer eytzinger = ints.slice(eytzingerStart, count + 1);
+      IntBuffer sorted = ints.slice(sortedStart, count);
+      return new Snapshot(version, eytzinger, sorted);
+    }
+  }
+}
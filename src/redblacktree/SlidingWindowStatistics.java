@@ -0,0 +1,210 @@
+package redblacktree;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Rolling order statistics over the last N values of a stream: percentiles,
+ * median and rank in O(log N) per query, without sorting the window.
+ *
+ * <p>The window is a ring buffer of the last N values, mirrored in an
+ * order-statistic Red-Black Tree with a count per distinct value. Each new value
+ * is inserted and the value it pushes out of the window is removed, both in
+ * O(log N). addAll takes a batch at a time: a batch at least as long as the
+ * window simply rebuilds the tree from its tail in linear time, and a shorter
+ * batch first cancels values that both enter and leave the window, so repeated
+ * values, common in latency streams, cost no tree updates at all.
+ *
+ * <p>Storage starts small and grows with the number of distinct values, so
+ * thousands of windows over repetitive metrics stay cheap; memoryBytes reports
+ * the footprint. Not thread-safe.
+ * Author: Alex Matthes
+ */
+public class SlidingWindowStatistics {
+
+  private final int[] window;
+  private final OrderStatisticTree tree;
+  private int next;
+  private int count;
+
+  /**
+   * Constructs an empty window.
+   *
+   * @param windowSize The number of most recent values the statistics cover.
+   *
+   * @throws IllegalArgumentException If windowSize is less than 1.
+   */
+  public SlidingWindowStatistics(int windowSize) {
+    if (windowSize < 1) {
+      throw new IllegalArgumentException("windowSize must be positive: " + windowSize);
+    }
+
+    this.window = new int[windowSize];
+    this.tree = new OrderStatisticTree(Math.min(windowSize, 16));
+  }
+
+  /**
+   * Adds a value, evicting the oldest one once the window is full.
+   *
+   * @param value The new value.
+   */
+  public void add(int value) {
+    if (count == window.length) {
+      int expired = window[next];
+
+      if (expired == value) {
+        // The same value leaves and enters, so the tree does not change.
+        next = (next + 1) % window.length;
+        return;
+      }
+      tree.remove(expired);
+    } else {
+      count++;
+    }
+
+    window[next] = value;
+    next = (next + 1) % window.length;
+    tree.insert(value);
+  }
+
+  /**
+   * Adds a batch of values in order, as if add were called for each.
+   *
+   * @param values The new values, oldest first.
+   */
+  public void addAll(int[] values) {
+    if (values.length >= window.length) {
+      // Only the last windowSize values survive.
+      int from = values.length - window.length;
+      System.arraycopy(values, from, window, 0, window.length);
+      next = 0;
+      count = window.length;
+
+      int[] sorted = window.clone();
+      Arrays.sort(sorted);
+      tree.rebuild(sorted, sorted.length);
+      return;
+    }
+
+    int evicted = Math.max(0, count + values.length - window.length);
+    int oldest = (next - count + window.length) % window.length;
+    int[] leaving = new int[evicted];
+
+    for (int i = 0; i < evicted; i++) {
+      leaving[i] = window[(oldest + i) % window.length];
+    }
+    for (int value : values) {
+      window[next] = value;
+      next = (next + 1) % window.length;
+    }
+    count = Math.min(window.length, count + values.length);
+
+    int[] entering = values.clone();
+    Arrays.sort(leaving);
+    Arrays.sort(entering);
+
+    // Merge the two sorted lists, skipping values that leave and enter alike.
+    int i = 0;
+    int j = 0;
+
+    while (i < leaving.length || j < entering.length) {
+      if (j == entering.length || (i < leaving.length && leaving[i] < entering[j])) {
+        tree.remove(leaving[i++]);
+      } else if (i == leaving.length || entering[j] < leaving[i]) {
+        tree.insert(entering[j++]);
+      } else {
+        i++;
+        j++;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of values in the window.
+   *
+   * @return The window's current size.
+   */
+  public int size() {
+    return count;
+  }
+
+  /**
+   * Returns the value at the given percentile of the window, using the nearest-rank
+   * definition of LatencyHistogram: the smallest value with at least that share of
+   * the window at or below it.
+   *
+   * @param percentile The percentile between 0 and 100.
+   *
+   * @return The value at the percentile.
+   *
+   * @throws IllegalArgumentException If the percentile is outside [0, 100].
+   * @throws NoSuchElementException If the window is empty.
+   */
+  public int percentile(double percentile) {
+    if (!(percentile >= 0 && percentile <= 100)) {
+      throw new IllegalArgumentException("percentile must be in [0, 100]: " + percentile);
+    }
+    if (count == 0) {
+      throw new NoSuchElementException("The window is empty");
+    }
+
+    long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+    return tree.select((int) target - 1);
+  }
+
+  /**
+   * Returns the median of the window, the lower one for an even count.
+   *
+   * @return The median.
+   *
+   * @throws NoSuchElementException If the window is empty.
+   */
+  public int median() {
+    return percentile(50);
+  }
+
+  /**
+   * Returns the number of values in the window that are smaller than the given value.
+   *
+   * @param value The value to rank.
+   *
+   * @return The count of smaller values.
+   */
+  public int rank(int value) {
+    return tree.rank(value);
+  }
+
+  /**
+   * Returns the value at a position of the window in ascending order.
+   *
+   * @param index The position, from 0 to size() - 1.
+   *
+   * @return The value at that position.
+   *
+   * @throws IndexOutOfBoundsException If the index is outside the window.
+   */
+  public int select(int index) {
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException("index " + index + " outside window of " + count);
+    }
+    return tree.select(index);
+  }
+
+  /**
+   * Returns the bytes held by the ring buffer and the tree.
+   *
+   * @return The approximate memory footprint.
+   */
+  public long memoryBytes() {
+    return (long) window.length * Integer.BYTES + tree.memoryBytes();
+  }
+
+  /**
+   * Checks the Red-Black and size properties of the tree behind the window.
+   *
+   * @return true if the tree is valid and holds exactly the window's values.
+   */
+  public boolean isValid() {
+    return tree.isValid() && tree.size() == count;
+  }
+}
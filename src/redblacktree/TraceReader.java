@@ -0,0 +1,147 @@
+package redblacktree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a trace written by TraceRecorder one record at a time.
+ * Author: Alex Matthes
+ */
+public class TraceReader implements Closeable {
+
+  // Longest possible record: 1 opcode byte, a 10 byte varint and a 5 byte varint.
+  private static final int MAX_RECORD = 16;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final long startMillis;
+  private boolean endOfFile;
+
+  private byte operation;
+  private int key;
+  private long elapsedNanos;
+
+  /**
+   * Opens a trace file and reads its header.
+   *
+   * @param file The trace file to read.
+   *
+   * @throws IOException If the file cannot be read or is not a trace.
+   */
+  public TraceReader(Path file) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    this.buffer = ByteBuffer.allocateDirect(1 << 16);
+    buffer.flip();
+
+    fill();
+    if (buffer.remaining() < 12 || buffer.getInt() != TraceRecorder.MAGIC) {
+      channel.close();
+      throw new IOException("Not a trace file: " + file);
+    }
+    this.startMillis = buffer.getLong();
+  }
+
+  /**
+   * Advances to the next record.
+   *
+   * @return false if the end of the trace was reached.
+   *
+   * @throws IOException If the file cannot be read or ends in the middle of a record.
+   */
+  public boolean next() throws IOException {
+    if (buffer.remaining() < MAX_RECORD) {
+      fill();
+    }
+    if (!buffer.hasRemaining()) {
+      return false;
+    }
+
+    try {
+      operation = buffer.get();
+      elapsedNanos += getVarLong();
+      long zigZag = getVarLong();
+      key += (int) (zigZag >>> 1) ^ -(int) (zigZag & 1);
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Truncated trace record", e);
+    }
+    return true;
+  }
+
+  /**
+   * Returns the operation of the current record.
+   *
+   * @return One of TraceRecorder.INSERT, DELETE or SEARCH.
+   */
+  public byte operation() {
+    return operation;
+  }
+
+  /**
+   * Returns the key of the current record.
+   *
+   * @return The key.
+   */
+  public int key() {
+    return key;
+  }
+
+  /**
+   * Returns the time of the current record relative to the start of the recording.
+   *
+   * @return The elapsed time in nanoseconds.
+   */
+  public long elapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Returns the wall-clock time the recording started.
+   *
+   * @return The start time in milliseconds since the epoch.
+   */
+  public long startMillis() {
+    return startMillis;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Moves unread bytes to the front of the buffer and reads more from the file.
+   */
+  private void fill() throws IOException {
+    if (endOfFile) {
+      return;
+    }
+
+    buffer.compact();
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        endOfFile = true;
+        break;
+      }
+    }
+    buffer.flip();
+  }
+
+  private long getVarLong() {
+    long value = 0;
+    int shift = 0;
+    byte current;
+
+    do {
+      current = buffer.get();
+      value |= (long) (current & 0x7F) << shift;
+      shift += 7;
+    } while (current < 0);
+
+    return value;
+  }
+}
@@ -0,0 +1,116 @@
+package redblacktree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams tree operations to a compact binary trace file.
+ * Each record is one opcode byte, the time since the previous record as an
+ * unsigned varint, and the difference to the previous key as a zig-zag varint,
+ * so sequential keys and bursts of operations take 3 to 4 bytes per record.
+ * Records are buffered in a direct buffer and written through a FileChannel.
+ * Author: Alex Matthes
+ */
+public class TraceRecorder implements Closeable {
+
+  static final int MAGIC = 0x52425452; // "RBTR"
+
+  public static final byte INSERT = 0;
+  public static final byte DELETE = 1;
+  public static final byte SEARCH = 2;
+
+  // Large enough for the header or one record of at most 1 + 10 + 5 bytes.
+  private static final int MIN_FREE = 16;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private long previousTime;
+  private int previousKey;
+
+  /**
+   * Creates a recorder writing to the given file, replacing it if it exists.
+   *
+   * @param file The trace file to write.
+   *
+   * @throws IOException If the file cannot be opened.
+   */
+  public TraceRecorder(Path file) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    this.buffer = ByteBuffer.allocateDirect(1 << 16);
+    this.previousTime = System.nanoTime();
+
+    buffer.putInt(MAGIC);
+    buffer.putLong(System.currentTimeMillis());
+  }
+
+  /**
+   * Appends one operation to the trace.
+   *
+   * @param operation One of INSERT, DELETE or SEARCH.
+   * @param key The key the operation was applied to.
+   *
+   * @throws UncheckedIOException If the buffer cannot be flushed to the file.
+   */
+  public synchronized void record(byte operation, int key) {
+    if (buffer.remaining() < MIN_FREE) {
+      flush();
+    }
+
+    long now = System.nanoTime();
+
+    buffer.put(operation);
+    putVarLong(Math.max(0, now - previousTime));
+    int delta = key - previousKey;
+    putVarLong(Integer.toUnsignedLong((delta << 1) ^ (delta >> 31)));
+
+    previousTime = now;
+    previousKey = key;
+  }
+
+  /**
+   * Writes all buffered records to the file.
+   *
+   * @throws UncheckedIOException If the write fails.
+   */
+  public synchronized void flush() {
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Flushes the remaining records and closes the file.
+   *
+   * @throws IOException If the final write or the close fails.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      flush();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void putVarLong(long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+}
@@ -0,0 +1,389 @@
+package redblacktree;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of keys that applies groups of inserts and deletes atomically, with
+ * optimistic conflict detection, while plain readers keep running.
+ *
+ * <p>Keys are split into blocks of 2^rangeBits consecutive keys, and the blocks
+ * are spread over a fixed number of stripes. Each stripe is its own Red-Black
+ * Tree with a read-write lock and a version stamp that every commit touching the
+ * stripe increments. A single tree cannot carry per-subtree stamps, because
+ * rotations move nodes between subtrees; striping gives every key range a stable
+ * owner instead.
+ *
+ * <p>A transaction reads through its own buffered writes and records the version
+ * of every stripe it reads. Commit write-locks the stripes it read or wrote in
+ * ascending order, checks that no read stripe's version has moved, applies all
+ * writes and bumps the written stripes' versions, so readers see either none or
+ * all of them. Transactions on disjoint stripes never wait for each other. Reads
+ * inside a transaction that later fails to commit may have been inconsistent, so
+ * the transaction body must not act on them outside the transaction.
+ * Author: Alex Matthes
+ */
+public class TransactionalTree {
+
+  private final int rangeBits;
+  private final int stripeMask;
+  private final RedBlackTree[] stripes;
+  private final ReentrantReadWriteLock[] locks;
+
+  // Guarded by the stripe's lock: read under the read lock, bumped under the write lock.
+  private final long[] versions;
+
+  private final LongAdder commits = new LongAdder();
+  private final LongAdder conflicts = new LongAdder();
+
+  /**
+   * Constructs an empty tree with 64 stripes and blocks of 1024 keys.
+   */
+  public TransactionalTree() {
+    this(64, 10);
+  }
+
+  /**
+   * Constructs an empty tree.
+   *
+   * @param stripeCount The number of independently locked trees, a power of two.
+   * @param rangeBits The log2 of the number of consecutive keys per block.
+   *
+   * @throws IllegalArgumentException If stripeCount is not a positive power of two
+   *                                  or rangeBits is outside [0, 31].
+   */
+  public TransactionalTree(int stripeCount, int rangeBits) {
+    if (stripeCount <= 0 || Integer.bitCount(stripeCount) != 1) {
+      throw new IllegalArgumentException("stripeCount must be a power of two: " + stripeCount);
+    }
+    if (rangeBits < 0 || rangeBits > 31) {
+      throw new IllegalArgumentException("rangeBits must be in [0, 31]: " + rangeBits);
+    }
+
+    this.rangeBits = rangeBits;
+    this.stripeMask = stripeCount - 1;
+    this.stripes = new RedBlackTree[stripeCount];
+    this.locks = new ReentrantReadWriteLock[stripeCount];
+    this.versions = new long[stripeCount];
+
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new RedBlackTree();
+      locks[i] = new ReentrantReadWriteLock();
+    }
+  }
+
+  /**
+   * Checks whether a key is present, outside of any transaction.
+   *
+   * @param key The key to search for.
+   *
+   * @return true if the key is present.
+   */
+  public boolean search(int key) {
+    int stripe = stripeOf(key);
+
+    locks[stripe].readLock().lock();
+    try {
+      return stripes[stripe].search(key);
+    } finally {
+      locks[stripe].readLock().unlock();
+    }
+  }
+
+  /**
+   * Passes every key in the inclusive range [low, high] to the action, in
+   * ascending order. All stripes are read-locked together, so the keys form one
+   * consistent snapshot that contains each commit either entirely or not at all.
+   *
+   * @param low The lower bound, inclusive.
+   * @param high The upper bound, inclusive.
+   * @param action The action to apply to each key.
+   */
+  public void range(int low, int high, IntConsumer action) {
+    int[][] keys = new int[1][16];
+    int[] count = {0};
+
+    lockAllForReading();
+    try {
+      for (RedBlackTree stripe : stripes) {
+        stripe.range(low, high, key -> {
+          if (count[0] == keys[0].length) {
+            keys[0] = Arrays.copyOf(keys[0], count[0] * 2);
+          }
+          keys[0][count[0]++] = key;
+        });
+      }
+    } finally {
+      unlockAllForReading();
+    }
+
+    // Stripes hold disjoint keys, so sorting the concatenation merges them.
+    Arrays.sort(keys[0], 0, count[0]);
+    for (int i = 0; i < count[0]; i++) {
+      action.accept(keys[0][i]);
+    }
+  }
+
+  /**
+   * Returns the number of keys as of one consistent snapshot.
+   *
+   * @return The key count.
+   */
+  public int size() {
+    lockAllForReading();
+    try {
+      int size = 0;
+
+      for (RedBlackTree stripe : stripes) {
+        size += stripe.size();
+      }
+      return size;
+    } finally {
+      unlockAllForReading();
+    }
+  }
+
+  /**
+   * Checks the Red-Black properties of every stripe.
+   *
+   * @return true if every stripe is a valid Red-Black Tree.
+   */
+  public boolean isRedBlackTree() {
+    lockAllForReading();
+    try {
+      for (RedBlackTree stripe : stripes) {
+        if (!stripe.isRedBlackTree()) {
+          return false;
+        }
+      }
+      return true;
+    } finally {
+      unlockAllForReading();
+    }
+  }
+
+  /**
+   * Starts a transaction. Transactions are used by one thread at a time.
+   *
+   * @return The new transaction.
+   */
+  public Transaction begin() {
+    return new Transaction();
+  }
+
+  /**
+   * Runs the body in a fresh transaction and commits it, retrying the whole body
+   * until a commit succeeds.
+   *
+   * @param body The transaction body. It may run several times.
+   * @param <T> The type of the body's result.
+   *
+   * @return The result of the run that committed.
+   */
+  public <T> T execute(Function<Transaction, T> body) {
+    while (true) {
+      Transaction transaction = begin();
+      T result = body.apply(transaction);
+
+      if (transaction.commit()) {
+        return result;
+      }
+      // Give the conflicting committer a chance to finish before retrying.
+      Thread.yield();
+    }
+  }
+
+  /**
+   * Returns the number of committed transactions.
+   *
+   * @return The commit count.
+   */
+  public long getCommits() {
+    return commits.sum();
+  }
+
+  /**
+   * Returns the number of commits rejected because a read stripe had changed.
+   *
+   * @return The conflict count.
+   */
+  public long getConflicts() {
+    return conflicts.sum();
+  }
+
+  /**
+   * Buffers the writes of one transaction and tracks the stripe versions it read.
+   */
+  public final class Transaction {
+
+    private final Map<Integer, Boolean> writes = new HashMap<>();
+    private final long[] readVersions = new long[stripes.length];
+    private boolean doomed;
+    private boolean finished;
+
+    private Transaction() {
+      Arrays.fill(readVersions, -1);
+    }
+
+    /**
+     * Checks whether a key is present, seeing this transaction's own writes.
+     *
+     * @param key The key to search for.
+     *
+     * @return true if the key is present.
+     *
+     * @throws IllegalStateException If the transaction has already been committed.
+     */
+    public boolean search(int key) {
+      checkActive();
+
+      Boolean written = writes.get(key);
+      if (written != null) {
+        return written;
+      }
+
+      int stripe = stripeOf(key);
+      long version;
+      boolean found;
+
+      locks[stripe].readLock().lock();
+      try {
+        version = versions[stripe];
+        found = stripes[stripe].search(key);
+      } finally {
+        locks[stripe].readLock().unlock();
+      }
+
+      if (readVersions[stripe] == -1) {
+        readVersions[stripe] = version;
+      } else if (readVersions[stripe] != version) {
+        // Two reads of one stripe disagree; the commit can only fail.
+        doomed = true;
+      }
+      return found;
+    }
+
+    /**
+     * Buffers an insert. Inserting a present key has no effect.
+     *
+     * @param key The data key to be inserted.
+     *
+     * @throws IllegalStateException If the transaction has already been committed.
+     */
+    public void insert(int key) {
+      checkActive();
+      writes.put(key, Boolean.TRUE);
+    }
+
+    /**
+     * Buffers a delete. Deleting an absent key has no effect.
+     *
+     * @param key The data key to delete.
+     *
+     * @throws IllegalStateException If the transaction has already been committed.
+     */
+    public void delete(int key) {
+      checkActive();
+      writes.put(key, Boolean.FALSE);
+    }
+
+    /**
+     * Validates the stripes this transaction read and, if none has changed,
+     * applies all buffered writes atomically.
+     *
+     * @return true if the transaction committed, false on a conflict.
+     *
+     * @throws IllegalStateException If the transaction has already been committed.
+     */
+    public boolean commit() {
+      checkActive();
+      finished = true;
+
+      if (doomed) {
+        conflicts.increment();
+        return false;
+      }
+
+      boolean[] touched = new boolean[stripes.length];
+      boolean[] written = new boolean[stripes.length];
+
+      for (int stripe = 0; stripe < stripes.length; stripe++) {
+        touched[stripe] = readVersions[stripe] != -1;
+      }
+      for (int key : writes.keySet()) {
+        touched[stripeOf(key)] = true;
+        written[stripeOf(key)] = true;
+      }
+
+      // Ascending lock order keeps concurrent commits from deadlocking.
+      for (int stripe = 0; stripe < stripes.length; stripe++) {
+        if (touched[stripe]) {
+          locks[stripe].writeLock().lock();
+        }
+      }
+
+      try {
+        for (int stripe = 0; stripe < stripes.length; stripe++) {
+          if (readVersions[stripe] != -1 && readVersions[stripe] != versions[stripe]) {
+            conflicts.increment();
+            return false;
+          }
+        }
+
+        for (Map.Entry<Integer, Boolean> write : writes.entrySet()) {
+          int key = write.getKey();
+          RedBlackTree tree = stripes[stripeOf(key)];
+
+          if (write.getValue()) {
+            if (!tree.search(key)) {
+              tree.insert(key);
+            }
+          } else {
+            tree.deleteIfPresent(key);
+          }
+        }
+
+        for (int stripe = 0; stripe < stripes.length; stripe++) {
+          if (written[stripe]) {
+            versions[stripe]++;
+          }
+        }
+        commits.increment();
+        return true;
+      } finally {
+        for (int stripe = stripes.length - 1; stripe >= 0; stripe--) {
+          if (touched[stripe]) {
+            locks[stripe].writeLock().unlock();
+          }
+        }
+      }
+    }
+
+    private void checkActive() {
+      if (finished) {
+        throw new IllegalStateException("Transaction already committed");
+      }
+    }
+  }
+
+  private void lockAllForReading() {
+    for (ReentrantReadWriteLock lock : locks) {
+      lock.readLock().lock();
+    }
+  }
+
+  private void unlockAllForReading() {
+    for (int i = locks.length - 1; i >= 0; i--) {
+      locks[i].readLock().unlock();
+    }
+  }
+
+  private int stripeOf(int key) {
+    return (key >> rangeBits) & stripeMask;
+  }
+}
@@ -0,0 +1,230 @@
+package redblacktree;
+
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements a treap: a binary search tree on the keys that is also a max-heap on
+ * random priorities drawn at insertion. The shape is that of a tree built from the
+ * keys in random order, whatever order they actually arrive in, so the expected
+ * depth is O(log n) with no balance information beyond the priority. Updates need
+ * on average fewer than two rotations.
+ * Author: Alex Matthes
+ */
+public class Treap implements OrderedIntSet {
+
+  /**
+   * Represents a node with its heap priority.
+   */
+  private static final class Node {
+    final int data;
+    final long priority;
+    Node leftChild;
+    Node rightChild;
+
+    Node(int data, long priority) {
+      this.data = data;
+      this.priority = priority;
+    }
+  }
+
+  private final SplittableRandom random;
+  private Node root;
+  private int size;
+  private long rotations;
+
+  /**
+   * Constructs an empty treap with randomly seeded priorities.
+   */
+  public Treap() {
+    this(new SplittableRandom().nextLong());
+  }
+
+  /**
+   * Constructs an empty treap whose shape is reproducible for the same seed and
+   * operations.
+   *
+   * @param seed The seed for the priorities.
+   */
+  public Treap(long seed) {
+    this.random = new SplittableRandom(seed);
+  }
+
+  @Override
+  public void insert(int item) {
+    root = insert(root, new Node(item, random.nextLong()));
+    size++;
+  }
+
+  private Node insert(Node node, Node newNode) {
+    if (node == null) {
+      return newNode;
+    }
+
+    // Equal keys go to the right, as in RedBlackTree.
+    if (newNode.data < node.data) {
+      node.leftChild = insert(node.leftChild, newNode);
+      return node.leftChild.priority > node.priority ? rotateRight(node) : node;
+    }
+    node.rightChild = insert(node.rightChild, newNode);
+    return node.rightChild.priority > node.priority ? rotateLeft(node) : node;
+  }
+
+  @Override
+  public void delete(int key) {
+    int sizeBefore = size;
+    root = delete(root, key);
+
+    if (size == sizeBefore) {
+      throw new NoSuchElementException("Key not found: " + key);
+    }
+  }
+
+  private Node delete(Node node, int key) {
+    if (node == null) {
+      return null;
+    }
+
+    if (key < node.data) {
+      node.leftChild = delete(node.leftChild, key);
+    } else if (key > node.data) {
+      node.rightChild = delete(node.rightChild, key);
+    } else {
+      size--;
+      return merge(node.leftChild, node.rightChild);
+    }
+    return node;
+  }
+
+  /**
+   * Joins two treaps whose keys are all ordered left before right, keeping the
+   * higher priority on top. This is the rotation sequence that sinks a deleted node
+   * to a leaf, without the node.
+   */
+  private Node merge(Node left, Node right) {
+    if (left == null) {
+      return right;
+    }
+    if (right == null) {
+      return left;
+    }
+
+    rotations++;
+    if (left.priority > right.priority) {
+      left.rightChild = merge(left.rightChild, right);
+      return left;
+    }
+    right.leftChild = merge(left, right.leftChild);
+    return right;
+  }
+
+  @Override
+  public boolean search(int key) {
+    Node current = root;
+
+    while (current != null) {
+      if (key == current.data) {
+        return true;
+      }
+      current = key < current.data ? current.leftChild : current.rightChild;
+    }
+    return false;
+  }
+
+  @Override
+  public void range(int low, int high, IntConsumer action) {
+    rangeHelper(root, low, high, action);
+  }
+
+  private void rangeHelper(Node node, int low, int high, IntConsumer action) {
+    if (node == null) {
+      return;
+    }
+
+    // Rotations can move equal keys to the left, so both sides are checked inclusively.
+    if (low <= node.data) {
+      rangeHelper(node.leftChild, low, high, action);
+    }
+    if (low <= node.data && node.data <= high) {
+      action.accept(node.data);
+    }
+    if (node.data <= high) {
+      rangeHelper(node.rightChild, low, high, action);
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int height() {
+    return heightHelper(root);
+  }
+
+  private int heightHelper(Node node) {
+    if (node == null) {
+      return 0;
+    }
+    return 1 + Math.max(heightHelper(node.leftChild), heightHelper(node.rightChild));
+  }
+
+  /**
+   * Returns the number of rotations performed so far, counting each merge step of a
+   * delete as one.
+   *
+   * @return The rotation count.
+   */
+  public long getRotations() {
+    return rotations;
+  }
+
+  /**
+   * Checks the binary search tree and heap properties.
+   *
+   * @return true if the tree is a valid treap.
+   */
+  public boolean isTreap() {
+    return validate(root, Long.MIN_VALUE, Long.MAX_VALUE) == size;
+  }
+
+  /**
+   * Returns the number of nodes in a valid subtree, or -1 if it is invalid.
+   */
+  private int validate(Node node, long low, long high) {
+    if (node == null) {
+      return 0;
+    }
+    if (node.data < low || node.data > high
+            || (node.leftChild != null && node.leftChild.priority > node.priority)
+            || (node.rightChild != null && node.rightChild.priority > node.priority)) {
+      return -1;
+    }
+
+    int left = validate(node.leftChild, low, node.data);
+    int right = validate(node.rightChild, node.data, high);
+    return left < 0 || right < 0 ? -1 : left + 1 + right;
+  }
+
+  /*
+   ---------------------Balancing Methods------------------------
+   */
+
+  private Node rotateLeft(Node node) {
+    rotations++;
+    Node pivot = node.rightChild;
+    node.rightChild = pivot.leftChild;
+    pivot.leftChild = node;
+    return pivot;
+  }
+
+  private Node rotateRight(Node node) {
+    rotations++;
+    Node pivot = node.leftChild;
+    node.leftChild = pivot.rightChild;
+    pivot.rightChild = node;
+    return pivot;
+  }
+}
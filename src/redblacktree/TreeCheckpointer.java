@@ -0,0 +1,560 @@
+package redblacktree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Writes incremental checkpoints of a Red-Black Tree to a directory.
+ * A full base image is written once, after which each checkpoint only stores
+ * the key ranges that changed since the previous one. Every range carries its
+ * own CRC32 checksum. A background thread folds the deltas back into the base.
+ * Author: Alex Matthes
+ */
+public class TreeCheckpointer implements Closeable {
+
+  private static final int MAGIC = 0x52425443; // "RBTC"
+  private static final String BASE_FILE = "base.ckpt";
+  private static final String DELTA_PREFIX = "delta-";
+  private static final String DELTA_SUFFIX = ".ckpt";
+
+  private final RedBlackTree tree;
+  private final Path directory;
+  private final int rangeBits;
+  private final int compactionThreshold;
+  private final ExecutorService compactor;
+  private final AtomicReference<Exception> compactionFailure = new AtomicReference<>();
+
+  private long sequence;
+  private int pendingDeltas;
+
+  /**
+   * Creates a checkpointer for the given tree and enables dirty range tracking on it.
+   *
+   * @param tree The tree to checkpoint.
+   * @param directory The directory holding the base image and the deltas.
+   * @param rangeBits The log2 of the number of keys per checkpoint range (0 to 31).
+   *                  It must match the value an existing directory was written with.
+   * @param compactionThreshold The number of deltas that triggers a background compaction.
+   *
+   * @throws IllegalArgumentException If rangeBits is out of bounds.
+   * @throws IOException If the directory cannot be created or read, or was written
+   *                     with a different rangeBits.
+   */
+  public TreeCheckpointer(RedBlackTree tree, Path directory, int rangeBits,
+                          int compactionThreshold) throws IOException {
+    if (rangeBits < 0 || rangeBits > 31) {
+      throw new IllegalArgumentException("rangeBits must be between 0 and 31: " + rangeBits);
+    }
+    this.tree = tree;
+    this.directory = directory;
+    this.rangeBits = rangeBits;
+    this.compactionThreshold = compactionThreshold;
+
+    Files.createDirectories(directory);
+    List<Path> deltas = listDeltas(directory, Long.MAX_VALUE);
+    int[] expectedBits = {rangeBits};
+    long baseSequence = readBaseSequence(directory, expectedBits);
+
+    // Ranges on two scales cannot be merged, so every existing file must agree.
+    for (Path delta : deltas) {
+      try (DataInputStream in = openInput(delta)) {
+        readHeader(in, expectedBits);
+      }
+    }
+
+    this.pendingDeltas = deltas.size();
+    this.sequence = deltas.isEmpty() ? baseSequence : sequenceOf(deltas.get(deltas.size() - 1));
+
+    this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "tree-checkpoint-compactor");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    tree.trackDirtyRanges(rangeBits);
+  }
+
+  /**
+   * Writes a full image of the tree, replacing the base and all deltas.
+   * Must be called from the thread that modifies the tree.
+   *
+   * @throws IOException If the image cannot be written.
+   */
+  public void writeBase() throws IOException {
+    awaitCompaction();
+    tree.drainDirtyRanges();
+    sequence++;
+
+    Path temp = directory.resolve(BASE_FILE + ".tmp");
+
+    try (DataOutputStream out = openOutput(temp)) {
+      writeHeader(out, rangeBits, sequence);
+      RangeWriter writer = new RangeWriter(out);
+      tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE, writer);
+      writer.finish();
+    }
+
+    Files.move(temp, directory.resolve(BASE_FILE),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    for (Path delta : listDeltas(directory, Long.MAX_VALUE)) {
+      Files.deleteIfExists(delta);
+    }
+    pendingDeltas = 0;
+  }
+
+  /**
+   * Writes the ranges changed since the last checkpoint to a new delta file.
+   * Must be called from the thread that modifies the tree.
+   *
+   * @return The number of ranges written.
+   *
+   * @throws IOException If the delta cannot be written, or a background compaction
+   *                     failed since the last check.
+   */
+  public int checkpoint() throws IOException {
+    throwCompactionFailure();
+    int[] dirty = tree.drainDirtyRanges();
+
+    if (dirty.length == 0) {
+      return 0;
+    }
+
+    sequence++;
+    Path temp = directory.resolve(DELTA_PREFIX + sequence + DELTA_SUFFIX + ".tmp");
+
+    try (DataOutputStream out = openOutput(temp)) {
+      writeHeader(out, rangeBits, sequence);
+      RangeWriter writer = new RangeWriter(out);
+
+      for (int range : dirty) {
+        int low = range << rangeBits;
+        int high = low | ((1 << rangeBits) - 1);
+
+        tree.range(low, high, writer);
+        writer.finishRange(range);
+      }
+      writer.finish();
+    }
+
+    Files.move(temp, deltaPath(directory, sequence), StandardCopyOption.ATOMIC_MOVE);
+
+    if (++pendingDeltas >= compactionThreshold) {
+      compact();
+    }
+    return dirty.length;
+  }
+
+  /**
+   * Folds every delta written so far into the base image on the background thread.
+   * A failure is also reported by the next call to checkpoint, writeBase or close.
+   *
+   * @return A future that completes once the compaction is done.
+   */
+  public Future<?> compact() {
+    long upTo = sequence;
+    pendingDeltas = 0;
+
+    return compactor.submit(() -> {
+      try {
+        compactUpTo(upTo);
+      } catch (IOException | RuntimeException e) {
+        compactionFailure.compareAndSet(null, e);
+        throw e;
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Blocks until every compaction submitted so far has finished.
+   *
+   * @throws IOException If a compaction failed or the wait was interrupted.
+   */
+  private void awaitCompaction() throws IOException {
+    try {
+      // The executor has one thread, so this runs after every earlier compaction.
+      compactor.submit(() -> null).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for compaction", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Compaction failed", e.getCause());
+    }
+    throwCompactionFailure();
+  }
+
+  /**
+   * Rethrows the first compaction failure not reported yet, and clears it.
+   *
+   * @throws IOException If a compaction failed.
+   */
+  private void throwCompactionFailure() throws IOException {
+    Exception failure = compactionFailure.getAndSet(null);
+
+    if (failure != null) {
+      throw new IOException("Compaction failed", failure);
+    }
+  }
+
+  /**
+   * Stops the background compaction thread after pending work completes.
+   *
+   * @throws IOException If a compaction failed or the wait was interrupted.
+   */
+  @Override
+  public void close() throws IOException {
+    compactor.shutdown();
+
+    try {
+      compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for compaction", e);
+    }
+    throwCompactionFailure();
+  }
+
+  /**
+   * Rebuilds a tree from the base image and the deltas in a checkpoint directory.
+   *
+   * @param directory The checkpoint directory.
+   *
+   * @return The restored tree.
+   *
+   * @throws IOException If a file cannot be read, a checksum does not match, or the
+   *                     files were written with different range sizes.
+   */
+  public static RedBlackTree restore(Path directory) throws IOException {
+    TreeMap<Integer, int[]> ranges = new TreeMap<>();
+    int[] rangeBits = {-1};
+    long baseSequence = 0;
+    Path base = directory.resolve(BASE_FILE);
+
+    if (Files.exists(base)) {
+      try (DataInputStream in = openInput(base)) {
+        baseSequence = readHeader(in, rangeBits);
+        readRanges(in, ranges);
+      }
+    }
+
+    for (Path delta : listDeltas(directory, Long.MAX_VALUE)) {
+      if (sequenceOf(delta) <= baseSequence) {
+        continue;
+      }
+      try (DataInputStream in = openInput(delta)) {
+        readHeader(in, rangeBits);
+        readRanges(in, ranges);
+      }
+    }
+
+    RedBlackTree tree = new RedBlackTree();
+
+    for (int[] keys : ranges.values()) {
+      for (int key : keys) {
+        tree.insert(key);
+      }
+    }
+    return tree;
+  }
+
+  /**
+   * Merges the base image with all deltas up to the given sequence number.
+   * The base is streamed range by range, so only the deltas are held in memory.
+   *
+   * @param upTo The last delta sequence number to merge.
+   *
+   * @throws IOException If a file cannot be read or written.
+   */
+  private void compactUpTo(long upTo) throws IOException {
+    Path base = directory.resolve(BASE_FILE);
+    int[] expectedBits = {rangeBits};
+    long baseSequence = readBaseSequence(directory, expectedBits);
+    List<Path> deltas = listDeltas(directory, upTo);
+    TreeMap<Integer, int[]> changed = new TreeMap<>();
+
+    for (Path delta : deltas) {
+      if (sequenceOf(delta) > baseSequence) {
+        try (DataInputStream in = openInput(delta)) {
+          readHeader(in, expectedBits);
+          readRanges(in, changed);
+        }
+      }
+    }
+
+    Path temp = directory.resolve(BASE_FILE + ".compact");
+
+    try (DataOutputStream out = openOutput(temp)) {
+      writeHeader(out, rangeBits, Math.max(upTo, baseSequence));
+
+      if (Files.exists(base)) {
+        try (DataInputStream in = openInput(base)) {
+          readHeader(in, expectedBits);
+          int[] header = new int[2];
+
+          while (readRangeHeader(in, header)) {
+            int range = header[0];
+            int[] keys = readRangeKeys(in, range, header[1]);
+
+            // Emit the changed ranges that sort before this base range.
+            while (!changed.isEmpty() && changed.firstKey() < range) {
+              Map.Entry<Integer, int[]> entry = changed.pollFirstEntry();
+              writeNonEmptyRange(out, entry.getKey(), entry.getValue());
+            }
+
+            int[] replacement = changed.remove(range);
+            writeNonEmptyRange(out, range, replacement != null ? replacement : keys);
+          }
+        }
+      }
+
+      for (Map.Entry<Integer, int[]> entry : changed.entrySet()) {
+        writeNonEmptyRange(out, entry.getKey(), entry.getValue());
+      }
+    }
+
+    Files.move(temp, base, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    for (Path delta : deltas) {
+      Files.deleteIfExists(delta);
+    }
+  }
+
+  /*
+   ---------------------File Format Methods------------------------
+   */
+
+  /**
+   * Buffers the keys of one range at a time and writes each range when it is complete.
+   */
+  private class RangeWriter implements IntConsumer {
+    private final DataOutputStream out;
+    private int[] keys = new int[16];
+    private int count;
+    private int currentRange;
+    private boolean hasRange;
+
+    RangeWriter(DataOutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void accept(int key) {
+      int range = key >> rangeBits;
+
+      if (hasRange && range != currentRange) {
+        flush();
+      }
+      currentRange = range;
+      hasRange = true;
+
+      if (count == keys.length) {
+        keys = Arrays.copyOf(keys, count * 2);
+      }
+      keys[count++] = key;
+    }
+
+    /**
+     * Writes the given range even when it is now empty, so deletions reach the base.
+     */
+    void finishRange(int range) {
+      if (!hasRange) {
+        currentRange = range;
+        hasRange = true;
+      }
+      flush();
+    }
+
+    void finish() {
+      if (hasRange) {
+        flush();
+      }
+    }
+
+    private void flush() {
+      try {
+        writeRange(out, currentRange, keys, count);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      count = 0;
+      hasRange = false;
+    }
+  }
+
+  private static void writeHeader(DataOutputStream out, int rangeBits, long sequence)
+          throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(rangeBits);
+    out.writeLong(sequence);
+  }
+
+  /**
+   * Reads a file header and checks its range size.
+   *
+   * @param rangeBits Holds the expected range size, or -1 to take the file's.
+   *
+   * @return The sequence number of the file.
+   */
+  private static long readHeader(DataInputStream in, int[] rangeBits) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a checkpoint file");
+    }
+
+    int fileBits = in.readInt();
+    if (rangeBits[0] < 0) {
+      rangeBits[0] = fileBits;
+    } else if (fileBits != rangeBits[0]) {
+      throw new IOException("Checkpoint written with rangeBits " + fileBits
+              + ", expected " + rangeBits[0]);
+    }
+    return in.readLong();
+  }
+
+  private static void writeRange(DataOutputStream out, int range, int[] keys, int count)
+          throws IOException {
+    CRC32 crc = new CRC32();
+    updateChecksum(crc, range);
+    updateChecksum(crc, count);
+
+    out.writeInt(range);
+    out.writeInt(count);
+
+    for (int i = 0; i < count; i++) {
+      out.writeInt(keys[i]);
+      updateChecksum(crc, keys[i]);
+    }
+    out.writeLong(crc.getValue());
+  }
+
+  /**
+   * Writes a range to a merged base, dropping it if it is a tombstone.
+   */
+  private static void writeNonEmptyRange(DataOutputStream out, int range, int[] keys)
+          throws IOException {
+    if (keys.length > 0) {
+      writeRange(out, range, keys, keys.length);
+    }
+  }
+
+  /**
+   * Reads the id and key count of the next range.
+   *
+   * @return false if the end of the file was reached.
+   */
+  private static boolean readRangeHeader(DataInputStream in, int[] header) throws IOException {
+    try {
+      header[0] = in.readInt();
+    } catch (EOFException e) {
+      return false;
+    }
+    header[1] = in.readInt();
+    return true;
+  }
+
+  private static int[] readRangeKeys(DataInputStream in, int range, int count) throws IOException {
+    CRC32 crc = new CRC32();
+    updateChecksum(crc, range);
+    updateChecksum(crc, count);
+
+    int[] keys = new int[count];
+
+    for (int i = 0; i < count; i++) {
+      keys[i] = in.readInt();
+      updateChecksum(crc, keys[i]);
+    }
+
+    if (in.readLong() != crc.getValue()) {
+      throw new IOException("Checksum mismatch in range " + range);
+    }
+    return keys;
+  }
+
+  /**
+   * Feeds all four bytes of an int into a checksum (CRC32.update(int) only uses one).
+   */
+  private static void updateChecksum(CRC32 crc, int value) {
+    crc.update(value >>> 24);
+    crc.update(value >>> 16);
+    crc.update(value >>> 8);
+    crc.update(value);
+  }
+
+  private static void readRanges(DataInputStream in, Map<Integer, int[]> ranges)
+          throws IOException {
+    int[] header = new int[2];
+
+    while (readRangeHeader(in, header)) {
+      // An emptied range stays as an empty tombstone, so it also hides the base's keys.
+      ranges.put(header[0], readRangeKeys(in, header[0], header[1]));
+    }
+  }
+
+  private static long readBaseSequence(Path directory, int[] rangeBits) throws IOException {
+    Path base = directory.resolve(BASE_FILE);
+
+    if (!Files.exists(base)) {
+      return 0;
+    }
+    try (DataInputStream in = openInput(base)) {
+      return readHeader(in, rangeBits);
+    }
+  }
+
+  private static List<Path> listDeltas(Path directory, long upTo) throws IOException {
+    List<Path> deltas = new ArrayList<>();
+
+    try (DirectoryStream<Path> stream =
+                 Files.newDirectoryStream(directory, DELTA_PREFIX + "*" + DELTA_SUFFIX)) {
+      for (Path delta : stream) {
+        if (sequenceOf(delta) <= upTo) {
+          deltas.add(delta);
+        }
+      }
+    }
+
+    deltas.sort((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)));
+    return deltas;
+  }
+
+  private static Path deltaPath(Path directory, long sequence) {
+    return directory.resolve(DELTA_PREFIX + sequence + DELTA_SUFFIX);
+  }
+
+  private static long sequenceOf(Path delta) {
+    String name = delta.getFileName().toString();
+    return Long.parseLong(
+            name.substring(DELTA_PREFIX.length(), name.length() - DELTA_SUFFIX.length()));
+  }
+
+  private static DataOutputStream openOutput(Path path) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+  }
+
+  private static DataInputStream openInput(Path path) throws IOException {
+    return new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+  }
+}
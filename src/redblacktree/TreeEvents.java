@@ -0,0 +1,82 @@
+package redblacktree;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JDK Flight Recorder events emitted by the Red-Black Tree.
+ * Only operations slower than the configured threshold are recorded, and
+ * while no recording is running the events compile away to nothing.
+ * The tree-diagnostics.jfc profile next to this class enables all of them.
+ * Author: Alex Matthes
+ */
+public final class TreeEvents {
+
+  private TreeEvents() {
+  }
+
+  /**
+   * Fields shared by the single-key tree operations.
+   */
+  @Category({"Red-Black Tree"})
+  abstract static class KeyOperation extends Event {
+    @Label("Key")
+    int key;
+
+    @Label("Path Length")
+    @Description("Number of nodes visited while descending the tree")
+    int pathLength;
+  }
+
+  /**
+   * A slow insert.
+   */
+  @Name("redblacktree.Insert")
+  @Label("Tree Insert")
+  @Threshold("1 ms")
+  public static final class Insert extends KeyOperation {
+    @Label("Rotations")
+    int rotations;
+  }
+
+  /**
+   * A slow delete.
+   */
+  @Name("redblacktree.Delete")
+  @Label("Tree Delete")
+  @Threshold("1 ms")
+  public static final class Delete extends KeyOperation {
+    @Label("Rotations")
+    int rotations;
+  }
+
+  /**
+   * A slow search.
+   */
+  @Name("redblacktree.Search")
+  @Label("Tree Search")
+  @Threshold("1 ms")
+  public static final class Search extends KeyOperation {
+    @Label("Found")
+    boolean found;
+  }
+
+  /**
+   * A slow operation over many keys, such as a range scan or freeze.
+   */
+  @Name("redblacktree.Bulk")
+  @Label("Tree Bulk Operation")
+  @Category({"Red-Black Tree"})
+  @Threshold("10 ms")
+  public static final class Bulk extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Key Count")
+    long keyCount;
+  }
+}
@@ -0,0 +1,554 @@
+package redblacktree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Builds a Red-Black Tree from a large file of unsorted int keys.
+ *
+ * <p>The input is processed in windows that fit the memory budget. Each window is
+ * memory-mapped in one chunk per worker thread and the chunks are parsed in
+ * parallel; the window's keys are then sorted. If the whole input fits in one
+ * window, its sorted keys feed the tree build directly. Otherwise every window is
+ * spilled to a sorted run file, and the runs are merged with a priority queue.
+ * The sorted stream is built into a tree in linear time with
+ * RedBlackTree.fromSorted. Duplicate keys in the input are imported once.
+ *
+ * <p>Progress counters may be read from another thread while an import runs.
+ * Author: Alex Matthes
+ */
+public class TreeImporter {
+
+  /**
+   * The encodings of an input file.
+   */
+  public enum Format {
+    /**
+     * Four-byte big-endian ints, as written by DataOutputStream.
+     */
+    BINARY,
+
+    /**
+     * Decimal ints separated by any characters other than digits and '-',
+     * such as commas, spaces or line breaks.
+     */
+    TEXT
+  }
+
+  /**
+   * The stages of an import, in order.
+   */
+  public enum Phase {
+    IDLE,
+    PARSING,
+    MERGING,
+    BUILDING,
+    DONE
+  }
+
+  // A mapped chunk must stay below 2 GiB; windows are kept well under that.
+  private static final long MAX_WINDOW_BYTES = 1L << 30;
+
+  private final Format format;
+  private final long memoryBudgetBytes;
+  private final int parallelism;
+  private final Path tempDirectory;
+
+  private volatile Phase phase = Phase.IDLE;
+  private final AtomicLong bytesParsed = new AtomicLong();
+  private final AtomicLong keysParsed = new AtomicLong();
+  private final AtomicLong keysBuilt = new AtomicLong();
+  private volatile int runsSpilled;
+  private volatile long startNanos;
+  private volatile long endNanos;
+
+  /**
+   * Creates an importer.
+   *
+   * @param format The encoding of the input files.
+   * @param memoryBudgetBytes The memory the parsed keys of one window may take.
+   * @param parallelism The number of parsing threads.
+   * @param tempDirectory The directory for sorted run files.
+   *
+   * @throws IllegalArgumentException If the budget is below 1 KiB or parallelism below 1.
+   */
+  public TreeImporter(Format format, long memoryBudgetBytes, int parallelism,
+                      Path tempDirectory) {
+    if (memoryBudgetBytes < 1024) {
+      throw new IllegalArgumentException("Memory budget too small: " + memoryBudgetBytes);
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+
+    this.format = format;
+    this.memoryBudgetBytes = memoryBudgetBytes;
+    this.parallelism = parallelism;
+    this.tempDirectory = tempDirectory;
+  }
+
+  /**
+   * Imports every key of the input file into a new tree.
+   *
+   * @param input The file to import.
+   *
+   * @return The tree holding the distinct keys of the file.
+   *
+   * @throws IOException If the input cannot be read, is malformed, or a run file fails.
+   */
+  public RedBlackTree importFile(Path input) throws IOException {
+    startNanos = System.nanoTime();
+    bytesParsed.set(0);
+    keysParsed.set(0);
+    keysBuilt.set(0);
+    runsSpilled = 0;
+    phase = Phase.PARSING;
+
+    List<Path> runs = new ArrayList<>();
+    ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+      Thread thread = new Thread(runnable, "tree-import-parser");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+
+      if (format == Format.BINARY && fileSize % Integer.BYTES != 0) {
+        throw new IOException("Binary key file length is not a multiple of 4: " + input);
+      }
+
+      // Keys take 4 bytes in memory; binary input also takes 4 bytes per key and
+      // text input at least 2, so a window of this size never exceeds the budget.
+      long windowBytes = Math.min(MAX_WINDOW_BYTES,
+              format == Format.BINARY ? memoryBudgetBytes : memoryBudgetBytes / 2);
+      windowBytes -= windowBytes % Integer.BYTES;
+
+      int[] sorted = null;
+      int sortedCount = 0;
+
+      for (long start = 0; start < fileSize; ) {
+        long end = alignedEnd(channel, Math.min(fileSize, start + windowBytes), fileSize);
+        int[] keys = parseWindow(channel, start, end, workers);
+
+        Arrays.parallelSort(keys);
+        int count = dedupe(keys);
+
+        if (start == 0 && end == fileSize) {
+          sorted = keys;
+          sortedCount = count;
+        } else {
+          runs.add(spill(keys, count));
+        }
+        start = end;
+      }
+
+      RedBlackTree tree;
+      if (runs.isEmpty()) {
+        phase = Phase.BUILDING;
+        tree = build(sortedCount, sorted == null ? new int[0] : sorted);
+      } else {
+        phase = Phase.MERGING;
+        Path merged = merge(runs);
+        runs.add(merged);
+
+        phase = Phase.BUILDING;
+        tree = buildFromRun(merged);
+      }
+
+      phase = Phase.DONE;
+      return tree;
+    } finally {
+      workers.shutdownNow();
+      for (Path run : runs) {
+        Files.deleteIfExists(run);
+      }
+      endNanos = System.nanoTime();
+    }
+  }
+
+  /*
+   ---------------------Progress Methods------------------------
+   */
+
+  /**
+   * Returns the stage the current or last import is in.
+   *
+   * @return The phase.
+   */
+  public Phase getPhase() {
+    return phase;
+  }
+
+  /**
+   * Returns the number of input bytes parsed so far.
+   *
+   * @return The byte count.
+   */
+  public long getBytesParsed() {
+    return bytesParsed.get();
+  }
+
+  /**
+   * Returns the number of keys parsed so far, including duplicates.
+   *
+   * @return The key count.
+   */
+  public long getKeysParsed() {
+    return keysParsed.get();
+  }
+
+  /**
+   * Returns the number of sorted runs written to disk.
+   *
+   * @return The run count; 0 if the input fit in memory.
+   */
+  public int getRunsSpilled() {
+    return runsSpilled;
+  }
+
+  /**
+   * Returns the number of keys placed into the tree so far.
+   *
+   * @return The key count.
+   */
+  public long getKeysBuilt() {
+    return keysBuilt.get();
+  }
+
+  /**
+   * Returns the input throughput of the current or last import.
+   *
+   * @return The parsed bytes per second of wall-clock time.
+   */
+  public double getBytesPerSecond() {
+    long end = phase == Phase.DONE || phase == Phase.IDLE ? endNanos : System.nanoTime();
+    long elapsed = end - startNanos;
+    return elapsed <= 0 ? 0 : bytesParsed.get() * 1e9 / elapsed;
+  }
+
+  /*
+   ---------------------Parsing Methods------------------------
+   */
+
+  /**
+   * Moves a chunk end forward so it does not split a key.
+   *
+   * @return The aligned end position.
+   */
+  private long alignedEnd(FileChannel channel, long end, long fileSize) throws IOException {
+    if (format == Format.BINARY || end >= fileSize) {
+      return end;
+    }
+
+    ByteBuffer one = ByteBuffer.allocate(1);
+    long position = end;
+
+    while (position < fileSize) {
+      one.clear();
+      channel.read(one, position);
+      if (!isKeyByte(one.get(0))) {
+        break;
+      }
+      position++;
+    }
+    return position;
+  }
+
+  /**
+   * Maps a window in one chunk per worker and parses the chunks in parallel.
+   *
+   * @return The keys of the window, unsorted.
+   */
+  private int[] parseWindow(FileChannel channel, long start, long end, ExecutorService workers)
+          throws IOException {
+    long chunkBytes = Math.max(Integer.BYTES, (end - start) / parallelism);
+    chunkBytes -= chunkBytes % Integer.BYTES;
+
+    List<Future<int[]>> chunks = new ArrayList<>();
+
+    for (long chunkStart = start; chunkStart < end; ) {
+      long chunkEnd = alignedEnd(channel, Math.min(end, chunkStart + chunkBytes), end);
+      MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart,
+              chunkEnd - chunkStart);
+
+      chunks.add(workers.submit(() -> format == Format.BINARY
+              ? parseBinary(chunk)
+              : parseText(chunk)));
+      chunkStart = chunkEnd;
+    }
+
+    List<int[]> parsed = new ArrayList<>();
+    int total = 0;
+
+    try {
+      for (Future<int[]> chunk : chunks) {
+        int[] keys = chunk.get();
+        parsed.add(keys);
+        total += keys.length;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Import interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException io) {
+        throw io;
+      }
+      throw new IOException("Parsing failed", e.getCause());
+    }
+
+    int[] keys = new int[total];
+    int next = 0;
+    for (int[] chunk : parsed) {
+      System.arraycopy(chunk, 0, keys, next, chunk.length);
+      next += chunk.length;
+    }
+    return keys;
+  }
+
+  private int[] parseBinary(MappedByteBuffer chunk) {
+    int[] keys = new int[chunk.remaining() / Integer.BYTES];
+
+    chunk.asIntBuffer().get(keys);
+    bytesParsed.addAndGet(chunk.capacity());
+    keysParsed.addAndGet(keys.length);
+    return keys;
+  }
+
+  private int[] parseText(MappedByteBuffer chunk) throws IOException {
+    int[] keys = new int[Math.max(16, chunk.capacity() / 8)];
+    int count = 0;
+    long value = 0;
+    boolean negative = false;
+    boolean inKey = false;
+
+    // One position past the end acts as a final separator.
+    for (int i = 0; i <= chunk.capacity(); i++) {
+      byte b = i < chunk.capacity() ? chunk.get(i) : (byte) ' ';
+
+      if (b >= '0' && b <= '9') {
+        value = value * 10 + (b - '0');
+        inKey = true;
+        if (value > (long) Integer.MAX_VALUE + 1) {
+          throw new IOException("Key out of int range near byte " + i);
+        }
+      } else if (b == '-' && !inKey && !negative) {
+        negative = true;
+      } else {
+        if (inKey) {
+          long key = negative ? -value : value;
+          if (key > Integer.MAX_VALUE) {
+            throw new IOException("Key out of int range near byte " + i);
+          }
+          if (count == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+          }
+          keys[count++] = (int) key;
+        } else if (negative) {
+          throw new IOException("Stray '-' near byte " + i);
+        }
+        value = 0;
+        negative = false;
+        inKey = false;
+      }
+    }
+
+    bytesParsed.addAndGet(chunk.capacity());
+    keysParsed.addAndGet(count);
+    return Arrays.copyOf(keys, count);
+  }
+
+  private static boolean isKeyByte(byte b) {
+    return (b >= '0' && b <= '9') || b == '-';
+  }
+
+  /**
+   * Removes adjacent duplicates from a sorted array in place.
+   *
+   * @return The number of distinct keys now at the front of the array.
+   */
+  private static int dedupe(int[] keys) {
+    int count = 0;
+
+    for (int i = 0; i < keys.length; i++) {
+      if (count == 0 || keys[i] != keys[count - 1]) {
+        keys[count++] = keys[i];
+      }
+    }
+    return count;
+  }
+
+  /*
+   ---------------------Run Methods------------------------
+   */
+
+  /**
+   * A sorted run file being read during the merge.
+   */
+  private static final class RunReader implements Comparable<RunReader> {
+    final DataInputStream in;
+    long remaining;
+    int current;
+
+    RunReader(Path run) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+      this.remaining = in.readLong();
+    }
+
+    boolean advance() throws IOException {
+      if (remaining == 0) {
+        return false;
+      }
+      current = in.readInt();
+      remaining--;
+      return true;
+    }
+
+    @Override
+    public int compareTo(RunReader other) {
+      return Integer.compare(current, other.current);
+    }
+  }
+
+  /**
+   * Writes the first count keys to a new run file: a long count followed by the keys.
+   */
+  private Path spill(int[] keys, int count) throws IOException {
+    Path run = Files.createTempFile(tempDirectory, "import-run-", ".bin");
+
+    try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+      out.writeLong(count);
+      for (int i = 0; i < count; i++) {
+        out.writeInt(keys[i]);
+      }
+    }
+
+    runsSpilled++;
+    return run;
+  }
+
+  /**
+   * Merges the runs into one run without duplicates, so the build knows its key count.
+   */
+  private Path merge(List<Path> runs) throws IOException {
+    Path merged = Files.createTempFile(tempDirectory, "import-merged-", ".bin");
+    PriorityQueue<RunReader> queue = new PriorityQueue<>();
+    List<RunReader> readers = new ArrayList<>();
+
+    try (FileChannel out = FileChannel.open(merged, StandardOpenOption.WRITE)) {
+      for (Path run : runs) {
+        RunReader reader = new RunReader(run);
+        readers.add(reader);
+        if (reader.advance()) {
+          queue.add(reader);
+        }
+      }
+
+      ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+      buffer.putLong(0); // Count placeholder, patched below.
+      long count = 0;
+      boolean any = false;
+      int previous = 0;
+
+      while (!queue.isEmpty()) {
+        RunReader reader = queue.poll();
+        int key = reader.current;
+
+        if (!any || key != previous) {
+          if (buffer.remaining() < Integer.BYTES) {
+            writeAll(out, buffer);
+          }
+          buffer.putInt(key);
+          count++;
+          previous = key;
+          any = true;
+        }
+        if (reader.advance()) {
+          queue.add(reader);
+        }
+      }
+      writeAll(out, buffer);
+
+      ByteBuffer header = ByteBuffer.allocate(Long.BYTES).putLong(0, count);
+      out.write(header, 0);
+    } finally {
+      for (RunReader reader : readers) {
+        reader.in.close();
+      }
+    }
+    return merged;
+  }
+
+  private static void writeAll(FileChannel out, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      out.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /*
+   ---------------------Build Methods------------------------
+   */
+
+  private RedBlackTree build(int count, int[] sorted) {
+    int[] next = new int[1];
+
+    // lazySet is a plain ordered store, cheap enough for every key.
+    return RedBlackTree.fromSorted(count, () -> {
+      keysBuilt.lazySet(next[0] + 1);
+      return sorted[next[0]++];
+    });
+  }
+
+  private RedBlackTree buildFromRun(Path run) throws IOException {
+    try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(run), 1 << 16))) {
+      long count = in.readLong();
+
+      if (count > Integer.MAX_VALUE) {
+        throw new IOException("Too many distinct keys for one tree: " + count);
+      }
+
+      long[] built = new long[1];
+      IntSupplier keys = () -> {
+        try {
+          keysBuilt.lazySet(++built[0]);
+          return in.readInt();
+        } catch (EOFException e) {
+          throw new UncheckedIOException("Merged run ended early", e);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      };
+
+      try {
+        return RedBlackTree.fromSorted((int) count, keys);
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+  }
+}
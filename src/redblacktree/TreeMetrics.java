@@ -0,0 +1,200 @@
+package redblacktree;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Operation counters for a Red-Black Tree, publishable as a JMX MBean.
+ * Counters are LongAdders so that readers polling over JMX never contend
+ * with the thread updating the tree.
+ * Author: Alex Matthes
+ */
+public class TreeMetrics implements TreeMetricsMBean {
+
+  final LongAdder inserts = new LongAdder();
+  final LongAdder deletes = new LongAdder();
+  final LongAdder searchHits = new LongAdder();
+  final LongAdder searchMisses = new LongAdder();
+  final LongAdder leftRotations = new LongAdder();
+  final LongAdder rightRotations = new LongAdder();
+  final LongAdder insertFixUpIterations = new LongAdder();
+  final LongAdder deleteFixUpIterations = new LongAdder();
+  final LongAdder bloomFilterRejects = new LongAdder();
+  final LongAdder bloomFilterFalsePositives = new LongAdder();
+  final LongAdder bloomFilterRebuilds = new LongAdder();
+  final LongAdder hotKeyHits = new LongAdder();
+
+  private final RedBlackTree tree;
+  private ObjectName objectName;
+
+  /**
+   * Constructs the counters for the given tree.
+   *
+   * @param tree The tree whose size and height are reported.
+   */
+  TreeMetrics(RedBlackTree tree) {
+    this.tree = tree;
+  }
+
+  /**
+   * Registers these metrics with the platform MBean server.
+   *
+   * @param name The value of the name key in the object name, e.g. the tree's purpose.
+   *
+   * @return The object name the metrics were registered under.
+   *
+   * @throws IllegalStateException If the MBean cannot be registered.
+   */
+  public synchronized ObjectName register(String name) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName candidate = new ObjectName("redblacktree:type=RedBlackTree,name="
+              + ObjectName.quote(name));
+
+      server.registerMBean(this, candidate);
+      objectName = candidate;
+      return candidate;
+    } catch (JMException e) {
+      throw new IllegalStateException("Could not register tree metrics: " + name, e);
+    }
+  }
+
+  /**
+   * Removes these metrics from the platform MBean server if they were registered.
+   */
+  public synchronized void unregister() {
+    if (objectName == null) {
+      return;
+    }
+
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    } catch (JMException e) {
+      throw new IllegalStateException("Could not unregister tree metrics: " + objectName, e);
+    }
+    objectName = null;
+  }
+
+  @Override
+  public long getInserts() {
+    return inserts.sum();
+  }
+
+  @Override
+  public long getDeletes() {
+    return deletes.sum();
+  }
+
+  @Override
+  public long getSearchHits() {
+    return searchHits.sum();
+  }
+
+  @Override
+  public long getSearchMisses() {
+    return searchMisses.sum();
+  }
+
+  @Override
+  public long getLeftRotations() {
+    return leftRotations.sum();
+  }
+
+  @Override
+  public long getRightRotations() {
+    return rightRotations.sum();
+  }
+
+  @Override
+  public long getInsertFixUpIterations() {
+    return insertFixUpIterations.sum();
+  }
+
+  @Override
+  public long getDeleteFixUpIterations() {
+    return deleteFixUpIterations.sum();
+  }
+
+  @Override
+  public long getBloomFilterRejects() {
+    return bloomFilterRejects.sum();
+  }
+
+  @Override
+  public long getBloomFilterFalsePositives() {
+    return bloomFilterFalsePositives.sum();
+  }
+
+  @Override
+  public long getBloomFilterRebuilds() {
+    return bloomFilterRebuilds.sum();
+  }
+
+  /**
+   * Returns the share of searches for absent keys that the Bloom filter let through.
+   *
+   * @return The observed false-positive rate, or 0 if no absent key was searched.
+   */
+  @Override
+  public double getBloomFilterFalsePositiveRate() {
+    long falsePositives = bloomFilterFalsePositives.sum();
+    long absent = falsePositives + bloomFilterRejects.sum();
+    return absent == 0 ? 0 : (double) falsePositives / absent;
+  }
+
+  @Override
+  public long getBloomFilterBytes() {
+    return tree.getBloomFilterBytes();
+  }
+
+  /**
+   * Returns the number of search hits answered by the hot-key cache, a subset of
+   * the search hits.
+   *
+   * @return The hot-key cache hits.
+   */
+  @Override
+  public long getHotKeyHits() {
+    return hotKeyHits.sum();
+  }
+
+  /**
+   * Returns the current key count. Read without synchronization, so it may be stale.
+   *
+   * @return The size of the tree.
+   */
+  @Override
+  public int getSize() {
+    return tree.size();
+  }
+
+  /**
+   * Returns the current height. This walks the whole tree without synchronization,
+   * so it is only an estimate while the tree is being modified.
+   *
+   * @return The height of the tree.
+   */
+  @Override
+  public int getHeight() {
+    return tree.height();
+  }
+
+  @Override
+  public void reset() {
+    inserts.reset();
+    deletes.reset();
+    searchHits.reset();
+    searchMisses.reset();
+    leftRotations.reset();
+    rightRotations.reset();
+    insertFixUpIterations.reset();
+    deleteFixUpIterations.reset();
+    bloomFilterRejects.reset();
+    bloomFilterFalsePositives.reset();
+    bloomFilterRebuilds.reset();
+    hotKeyHits.reset();
+  }
+}
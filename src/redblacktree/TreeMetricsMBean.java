@@ -0,0 +1,42 @@
+package redblacktree;
+
+/**
+ * JMX management interface exposing the counters of a Red-Black Tree.
+ * Author: Alex Matthes
+ */
+public interface TreeMetricsMBean {
+
+  long getInserts();
+
+  long getDeletes();
+
+  long getSearchHits();
+
+  long getSearchMisses();
+
+  long getLeftRotations();
+
+  long getRightRotations();
+
+  long getInsertFixUpIterations();
+
+  long getDeleteFixUpIterations();
+
+  long getBloomFilterRejects();
+
+  long getBloomFilterFalsePositives();
+
+  long getBloomFilterRebuilds();
+
+  double getBloomFilterFalsePositiveRate();
+
+  long getBloomFilterBytes();
+
+  long getHotKeyHits();
+
+  int getSize();
+
+  int getHeight();
+
+  void reset();
+}
@@ -0,0 +1,375 @@
+package redblacktree;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Serves a Red-Black Tree to many threads through a single writer thread that
+ * owns it, instead of locking the tree.
+ *
+ * <p>Clients enqueue commands into a bounded lock-free ring buffer (Vyukov's
+ * sequence-per-slot queue: producers claim a slot with one CAS, the writer
+ * consumes without any). Each call only allocates a command and a future, so
+ * millions of virtual threads can wait on the tree at once. The writer drains
+ * every published command as one batch, sorts the batch by key so consecutive
+ * operations walk the same paths, applies it and completes the futures. The
+ * sort is stable, so commands on the same key keep their enqueue order.
+ *
+ * <p>Futures are completed on the writer thread, so dependent stages that are not
+ * async also run there; use the async variants for anything but trivial work.
+ * The tree must not be touched directly while the service is running.
+ * Author: Alex Matthes
+ */
+public final class TreeService implements AutoCloseable {
+
+  private static final byte INSERT = 0;
+  private static final byte DELETE = 1;
+  private static final byte SEARCH = 2;
+
+  // Set in the tail once closed, so no producer can claim a slot afterwards.
+  private static final long CLOSED = Long.MIN_VALUE;
+  private static final int IDLE_SPINS = 1_000;
+
+  /**
+   * One queued operation and the future its caller waits on.
+   */
+  private static final class Command {
+    final byte operation;
+    final int key;
+    final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+    Command(byte operation, int key) {
+      this.operation = operation;
+      this.key = key;
+    }
+  }
+
+  private final RedBlackTree tree;
+  private final int mask;
+  private final Command[] slots;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  private final Thread writer;
+
+  // Written only by the writer thread; volatile so metric readers see progress.
+  private volatile long head;
+  private volatile boolean writerParked;
+  private volatile long commands;
+  private volatile long batches;
+  private volatile int maxBatchSize;
+  private volatile long maxQueueDepth;
+  private final long startNanos = System.nanoTime();
+
+  /**
+   * Starts a service that owns the given tree.
+   *
+   * @param tree The tree to serve. It must not be used directly until close returns.
+   * @param capacity The number of queued commands, a power of two.
+   *
+   * @throws IllegalArgumentException If capacity is not a positive power of two.
+   */
+  public TreeService(RedBlackTree tree, int capacity) {
+    if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+    }
+
+    this.tree = tree;
+    this.mask = capacity - 1;
+    this.slots = new Command[capacity];
+    this.sequences = new AtomicLongArray(capacity);
+
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+
+    this.writer = new Thread(this::runWriter, "tree-service-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Queues an insert.
+   *
+   * @param key The data key to be inserted.
+   *
+   * @return A future that completes with true once the key is in the tree.
+   *
+   * @throws IllegalStateException If the service is closed.
+   */
+  public CompletableFuture<Boolean> insert(int key) {
+    return submit(INSERT, key);
+  }
+
+  /**
+   * Queues a delete. Deleting an absent key is not an error.
+   *
+   * @param key The data key to delete.
+   *
+   * @return A future that completes with whether the key was present.
+   *
+   * @throws IllegalStateException If the service is closed.
+   */
+  public CompletableFuture<Boolean> delete(int key) {
+    return submit(DELETE, key);
+  }
+
+  /**
+   * Queues a search.
+   *
+   * @param key The key to search for.
+   *
+   * @return A future that completes with whether the key is present.
+   *
+   * @throws IllegalStateException If the service is closed.
+   */
+  public CompletableFuture<Boolean> search(int key) {
+    return submit(SEARCH, key);
+  }
+
+  /**
+   * Stops accepting commands, waits until the writer has applied every queued
+   * command and stops it. The tree may be used directly afterwards.
+   */
+  @Override
+  public void close() {
+    long current;
+
+    do {
+      current = tail.get();
+    } while ((current & CLOSED) == 0 && !tail.compareAndSet(current, current | CLOSED));
+
+    LockSupport.unpark(writer);
+
+    boolean interrupted = false;
+    while (writer.isAlive()) {
+      try {
+        writer.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /*
+   ---------------------Metrics Methods------------------------
+   */
+
+  /**
+   * Returns the number of commands applied so far.
+   *
+   * @return The command count.
+   */
+  public long getCommands() {
+    return commands;
+  }
+
+  /**
+   * Returns the number of batches the writer has applied.
+   *
+   * @return The batch count.
+   */
+  public long getBatches() {
+    return batches;
+  }
+
+  /**
+   * Returns the mean number of commands per batch.
+   *
+   * @return The average batch size, or 0 before the first batch.
+   */
+  public double getAverageBatchSize() {
+    long batchCount = batches;
+    return batchCount == 0 ? 0 : (double) commands / batchCount;
+  }
+
+  /**
+   * Returns the largest batch applied so far.
+   *
+   * @return The maximum batch size.
+   */
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /**
+   * Returns the number of commands claimed but not yet taken by the writer.
+   *
+   * @return The current queue depth.
+   */
+  public long getQueueDepth() {
+    return Math.max(0, (tail.get() & ~CLOSED) - head);
+  }
+
+  /**
+   * Returns the deepest queue the writer has found when starting a batch.
+   *
+   * @return The maximum queue depth.
+   */
+  public long getMaxQueueDepth() {
+    return maxQueueDepth;
+  }
+
+  /**
+   * Returns the applied commands per second since the service started.
+   *
+   * @return The throughput in commands per second.
+   */
+  public double getThroughput() {
+    return commands * 1e9 / Math.max(1, System.nanoTime() - startNanos);
+  }
+
+  /*
+   ---------------------Queue Methods------------------------
+   */
+
+  /**
+   * Claims a slot with a CAS on the tail, fills it and publishes it by advancing
+   * the slot's sequence. Yields while the queue is full.
+   */
+  private CompletableFuture<Boolean> submit(byte operation, int key) {
+    Command command = new Command(operation, key);
+
+    while (true) {
+      long position = tail.get();
+
+      if ((position & CLOSED) != 0) {
+        throw new IllegalStateException("TreeService is closed");
+      }
+
+      int slot = (int) position & mask;
+      long difference = sequences.get(slot) - position;
+
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          slots[slot] = command;
+          sequences.set(slot, position + 1);
+
+          if (writerParked) {
+            LockSupport.unpark(writer);
+          }
+          return command.result;
+        }
+      } else if (difference < 0) {
+        // The slot still holds a command from one lap ago: the queue is full.
+        Thread.yield();
+      }
+    }
+  }
+
+  /**
+   * Takes every published command, up to one queue length, into the batch.
+   *
+   * @return The number of commands taken.
+   */
+  private int drain(Command[] batch) {
+    long position = head;
+    int count = 0;
+
+    while (count < batch.length) {
+      int slot = (int) position & mask;
+
+      if (sequences.get(slot) != position + 1) {
+        break;
+      }
+      batch[count++] = slots[slot];
+      slots[slot] = null;
+      sequences.set(slot, position + slots.length);
+      position++;
+    }
+
+    head = position;
+    return count;
+  }
+
+  private boolean hasPublished() {
+    long position = head;
+    return sequences.get((int) position & mask) == position + 1;
+  }
+
+  /*
+   ---------------------Writer Methods------------------------
+   */
+
+  private void runWriter() {
+    Command[] batch = new Command[slots.length];
+    long[] order = new long[slots.length];
+    int idle = 0;
+
+    while (true) {
+      long depth = getQueueDepth();
+      int count = drain(batch);
+
+      if (count > 0) {
+        maxQueueDepth = Math.max(maxQueueDepth, depth);
+        apply(batch, order, count);
+        idle = 0;
+        continue;
+      }
+
+      if ((tail.get() & CLOSED) != 0 && (tail.get() & ~CLOSED) == head) {
+        return;
+      }
+
+      if (++idle < IDLE_SPINS) {
+        Thread.onSpinWait();
+        continue;
+      }
+
+      // Announce the park before the final check, so a producer that publishes in
+      // between is sure to see the flag and unpark.
+      writerParked = true;
+      if (!hasPublished() && (tail.get() & CLOSED) == 0) {
+        LockSupport.parkNanos(1_000_000);
+      }
+      writerParked = false;
+      idle = 0;
+    }
+  }
+
+  /**
+   * Sorts the batch by key, keeping arrival order within a key, applies it and
+   * completes the futures.
+   */
+  private void apply(Command[] batch, long[] order, int count) {
+    for (int i = 0; i < count; i++) {
+      order[i] = ((long) batch[i].key << 32) | i;
+    }
+    Arrays.sort(order, 0, count);
+
+    RedBlackTree.Node finger = tree.getNullNode();
+
+    for (int i = 0; i < count; i++) {
+      Command command = batch[(int) order[i]];
+
+      try {
+        switch (command.operation) {
+          case INSERT -> {
+            finger = tree.insertNear(finger, command.key);
+            command.result.complete(true);
+          }
+          case DELETE -> {
+            boolean deleted = tree.deleteIfPresent(command.key);
+            if (deleted) {
+              finger = tree.getNullNode();
+            }
+            command.result.complete(deleted);
+          }
+          default -> command.result.complete(tree.search(command.key));
+        }
+      } catch (RuntimeException e) {
+        command.result.completeExceptionally(e);
+      }
+      batch[(int) order[i]] = null;
+    }
+
+    commands += count;
+    batches++;
+    maxBatchSize = Math.max(maxBatchSize, count);
+  }
+}
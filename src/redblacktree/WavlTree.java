@@ -0,0 +1,323 @@
+package redblacktree;
+
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * Implements a weak AVL (WAVL) tree, after Haeupler, Sen and Tarjan's rank-balanced
+ * trees. Every node has a rank; the rank difference between a node and each child
+ * is 1 or 2, a missing child has rank -1, and leaves have rank 0.
+ *
+ * <p>Without deletes a WAVL tree is exactly an AVL tree. Deletes relax the shape
+ * towards that of a Red-Black Tree: they rebalance mostly by demoting ranks and
+ * need at most two rotations, where an AVL tree may rotate at every level. The
+ * height stays below 2 log n.
+ * Author: Alex Matthes
+ */
+public class WavlTree implements OrderedIntSet {
+
+  /**
+   * Represents a node with its rank.
+   */
+  private static final class Node {
+    final int data;
+    int rank;
+    Node leftChild;
+    Node rightChild;
+
+    Node(int data) {
+      this.data = data;
+    }
+  }
+
+  private Node root;
+  private int size;
+  private long rotations;
+
+  @Override
+  public void insert(int item) {
+    root = insert(root, item);
+    size++;
+  }
+
+  private Node insert(Node node, int item) {
+    if (node == null) {
+      return new Node(item);
+    }
+
+    // Equal keys go to the right, as in RedBlackTree.
+    if (item < node.data) {
+      node.leftChild = insert(node.leftChild, item);
+      return fixInsert(node, node.leftChild, node.rightChild);
+    }
+    node.rightChild = insert(node.rightChild, item);
+    return fixInsert(node, node.rightChild, node.leftChild);
+  }
+
+  @Override
+  public void delete(int key) {
+    int sizeBefore = size;
+    root = delete(root, key);
+
+    if (size == sizeBefore) {
+      throw new NoSuchElementException("Key not found: " + key);
+    }
+  }
+
+  private Node delete(Node node, int key) {
+    if (node == null) {
+      return null;
+    }
+
+    if (key < node.data) {
+      node.leftChild = delete(node.leftChild, key);
+    } else if (key > node.data) {
+      node.rightChild = delete(node.rightChild, key);
+    } else {
+      size--;
+
+      if (node.leftChild == null) {
+        return node.rightChild;
+      }
+      if (node.rightChild == null) {
+        return node.leftChild;
+      }
+
+      // Replace the node by its successor, which takes over its rank.
+      Node successor = node.rightChild;
+      while (successor.leftChild != null) {
+        successor = successor.leftChild;
+      }
+      successor.rightChild = deleteMinimum(node.rightChild);
+      successor.leftChild = node.leftChild;
+      successor.rank = node.rank;
+      node = successor;
+    }
+    return fixDelete(node);
+  }
+
+  private Node deleteMinimum(Node node) {
+    if (node.leftChild == null) {
+      return node.rightChild;
+    }
+    node.leftChild = deleteMinimum(node.leftChild);
+    return fixDelete(node);
+  }
+
+  @Override
+  public boolean search(int key) {
+    Node current = root;
+
+    while (current != null) {
+      if (key == current.data) {
+        return true;
+      }
+      current = key < current.data ? current.leftChild : current.rightChild;
+    }
+    return false;
+  }
+
+  @Override
+  public void range(int low, int high, IntConsumer action) {
+    rangeHelper(root, low, high, action);
+  }
+
+  private void rangeHelper(Node node, int low, int high, IntConsumer action) {
+    if (node == null) {
+      return;
+    }
+
+    // Rotations can move equal keys to the left, so both sides are checked inclusively.
+    if (low <= node.data) {
+      rangeHelper(node.leftChild, low, high, action);
+    }
+    if (low <= node.data && node.data <= high) {
+      action.accept(node.data);
+    }
+    if (node.data <= high) {
+      rangeHelper(node.rightChild, low, high, action);
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int height() {
+    return heightHelper(root);
+  }
+
+  private int heightHelper(Node node) {
+    if (node == null) {
+      return 0;
+    }
+    return 1 + Math.max(heightHelper(node.leftChild), heightHelper(node.rightChild));
+  }
+
+  /**
+   * Returns the number of rotations performed so far.
+   *
+   * @return The rotation count.
+   */
+  public long getRotations() {
+    return rotations;
+  }
+
+  /**
+   * Checks the binary search tree and rank rules.
+   *
+   * @return true if the tree is a valid WAVL tree.
+   */
+  public boolean isWavlTree() {
+    return validate(root, Long.MIN_VALUE, Long.MAX_VALUE) == size;
+  }
+
+  /**
+   * Returns the number of nodes in a valid subtree, or -1 if it is invalid.
+   */
+  private int validate(Node node, long low, long high) {
+    if (node == null) {
+      return 0;
+    }
+    if (node.data < low || node.data > high) {
+      return -1;
+    }
+
+    int leftDifference = node.rank - rank(node.leftChild);
+    int rightDifference = node.rank - rank(node.rightChild);
+
+    if (leftDifference < 1 || leftDifference > 2 || rightDifference < 1 || rightDifference > 2
+            || (node.leftChild == null && node.rightChild == null && node.rank != 0)) {
+      return -1;
+    }
+
+    int left = validate(node.leftChild, low, node.data);
+    int right = validate(node.rightChild, node.data, high);
+    return left < 0 || right < 0 ? -1 : left + 1 + right;
+  }
+
+  /*
+   ---------------------Balancing Methods------------------------
+   */
+
+  private static int rank(Node node) {
+    return node == null ? -1 : node.rank;
+  }
+
+  /**
+   * Restores the rank rule at a node after an insert below it, where the child the
+   * key went into may have become a 0-child.
+   *
+   * @param node The node to fix.
+   * @param child The child the key was inserted into.
+   * @param sibling The other child.
+   *
+   * @return The new root of the subtree.
+   */
+  private Node fixInsert(Node node, Node child, Node sibling) {
+    if (node.rank != child.rank) {
+      return node;
+    }
+    if (node.rank - rank(sibling) == 1) {
+      // Promoting pushes the problem one level up, if anywhere.
+      node.rank++;
+      return node;
+    }
+
+    boolean left = child == node.leftChild;
+    Node inner = left ? child.rightChild : child.leftChild;
+
+    if (child.rank - rank(inner) == 2) {
+      node.rank--;
+      return left ? rotateRight(node) : rotateLeft(node);
+    }
+
+    // The inner grandchild becomes the root of the subtree.
+    if (left) {
+      node.leftChild = rotateLeft(child);
+    } else {
+      node.rightChild = rotateRight(child);
+    }
+    inner.rank++;
+    child.rank--;
+    node.rank--;
+    return left ? rotateRight(node) : rotateLeft(node);
+  }
+
+  /**
+   * Restores the rank rule at a node after a delete below it, where a child may
+   * have become a 3-child or the node a leaf of rank 1.
+   *
+   * @param node The node to fix.
+   *
+   * @return The new root of the subtree.
+   */
+  private Node fixDelete(Node node) {
+    if (node.leftChild == null && node.rightChild == null) {
+      node.rank = 0;
+      return node;
+    }
+
+    boolean left = node.rank - rank(node.leftChild) == 3;
+
+    if (!left && node.rank - rank(node.rightChild) != 3) {
+      return node;
+    }
+
+    Node sibling = left ? node.rightChild : node.leftChild;
+
+    if (node.rank - sibling.rank == 2) {
+      // The sibling is a 2-child too, so demoting the node fixes it here.
+      node.rank--;
+      return node;
+    }
+
+    Node outer = left ? sibling.rightChild : sibling.leftChild;
+    Node inner = left ? sibling.leftChild : sibling.rightChild;
+
+    if (sibling.rank - rank(outer) == 2 && sibling.rank - rank(inner) == 2) {
+      node.rank--;
+      sibling.rank--;
+      return node;
+    }
+
+    if (sibling.rank - rank(outer) == 1) {
+      Node subtreeRoot = left ? rotateLeft(node) : rotateRight(node);
+      sibling.rank++;
+      node.rank--;
+      if (node.leftChild == null && node.rightChild == null) {
+        node.rank--;
+      }
+      return subtreeRoot;
+    }
+
+    // The inner nephew becomes the root of the subtree.
+    if (left) {
+      node.rightChild = rotateRight(sibling);
+    } else {
+      node.leftChild = rotateLeft(sibling);
+    }
+    inner.rank += 2;
+    sibling.rank--;
+    node.rank -= 2;
+    return left ? rotateLeft(node) : rotateRight(node);
+  }
+
+  private Node rotateLeft(Node node) {
+    rotations++;
+    Node pivot = node.rightChild;
+    node.rightChild = pivot.leftChild;
+    pivot.leftChild = node;
+    return pivot;
+  }
+
+  private Node rotateRight(Node node) {
+    rotations++;
+    Node pivot = node.leftChild;
+    node.leftChild = pivot.rightChild;
+    pivot.rightChild = node;
+    return pivot;
+  }
+}
@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redblacktree.BPlusTree;
+
+/**
+ * Test suite for the B+ tree engine.
+ * Author: Alex Matthes
+ */
+class BPlusTreeTest {
+
+  @Test
+  @DisplayName("Search in empty tree returns false")
+  void testSearchOnEmptyTree() {
+    BPlusTree tree = new BPlusTree();
+    assertFalse(tree.search(10));
+    assertThrows(NoSuchElementException.class, () -> tree.delete(10));
+  }
+
+  @Test
+  @DisplayName("Duplicate inserts are ignored")
+  void testDuplicateInsert() {
+    BPlusTree tree = new BPlusTree();
+    tree.insert(5);
+    tree.insert(5);
+
+    assertEquals(1, tree.size());
+    tree.delete(5);
+    assertFalse(tree.search(5));
+  }
+
+  @Test
+  @DisplayName("Random inserts and deletes match a reference set")
+  void testRandomOperationsMatchReference() {
+    BPlusTree tree = new BPlusTree();
+    TreeSet<Integer> reference = new TreeSet<>();
+    Random random = new Random(7);
+
+    for (int i = 0; i < 50_000; i++) {
+      int key = random.nextInt(20_000);
+
+      if (random.nextInt(3) == 0 && reference.contains(key)) {
+        tree.delete(key);
+        reference.remove(key);
+      } else {
+        tree.insert(key);
+        reference.add(key);
+      }
+    }
+
+    assertEquals(reference.size(), tree.size());
+    for (int key = 0; key < 20_000; key++) {
+      assertEquals(reference.contains(key), tree.search(key), "Key " + key);
+    }
+
+    List<Integer> visited = new ArrayList<>();
+    tree.range(1000, 3000, visited::add);
+    assertEquals(new ArrayList<>(reference.subSet(1000, true, 3000, true)), visited);
+  }
+
+  @Test
+  @DisplayName("Deleting every key empties the tree")
+  void testDeleteAll() {
+    BPlusTree tree = new BPlusTree();
+
+    for (int i = 0; i < 10_000; i++) {
+      tree.insert(i);
+    }
+    // 10,000 keys fit in leaves of 64 keys under two levels of 64-way inner nodes.
+    assertTrue(tree.height() <= 3);
+
+    for (int i = 0; i < 10_000; i++) {
+      tree.delete(i);
+    }
+
+    assertEquals(0, tree.size());
+    assertEquals(0, tree.height());
+    List<Integer> visited = new ArrayList<>();
+    tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE, visited::add);
+    assertTrue(visited.isEmpty());
+  }
+}
@@ -0,0 +1,96 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redblacktree.BufferedRedBlackTree;
+
+/**
+ * Test suite for the write-buffered Red-Black Tree.
+ * Author: Alex Matthes
+ */
+class BufferedRedBlackTreeTest {
+
+  @Test
+  @DisplayName("Buffered operations are visible before a flush and newest wins")
+  void testNewestOperationWins() {
+    BufferedRedBlackTree tree = new BufferedRedBlackTree();
+    tree.insert(5);
+    tree.insert(5);
+    assertTrue(tree.search(5));
+    assertEquals(1, tree.size());
+
+    tree.flush();
+    tree.delete(5);
+    assertFalse(tree.search(5));
+    assertEquals(0, tree.size());
+
+    tree.insert(5);
+    assertTrue(tree.search(5));
+    tree.flush();
+    assertTrue(tree.search(5));
+    assertEquals(0, tree.getBuffered());
+
+    // Deleting an absent key is blind and leaves the set unchanged.
+    tree.delete(7);
+    tree.flush();
+    assertEquals(1, tree.size());
+  }
+
+  @Test
+  @DisplayName("Random operations match a reference set across flushes")
+  void testRandomOperationsMatchReference() {
+    // A small shard capacity forces many flushes, both rebuilds and per-key batches.
+    BufferedRedBlackTree tree = new BufferedRedBlackTree(4);
+    TreeSet<Integer> reference = new TreeSet<>();
+    Random random = new Random(17);
+
+    for (int i = 0; i < 50_000; i++) {
+      int key = random.nextInt();
+      key = random.nextInt(4) == 0 ? key : key % 20_000;
+
+      if (random.nextInt(3) == 0) {
+        tree.delete(key);
+        reference.remove(key);
+      } else {
+        tree.insert(key);
+        reference.add(key);
+      }
+
+      if (i % 5_000 == 0) {
+        assertEquals(reference.size(), tree.size());
+      }
+    }
+
+    assertTrue(tree.getFlushes() > tree.getRebuilds());
+    assertTrue(tree.getRebuilds() > 0);
+    assertEquals(reference.size(), tree.size());
+    for (int key = -20_000; key < 20_000; key++) {
+      assertEquals(reference.contains(key), tree.search(key), "Key " + key);
+    }
+
+    List<Integer> visited = new ArrayList<>();
+    tree.range(-10_000, 10_000, visited::add);
+    assertEquals(new ArrayList<>(reference.subSet(-10_000, true, 10_000, true)), visited);
+
+    visited.clear();
+    tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE, visited::add);
+    assertEquals(new ArrayList<>(reference), visited);
+
+    tree.flush();
+    assertTrue(tree.isRedBlackTree());
+    assertEquals(reference.size(), tree.size());
+  }
+
+  @Test
+  @DisplayName("The shard capacity must be positive")
+  void testRejectsInvalidCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new BufferedRedBlackTree(0));
+  }
+}
@@ -0,0 +1,142 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redblacktree.ByteKeyRedBlackTree;
+
+/**
+ * Test suite for the byte-string key Red-Black Tree.
+ * Author: Alex Matthes
+ */
+class ByteKeyRedBlackTreeTest {
+
+  private static byte[] utf8(String key) {
+    return key.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  @DisplayName("Keys are ordered as unsigned bytes, shorter prefixes first")
+  void testOrdering() {
+    ByteKeyRedBlackTree tree = new ByteKeyRedBlackTree();
+    byte[][] keys = {
+      {}, {0}, {0, 0}, {1}, utf8("abcdefgh"), utf8("abcdefgh\0"), utf8("abcdefghij"),
+      utf8("abcdefgi"), {(byte) 0x7F}, {(byte) 0x80}, {(byte) 0xFF}
+    };
+
+    for (int i = keys.length - 1; i >= 0; i--) {
+      tree.insert(keys[i]);
+    }
+    tree.insert(utf8("abcdefghij"));
+
+    List<byte[]> visited = new ArrayList<>();
+    tree.range(new byte[0], new byte[] {(byte) 0xFF, (byte) 0xFF}, visited::add);
+
+    assertEquals(keys.length, tree.size());
+    assertEquals(keys.length, visited.size());
+    for (int i = 0; i < keys.length; i++) {
+      assertArrayEquals(keys[i], visited.get(i));
+    }
+    assertTrue(tree.search(new byte[0]));
+    assertFalse(tree.search(utf8("abcdefg")));
+    assertTrue(tree.isRedBlackTree());
+  }
+
+  @Test
+  @DisplayName("Random updates match a reference set, including range and prefix scans")
+  void testRandomOperationsMatchReference() {
+    ByteKeyRedBlackTree tree = new ByteKeyRedBlackTree();
+    TreeSet<byte[]> reference = new TreeSet<>(Arrays::compareUnsigned);
+    Random random = new Random(41);
+
+    for (int i = 0; i < 20_000; i++) {
+      // Shared prefixes of various lengths, as in namespaced string keys.
+      String key = "tenant-" + random.nextInt(4) + "/" + Integer.toString(random.nextInt(300), 36)
+              + (random.nextBoolean() ? "" : "/x" + random.nextInt(5));
+      byte[] bytes = utf8(random.nextInt(8) == 0 ? key.substring(0, random.nextInt(10)) : key);
+
+      if (random.nextInt(3) == 0 && reference.contains(bytes)) {
+        tree.delete(bytes);
+        reference.remove(bytes);
+      } else {
+        tree.insert(bytes);
+        reference.add(bytes);
+      }
+
+      if (i % 2_000 == 0) {
+        assertTrue(tree.isRedBlackTree(), "After operation " + i);
+      }
+    }
+
+    assertTrue(tree.isRedBlackTree());
+    assertEquals(reference.size(), tree.size());
+
+    for (String prefix : new String[] {"", "ten", "tenant-2/", "tenant-1/a", "tenant-3/1/x",
+        "tenant-0/zz", "u"}) {
+      byte[] bytes = utf8(prefix);
+      List<byte[]> expected = new ArrayList<>();
+      for (byte[] key : reference.tailSet(bytes, true)) {
+        if (key.length < bytes.length
+                || !Arrays.equals(key, 0, bytes.length, bytes, 0, bytes.length)) {
+          break;
+        }
+        expected.add(key);
+      }
+
+      List<byte[]> visited = new ArrayList<>();
+      tree.prefixScan(bytes, visited::add);
+      assertEquals(expected.size(), visited.size(), "Prefix " + prefix);
+      for (int i = 0; i < expected.size(); i++) {
+        assertArrayEquals(expected.get(i), visited.get(i));
+      }
+    }
+
+    byte[] low = utf8("tenant-1/b");
+    byte[] high = utf8("tenant-2/5");
+    List<byte[]> visited = new ArrayList<>();
+    tree.range(low, high, visited::add);
+    assertEquals(reference.subSet(low, true, high, true).size(), visited.size());
+  }
+
+  @Test
+  @DisplayName("Inline prefixes decide most comparisons and deleted keys are compacted away")
+  void testPrefixesAndCompaction() {
+    ByteKeyRedBlackTree tree = new ByteKeyRedBlackTree();
+    List<byte[]> keys = new ArrayList<>();
+    Random random = new Random(43);
+
+    for (int i = 0; i < 10_000; i++) {
+      byte[] key = utf8(String.format("%08x-session-%d", random.nextInt(), i));
+      keys.add(key);
+      tree.insert(key);
+    }
+    for (byte[] key : keys) {
+      assertTrue(tree.search(key));
+    }
+    assertTrue(tree.getArenaComparisons() * 10 < tree.getComparisons());
+
+    long fullArena = tree.getArenaBytes();
+
+    for (int i = 0; i < 9_000; i++) {
+      tree.delete(keys.get(i));
+    }
+
+    assertTrue(tree.getArenaBytes() < fullArena / 2);
+    assertEquals(1_000, tree.size());
+    assertTrue(tree.isRedBlackTree());
+    for (int i = 9_000; i < 10_000; i++) {
+      assertTrue(tree.search(keys.get(i)));
+    }
+    assertThrows(NoSuchElementException.class, () -> tree.delete(keys.get(0)));
+  }
+}
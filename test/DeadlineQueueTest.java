@@ -0,0 +1,92 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redblacktree.DeadlineQueue;
+
+/**
+ * Test suite for the deadline queue facade.
+ * Author: Alex Matthes
+ */
+class DeadlineQueueTest {
+
+  @Test
+  @DisplayName("Empty queue throws on peek and poll")
+  void testEmptyQueue() {
+    DeadlineQueue queue = new DeadlineQueue();
+
+    assertTrue(queue.isEmpty());
+    assertThrows(NoSuchElementException.class, queue::peekMin);
+    assertThrows(NoSuchElementException.class, queue::pollMax);
+    assertEquals(0, queue.drainUntil(Integer.MAX_VALUE, deadline -> { }));
+  }
+
+  @Test
+  @DisplayName("Random adds and polls at both ends match a reference multiset")
+  void testRandomOperationsMatchReference() {
+    DeadlineQueue queue = new DeadlineQueue();
+    TreeMap<Integer, Integer> reference = new TreeMap<>();
+    Random random = new Random(3);
+
+    for (int i = 0; i < 50_000; i++) {
+      int choice = random.nextInt(4);
+
+      if (choice < 2 || reference.isEmpty()) {
+        int deadline = random.nextInt(1_000);
+        queue.add(deadline);
+        reference.merge(deadline, 1, Integer::sum);
+      } else if (choice == 2) {
+        assertEquals((int) reference.firstKey(), queue.peekMin());
+        assertEquals(take(reference, reference.firstKey()), queue.pollMin());
+      } else {
+        assertEquals((int) reference.lastKey(), queue.peekMax());
+        assertEquals(take(reference, reference.lastKey()), queue.pollMax());
+      }
+    }
+
+    int expected = reference.values().stream().mapToInt(Integer::intValue).sum();
+    assertEquals(expected, queue.size());
+  }
+
+  @Test
+  @DisplayName("drainUntil removes due deadlines in order and keeps the rest")
+  void testDrainUntil() {
+    DeadlineQueue queue = new DeadlineQueue();
+    PriorityQueue<Integer> reference = new PriorityQueue<>();
+    Random random = new Random(5);
+
+    for (int i = 0; i < 10_000; i++) {
+      int deadline = i + random.nextInt(100);
+      queue.add(deadline);
+      reference.add(deadline);
+    }
+
+    List<Integer> drained = new ArrayList<>();
+    int count = queue.drainUntil(5_000, drained::add);
+
+    List<Integer> expected = new ArrayList<>();
+    while (!reference.isEmpty() && reference.peek() <= 5_000) {
+      expected.add(reference.poll());
+    }
+
+    assertEquals(expected, drained);
+    assertEquals(expected.size(), count);
+    assertEquals(reference.size(), queue.size());
+    assertEquals((int) reference.peek(), queue.peekMin());
+  }
+
+  private static int take(TreeMap<Integer, Integer> reference, int key) {
+    if (reference.merge(key, -1, Integer::sum) == 0) {
+      reference.remove(key);
+    }
+    return key;
+  }
+}
@@ -0,0 +1,172 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redblacktree.ExpiringTreeSet;
+
+/**
+ * Test suite for the expiring key set.
+ * Author: Alex Matthes
+ */
+class ExpiringTreeSetTest {
+
+  @Test
+  @DisplayName("Expired keys are invisible to reads and removed on lookup")
+  void testLazyExpiry() {
+    AtomicLong clock = new AtomicLong(1_000);
+    ExpiringTreeSet set = new ExpiringTreeSet(clock::get);
+
+    set.put(1, 10);
+    set.put(2, 20);
+    set.put(3, 30);
+    clock.set(1_020);
+
+    List<Integer> live = new ArrayList<>();
+    set.range(0, 10, live::add);
+    assertEquals(List.of(3), live);
+
+    assertFalse(set.contains(1));
+    assertTrue(set.contains(3));
+    assertEquals(3, set.size());
+
+    // Remove takes the write lock, so it clears the expired key it finds.
+    assertThrows(NoSuchElementException.class, () -> set.remove(2));
+    assertEquals(2, set.size());
+    assertEquals(1, set.getExpiredOnRead());
+    assertEquals(1, set.getHits());
+  }
+
+  @Test
+  @DisplayName("Lookups run while a range scan holds the read lock")
+  void testConcurrentReads() {
+    ExpiringTreeSet set = new ExpiringTreeSet();
+    set.put(1, 60_000);
+    set.put(2, 60_000);
+
+    List<Boolean> found = new ArrayList<>();
+    set.range(1, 1, key -> {
+      Thread reader = new Thread(() -> found.add(set.contains(2)));
+      reader.start();
+      try {
+        reader.join(5_000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+
+    assertEquals(List.of(true), found);
+  }
+
+  @Test
+  @DisplayName("Bulk expiry respects the budget and skips keys whose deadline moved")
+  void testBulkExpiry() {
+    AtomicLong clock = new AtomicLong(0);
+    ExpiringTreeSet set = new ExpiringTreeSet(clock::get);
+
+    for (int key = 0; key < 1_000; key++) {
+      set.put(key, key);
+    }
+    // Key 5 is refreshed, so its entry in the bucket for tick 5 is stale.
+    set.put(5, 2_000);
+    clock.set(999);
+
+    int removed = set.expire(100);
+    assertTrue(removed > 0 && removed <= 100);
+
+    int sweeps = 1;
+    while (set.expire(100) > 0) {
+      sweeps++;
+    }
+
+    assertTrue(sweeps >= 10);
+    assertEquals(1, set.size());
+    assertTrue(set.contains(5));
+    assertFalse(set.contains(999));
+    assertEquals(999, set.getExpiredBySweep());
+  }
+
+  @Test
+  @DisplayName("A tick with more keys than the budget is drained over several sweeps")
+  void testLargeTickSplitAcrossSweeps() {
+    AtomicLong clock = new AtomicLong(0);
+    ExpiringTreeSet set = new ExpiringTreeSet(clock::get);
+
+    for (int key = 0; key < 1_000; key++) {
+      set.put(key, 5);
+    }
+    set.put(-1, 6);
+    clock.set(10);
+
+    for (int sweep = 0; sweep < 3; sweep++) {
+      assertEquals(256, set.expire(256));
+    }
+    assertEquals(233, set.expire(256));
+    assertEquals(0, set.expire(256));
+    assertEquals(0, set.size());
+  }
+
+  @Test
+  @DisplayName("Deadlines keep working past the int millisecond range")
+  void testLongDeadlines() {
+    long day = 24L * 60 * 60 * 1_000;
+    AtomicLong clock = new AtomicLong(0);
+    ExpiringTreeSet set = new ExpiringTreeSet(clock::get);
+
+    set.put(1, 10);
+    set.put(2, 60 * day);
+    set.put(3, Long.MAX_VALUE);
+    clock.set(40 * day);
+
+    set.put(4, 1_000);
+    assertTrue(set.contains(2));
+    assertTrue(set.contains(4));
+    assertEquals(1, set.expire(100));
+    assertFalse(set.contains(1));
+
+    clock.set(60 * day);
+    assertEquals(2, set.expire(100));
+    assertFalse(set.contains(2));
+    assertTrue(set.contains(3));
+    assertEquals(1, set.size());
+  }
+
+  @Test
+  @DisplayName("Background sweeper removes expired keys")
+  void testSweeper() throws InterruptedException {
+    try (ExpiringTreeSet set = new ExpiringTreeSet()) {
+      for (int key = 0; key < 10_000; key++) {
+        set.put(key, 1);
+      }
+      set.put(-1, 60_000);
+      set.startSweeper(1, 256);
+
+      long deadline = System.nanoTime() + 5_000_000_000L;
+      while (set.size() > 1 && System.nanoTime() < deadline) {
+        Thread.sleep(5);
+      }
+
+      assertEquals(1, set.size());
+      assertEquals(10_000, set.getExpiredBySweep());
+      assertThrows(IllegalStateException.class, () -> set.startSweeper(1, 256));
+    }
+  }
+
+  @Test
+  @DisplayName("A sweeper needs a positive budget and a non-negative interval")
+  void testSweeperArguments() {
+    try (ExpiringTreeSet set = new ExpiringTreeSet()) {
+      assertThrows(IllegalArgumentException.class, () -> set.startSweeper(1, 0));
+      assertThrows(IllegalArgumentException.class, () -> set.startSweeper(-1, 256));
+
+      // The rejected calls started nothing.
+      set.startSweeper(1, 256);
+    }
+  }
+}
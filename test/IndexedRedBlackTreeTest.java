@@ -0,0 +1,64 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redblacktree.IndexedRedBlackTree;
+
+/**
+ * Test suite for the hash-indexed Red-Black Tree.
+ * Author: Alex Matthes
+ */
+class IndexedRedBlackTreeTest {
+
+  @Test
+  @DisplayName("Duplicate inserts are ignored and missing deletes throw")
+  void testSetSemantics() {
+    IndexedRedBlackTree tree = new IndexedRedBlackTree();
+    tree.insert(5);
+    tree.insert(5);
+
+    assertEquals(1, tree.size());
+    tree.delete(5);
+    assertFalse(tree.search(5));
+    assertThrows(NoSuchElementException.class, () -> tree.delete(5));
+  }
+
+  @Test
+  @DisplayName("Random inserts and deletes match a reference set")
+  void testRandomOperationsMatchReference() {
+    IndexedRedBlackTree tree = new IndexedRedBlackTree();
+    TreeSet<Integer> reference = new TreeSet<>();
+    Random random = new Random(11);
+
+    // A small key space forces long probe runs and many backward shifts.
+    for (int i = 0; i < 100_000; i++) {
+      int key = random.nextInt(5_000) * 1024;
+
+      if (random.nextBoolean() && reference.contains(key)) {
+        tree.delete(key);
+        reference.remove(key);
+      } else {
+        tree.insert(key);
+        reference.add(key);
+      }
+    }
+
+    assertEquals(reference.size(), tree.size());
+    assertTrue(tree.isRedBlackTree());
+    for (int key = 0; key < 5_000 * 1024; key += 1024) {
+      assertEquals(reference.contains(key), tree.search(key), "Key " + key);
+    }
+
+    List<Integer> visited = new ArrayList<>();
+    tree.range(100_000, 2_000_000, visited::add);
+    assertEquals(new ArrayList<>(reference.subSet(100_000, true, 2_000_000, true)), visited);
+  }
+}
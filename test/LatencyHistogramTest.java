@@ -0,0 +1,58 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test suite for the log-linear latency histogram.
+ * Author: Alex Matthes
+ */
+class LatencyHistogramTest {
+
+  @Test
+  @DisplayName("Small values are recorded exactly")
+  void testSmallValuesAreExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+
+    assertEquals(100, histogram.getTotalCount());
+    assertEquals(50, histogram.getValueAtPercentile(50));
+    assertEquals(99, histogram.getValueAtPercentile(99));
+    assertEquals(100, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  @DisplayName("Large values stay within the relative error bound")
+  void testLargeValuesRelativeError() {
+    long[] values = {1_000, 123_456, 9_999_999, 5_000_000_000L};
+
+    for (long value : values) {
+      LatencyHistogram histogram = new LatencyHistogram();
+      histogram.record(value);
+      histogram.record(value * 2);
+
+      long reported = histogram.getValueAtPercentile(50);
+      assertTrue(reported >= value && reported <= value * 1.016, "Value " + value);
+    }
+  }
+
+  @Test
+  @DisplayName("Merging adds counts from both histograms")
+  void testMerge() {
+    LatencyHistogram first = new LatencyHistogram();
+    LatencyHistogram second = new LatencyHistogram();
+
+    first.record(10);
+    second.record(20);
+    second.record(30);
+    first.add(second);
+
+    assertEquals(3, first.getTotalCount());
+    assertEquals(30, first.getMaxValue());
+    assertEquals(20, first.getValueAtPercentile(50));
+  }
+}
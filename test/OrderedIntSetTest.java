@@ -0,0 +1,180 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redblacktree.AvlTree;
+import redblacktree.OrderedIntSet;
+import redblacktree.RedBlackTree;
+import redblacktree.Treap;
+import redblacktree.WavlTree;
+
+/**
+ * Runs the same contract against every OrderedIntSet engine.
+ * Author: Alex Matthes
+ */
+class OrderedIntSetTest {
+
+  private static final Map<String, Supplier<OrderedIntSet>> ENGINES = Map.of(
+          "rbt", RedBlackTree::new,
+          "bst", BinarySearchTree::new,
+          "avl", AvlTree::new,
+          "wavl", WavlTree::new,
+          "treap", () -> new Treap(47));
+
+  /**
+   * Checks an engine's own structural invariants, where it has a check that allows
+   * duplicate keys.
+   */
+  private static boolean isValid(OrderedIntSet set) {
+    return switch (set) {
+      case AvlTree avl -> avl.isAvlTree();
+      case WavlTree wavl -> wavl.isWavlTree();
+      case Treap treap -> treap.isTreap();
+      default -> true;
+    };
+  }
+
+  @Test
+  @DisplayName("Every engine matches a reference multiset under random updates")
+  void testRandomOperationsMatchReference() {
+    for (Map.Entry<String, Supplier<OrderedIntSet>> engine : ENGINES.entrySet()) {
+      OrderedIntSet set = engine.getValue().get();
+      TreeMap<Integer, Integer> reference = new TreeMap<>();
+      Random random = new Random(53);
+      int size = 0;
+
+      for (int i = 0; i < 20_000; i++) {
+        // A small key space, so that duplicates are common.
+        int key = random.nextInt(200) - 100;
+
+        if (random.nextInt(5) < 2 && reference.containsKey(key)) {
+          set.delete(key);
+          reference.merge(key, -1, (count, delta) -> count + delta == 0 ? null : count + delta);
+          size--;
+        } else {
+          set.insert(key);
+          reference.merge(key, 1, Integer::sum);
+          size++;
+        }
+
+        if (i % 1_000 == 0) {
+          assertTrue(isValid(set), engine.getKey() + " after operation " + i);
+        }
+      }
+
+      assertTrue(isValid(set), engine.getKey());
+      assertEquals(size, set.size(), engine.getKey());
+
+      // Windows that start, end or sit on duplicated keys, plus ones past either end.
+      for (int probe = 0; probe < 200; probe++) {
+        int low = random.nextInt(240) - 120;
+        int high = low + random.nextInt(40);
+        List<Integer> visited = new ArrayList<>();
+
+        set.range(low, high, visited::add);
+        assertEquals(expected(reference, low, high), visited,
+                engine.getKey() + " [" + low + ", " + high + "]");
+      }
+
+      for (int key = -120; key < 120; key++) {
+        assertEquals(reference.containsKey(key), set.search(key), engine.getKey() + " " + key);
+      }
+    }
+  }
+
+  /**
+   * Lists the keys of a reference multiset between low and high, with their copies.
+   */
+  private static List<Integer> expected(TreeMap<Integer, Integer> reference, int low, int high) {
+    List<Integer> keys = new ArrayList<>();
+
+    reference.subMap(low, true, high, true).forEach((key, count) -> {
+      for (int i = 0; i < count; i++) {
+        keys.add(key);
+      }
+    });
+    return keys;
+  }
+
+  @Test
+  @DisplayName("Every engine rejects deleting an absent key and empties cleanly")
+  void testDeleteAll() {
+    for (Map.Entry<String, Supplier<OrderedIntSet>> engine : ENGINES.entrySet()) {
+      OrderedIntSet set = engine.getValue().get();
+
+      assertThrows(NoSuchElementException.class, () -> set.delete(1));
+      for (int key = 0; key < 1_000; key++) {
+        set.insert((key * 37) % 1_000);
+      }
+      for (int key = 999; key >= 0; key--) {
+        set.delete(key);
+      }
+
+      assertEquals(0, set.size(), engine.getKey());
+      assertEquals(0, set.height(), engine.getKey());
+      assertFalse(set.search(0), engine.getKey());
+    }
+  }
+
+  @Test
+  @DisplayName("Balanced engines stay shallow on sorted input")
+  void testSortedInputHeights() {
+    int count = 1 << 14;
+    AvlTree avl = new AvlTree();
+    WavlTree wavl = new WavlTree();
+    RedBlackTree rbt = new RedBlackTree();
+    Treap treap = new Treap(59);
+    BinarySearchTree bst = new BinarySearchTree();
+
+    for (int key = 0; key < count; key++) {
+      avl.insert(key);
+      wavl.insert(key);
+      rbt.insert(key);
+      treap.insert(key);
+      bst.insert(key);
+    }
+
+    assertTrue(avl.height() <= 15);
+    assertTrue(wavl.height() <= 15);
+    assertTrue(rbt.height() <= 28);
+    assertTrue(treap.height() <= 45);
+    assertEquals(count, bst.height());
+  }
+
+  @Test
+  @DisplayName("WAVL rotates less than AVL under deletes")
+  void testWavlDeleteRotations() {
+    AvlTree avl = new AvlTree();
+    WavlTree wavl = new WavlTree();
+    Random random = new Random(61);
+    int[] keys = random.ints(50_000, 0, 1_000_000).toArray();
+
+    for (int key : keys) {
+      avl.insert(key);
+      wavl.insert(key);
+    }
+    // Without deletes both trees take the same shape and rotate the same.
+    assertEquals(avl.getRotations(), wavl.getRotations());
+
+    long avlBefore = avl.getRotations();
+    long wavlBefore = wavl.getRotations();
+    for (int i = 0; i < keys.length; i += 2) {
+      avl.delete(keys[i]);
+      wavl.delete(keys[i]);
+    }
+
+    assertTrue(wavl.getRotations() - wavlBefore < avl.getRotations() - avlBefore);
+    assertTrue(avl.isAvlTree());
+    assertTrue(wavl.isWavlTree());
+  }
+}
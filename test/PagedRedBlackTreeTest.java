@@ -0,0 +1,104 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redblacktree.PagedRedBlackTree;
+
+/**
+ * Test suite for the disk-backed Red-Black Tree.
+ * Author: Alex Matthes
+ */
+class PagedRedBlackTreeTest {
+
+  @Test
+  @DisplayName("Random operations through a tiny buffer pool match a reference set")
+  void testRandomOperationsMatchReference() throws IOException {
+    Path file = Files.createTempFile("rbt-paged", ".db");
+    TreeSet<Integer> reference = new TreeSet<>();
+    Random random = new Random(17);
+
+    try (PagedRedBlackTree tree = new PagedRedBlackTree(file, 4)) {
+      for (int i = 0; i < 30_000; i++) {
+        int key = random.nextInt(10_000);
+
+        if (reference.contains(key)) {
+          tree.delete(key);
+          reference.remove(key);
+        } else {
+          tree.insert(key);
+          reference.add(key);
+        }
+      }
+
+      assertEquals(reference.size(), tree.size());
+      assertTrue(tree.isRedBlackTree());
+      assertThrows(NoSuchElementException.class, () -> tree.delete(-1));
+      assertTrue(tree.getPageFaults() > 0);
+      assertTrue(tree.getWriteBacks() > 0);
+      assertTrue(tree.getHitRatio() > 0.5);
+    }
+
+    Files.delete(file);
+  }
+
+  @Test
+  @DisplayName("A closed tree reopens with the same keys")
+  void testReopen() throws IOException {
+    Path file = Files.createTempFile("rbt-paged", ".db");
+
+    try (PagedRedBlackTree tree = new PagedRedBlackTree(file, 8)) {
+      for (int i = 0; i < 5_000; i++) {
+        tree.insert(i * 3);
+      }
+      for (int i = 0; i < 5_000; i += 2) {
+        tree.delete(i * 3);
+      }
+    }
+
+    try (PagedRedBlackTree tree = new PagedRedBlackTree(file, 8)) {
+      assertEquals(2_500, tree.size());
+      assertTrue(tree.isRedBlackTree());
+
+      List<Integer> keys = new ArrayList<>();
+      tree.range(0, 30, keys::add);
+      assertEquals(List.of(3, 9, 15, 21, 27), keys);
+
+      // Ids freed before closing are reused.
+      tree.insert(-5);
+      assertTrue(tree.search(-5));
+    }
+
+    assertTrue(Files.size(file) <= 4096L * (1 + 5_000 / 256 + 1));
+    Files.delete(file);
+  }
+
+  @Test
+  @DisplayName("Range visits every copy of a duplicate key")
+  void testRangeWithDuplicates() throws IOException {
+    Path file = Files.createTempFile("rbt-paged", ".db");
+
+    try (PagedRedBlackTree tree = new PagedRedBlackTree(file, 4)) {
+      for (int i = 0; i < 50; i++) {
+        tree.insert(i % 5);
+      }
+
+      List<Integer> keys = new ArrayList<>();
+      tree.range(0, 4, keys::add);
+      assertEquals(50, keys.size());
+      assertEquals(4, (int) keys.get(49));
+      assertTrue(tree.isRedBlackTree());
+    }
+
+    Files.delete(file);
+  }
+}
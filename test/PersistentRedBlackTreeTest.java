@@ -0,0 +1,160 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redblacktree.ChangeFeed;
+import redblacktree.PersistentRedBlackTree;
+
+/**
+ * Test suite for the persistent Red-Black Tree, its diff and the change feed.
+ * Author: Alex Matthes
+ */
+class PersistentRedBlackTreeTest {
+
+  @Test
+  @DisplayName("Updates return new versions and leave old versions untouched")
+  void testVersionsAreIndependent() {
+    PersistentRedBlackTree empty = PersistentRedBlackTree.empty();
+    PersistentRedBlackTree one = empty.insert(1);
+    PersistentRedBlackTree two = one.insert(2);
+
+    assertEquals(0, empty.size());
+    assertTrue(one.contains(1));
+    assertFalse(one.contains(2));
+    assertEquals(2, two.size());
+    assertSame(two, two.insert(2));
+    assertSame(two, two.delete(3));
+    assertFalse(two.delete(1).contains(1));
+    assertTrue(two.contains(1));
+  }
+
+  @Test
+  @DisplayName("Random updates match a reference set and keep every version valid")
+  void testRandomOperationsMatchReference() {
+    PersistentRedBlackTree tree = PersistentRedBlackTree.empty();
+    TreeSet<Integer> reference = new TreeSet<>();
+    Random random = new Random(23);
+
+    for (int i = 0; i < 20_000; i++) {
+      int key = random.nextInt(5_000) - 2_500;
+
+      if (random.nextInt(3) == 0) {
+        tree = tree.delete(key);
+        reference.remove(key);
+      } else {
+        tree = tree.insert(key);
+        reference.add(key);
+      }
+
+      if (i % 1_000 == 0) {
+        assertTrue(tree.isRedBlackTree(), "After operation " + i);
+      }
+    }
+
+    assertTrue(tree.isRedBlackTree());
+    assertEquals(reference.size(), tree.size());
+
+    List<Integer> visited = new ArrayList<>();
+    tree.range(-1_000, 1_000, visited::add);
+    assertEquals(new ArrayList<>(reference.subSet(-1_000, true, 1_000, true)), visited);
+  }
+
+  @Test
+  @DisplayName("Diff reports exactly the added and removed keys between versions")
+  void testDiff() {
+    PersistentRedBlackTree older = PersistentRedBlackTree.empty();
+    Random random = new Random(29);
+
+    for (int i = 0; i < 10_000; i++) {
+      older = older.insert(random.nextInt(100_000));
+    }
+
+    TreeSet<Integer> expectedAdded = new TreeSet<>();
+    TreeSet<Integer> expectedRemoved = new TreeSet<>();
+    PersistentRedBlackTree newer = older;
+
+    for (int i = 0; i < 50; i++) {
+      int key = random.nextInt(100_000);
+
+      if (newer.contains(key)) {
+        newer = newer.delete(key);
+        if (!expectedAdded.remove(key)) {
+          expectedRemoved.add(key);
+        }
+      } else {
+        newer = newer.insert(key);
+        if (!expectedRemoved.remove(key)) {
+          expectedAdded.add(key);
+        }
+      }
+    }
+
+    List<Integer> added = new ArrayList<>();
+    List<Integer> removed = new ArrayList<>();
+    PersistentRedBlackTree.diff(older, newer, added::add, removed::add);
+
+    assertEquals(new ArrayList<>(expectedAdded), added);
+    assertEquals(new ArrayList<>(expectedRemoved), removed);
+
+    // Unrelated versions with the same keys have no shared nodes but no changes either.
+    PersistentRedBlackTree rebuilt = PersistentRedBlackTree.empty();
+    int[] keys = new int[newer.size()];
+    int[] count = {0};
+    newer.range(Integer.MIN_VALUE, Integer.MAX_VALUE, key -> keys[count[0]++] = key);
+    for (int i = keys.length - 1; i >= 0; i--) {
+      rebuilt = rebuilt.insert(keys[i]);
+    }
+
+    added.clear();
+    removed.clear();
+    PersistentRedBlackTree.diff(newer, rebuilt, added::add, removed::add);
+    assertTrue(added.isEmpty());
+    assertTrue(removed.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Followers reproduce the published versions from the deltas")
+  void testChangeFeed() {
+    PersistentRedBlackTree leader = PersistentRedBlackTree.empty().insert(Integer.MIN_VALUE)
+            .insert(Integer.MAX_VALUE);
+    ChangeFeed feed = new ChangeFeed(leader);
+    PersistentRedBlackTree[] follower = new PersistentRedBlackTree[1];
+    follower[0] = feed.subscribe(delta -> follower[0] = ChangeFeed.apply(follower[0], delta));
+
+    Random random = new Random(31);
+
+    for (int round = 0; round < 20; round++) {
+      for (int i = 0; i < 100; i++) {
+        int key = random.nextInt();
+        leader = random.nextBoolean() ? leader.insert(key) : leader.delete(key);
+      }
+      leader = round % 2 == 0 ? leader.delete(Integer.MIN_VALUE) : leader.insert(Integer.MIN_VALUE);
+      feed.publish(leader);
+
+      List<Integer> added = new ArrayList<>();
+      List<Integer> removed = new ArrayList<>();
+      PersistentRedBlackTree.diff(leader, follower[0], added::add, removed::add);
+      assertTrue(added.isEmpty() && removed.isEmpty(), "Round " + round);
+    }
+
+    // Clustered changes cost a couple of bytes each.
+    PersistentRedBlackTree clustered = leader;
+    for (int key = 0; key < 1_000; key++) {
+      clustered = clustered.insert(key);
+    }
+    ByteBuffer delta = ChangeFeed.encode(leader, clustered);
+    assertTrue(delta.remaining() < 16 + 2 * 1_000);
+
+    PersistentRedBlackTree unrelated = PersistentRedBlackTree.empty().insert(42);
+    assertThrows(IllegalArgumentException.class, () -> ChangeFeed.apply(unrelated, delta));
+  }
+}
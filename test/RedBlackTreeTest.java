@@ -3,11 +3,29 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.Flow;
+import javax.management.ObjectName;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import redblacktree.FrozenTree;
 import redblacktree.RedBlackTree;
+import redblacktree.TraceReader;
+import redblacktree.TraceRecorder;
+import redblacktree.TreeMetrics;
 
 /**
  * Comprehensive test suite for Red-Black Tree implementation.
@@ -215,6 +233,67 @@ class RedBlackTreeTest {
     }
   }
 
+  // ==============================================
+  // FINGER INSERT TESTS
+  // ==============================================
+
+  @Nested
+  @DisplayName("Finger Insert Operations")
+  class FingerInsertTests {
+
+    @Test
+    @DisplayName("Insert near last keeps BST order for jittered ascending keys")
+    void testInsertNearLastJittered() {
+      RedBlackTree tree = new RedBlackTree();
+      int[] values = {1, 3, 2, 4, 6, 5, 9, 7, 8, 12, 10, 11, 0, 13};
+
+      for (int val : values) {
+        tree.insertNearLast(val);
+        assertTrue(tree.isRedBlackTree(),
+                "Tree should maintain RB properties after inserting " + val);
+      }
+
+      List<Integer> visited = new ArrayList<>();
+      tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE, visited::add);
+
+      assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13), visited);
+    }
+
+    @Test
+    @DisplayName("Insert near an interior finger places keys on both sides")
+    void testInsertNearInteriorFinger() {
+      RedBlackTree tree = new RedBlackTree();
+
+      for (int i = 0; i < 64; i += 2) {
+        tree.insert(i);
+      }
+
+      RedBlackTree.Node finger = tree.insertNear(tree.getNullNode(), 31);
+      finger = tree.insertNear(finger, 1);
+      finger = tree.insertNear(finger, 63);
+      tree.insertNear(finger, 33);
+
+      assertTrue(tree.search(1));
+      assertTrue(tree.search(31));
+      assertTrue(tree.search(33));
+      assertTrue(tree.search(63));
+      assertTrue(tree.isRedBlackTree());
+    }
+
+    @Test
+    @DisplayName("Deleting the last inserted node resets the finger")
+    void testDeleteResetsFinger() {
+      RedBlackTree tree = new RedBlackTree();
+      tree.insertNearLast(10);
+      tree.insertNearLast(20);
+      tree.delete(20);
+      tree.insertNearLast(15);
+
+      assertTrue(tree.search(15));
+      assertTrue(tree.isRedBlackTree());
+    }
+  }
+
   // ==============================================
   // DELETE TESTS
   // ==============================================
@@ -388,6 +467,708 @@ class RedBlackTreeTest {
     }
   }
 
+  // ==============================================
+  // RANGE TESTS
+  // ==============================================
+
+  @Nested
+  @DisplayName("Range Operations")
+  class RangeTests {
+
+    @Test
+    @DisplayName("Range visits keys in ascending order within bounds")
+    void testRangeWithinBounds() {
+      RedBlackTree tree = new RedBlackTree();
+      int[] values = {50, 25, 75, 10, 30, 60, 80};
+
+      for (int val : values) {
+        tree.insert(val);
+      }
+
+      List<Integer> visited = new ArrayList<>();
+      tree.range(25, 60, visited::add);
+
+      assertEquals(List.of(25, 30, 50, 60), visited);
+    }
+
+    @Test
+    @DisplayName("Range visits every copy of a duplicate key")
+    void testRangeWithDuplicates() {
+      RedBlackTree tree = new RedBlackTree();
+
+      for (int i = 0; i < 50; i++) {
+        tree.insert(i % 5);
+      }
+
+      List<Integer> visited = new ArrayList<>();
+      tree.range(0, 4, visited::add);
+
+      assertEquals(50, visited.size());
+      for (int i = 0; i < 50; i++) {
+        assertEquals(i / 10, (int) visited.get(i));
+      }
+    }
+
+    @Test
+    @DisplayName("Range on empty tree visits nothing")
+    void testRangeOnEmptyTree() {
+      RedBlackTree tree = new RedBlackTree();
+      List<Integer> visited = new ArrayList<>();
+
+      tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE, visited::add);
+
+      assertTrue(visited.isEmpty());
+    }
+  }
+
+  // ==============================================
+  // FREEZE TESTS
+  // ==============================================
+
+  @Nested
+  @DisplayName("Frozen Copies")
+  class FreezeTests {
+
+    @Test
+    @DisplayName("Frozen copy finds exactly the keys of the tree")
+    void testFrozenSearch() {
+      RedBlackTree tree = new RedBlackTree();
+
+      for (int i = 0; i < 1000; i += 3) {
+        tree.insert(i);
+      }
+
+      FrozenTree frozen = tree.freeze();
+
+      assertEquals(tree.size(), frozen.size());
+      for (int i = -5; i < 1005; i++) {
+        assertEquals(tree.search(i), frozen.search(i), "Key " + i);
+      }
+    }
+
+    @Test
+    @DisplayName("Frozen copy answers rank and range queries")
+    void testFrozenRankAndRange() {
+      RedBlackTree tree = new RedBlackTree();
+      int[] values = {50, 25, 75, 10, 30, 60, 80};
+
+      for (int val : values) {
+        tree.insert(val);
+      }
+
+      FrozenTree frozen = tree.freeze();
+      tree.insert(55);
+
+      assertEquals(0, frozen.rank(10));
+      assertEquals(3, frozen.rank(50));
+      assertEquals(4, frozen.rank(55));
+      assertEquals(7, frozen.rank(100));
+
+      List<Integer> visited = new ArrayList<>();
+      frozen.range(26, 75, visited::add);
+      assertEquals(List.of(30, 50, 60, 75), visited);
+    }
+
+    @Test
+    @DisplayName("Frozen copy keeps duplicate keys")
+    void testFrozenDuplicates() {
+      RedBlackTree tree = new RedBlackTree();
+
+      for (int i = 0; i < 20; i++) {
+        tree.insert(Integer.MIN_VALUE);
+        tree.insert(i);
+      }
+
+      List<Integer> visited = new ArrayList<>();
+      tree.freeze().range(Integer.MIN_VALUE, Integer.MAX_VALUE, visited::add);
+
+      assertEquals(40, visited.size());
+      assertEquals(Integer.MIN_VALUE, (int) visited.get(19));
+      assertEquals(19, (int) visited.get(39));
+    }
+
+    @Test
+    @DisplayName("Frozen copy of empty tree finds nothing")
+    void testFrozenEmpty() {
+      FrozenTree frozen = new RedBlackTree().freeze();
+
+      assertFalse(frozen.search(0));
+      assertEquals(0, frozen.rank(0));
+    }
+  }
+
+  // ==============================================
+  // METRICS TESTS
+  // ==============================================
+
+  @Nested
+  @DisplayName("Metrics")
+  class MetricsTests {
+
+    @Test
+    @DisplayName("Counters track operations and rotations")
+    void testCountersTrackOperations() {
+      RedBlackTree tree = new RedBlackTree();
+      TreeMetrics metrics = tree.enableMetrics();
+
+      tree.insert(10);
+      tree.insert(15);
+      tree.insert(20); // Causes a left rotation
+      tree.search(15);
+      tree.search(99);
+      tree.delete(10);
+
+      assertEquals(3, metrics.getInserts());
+      assertEquals(1, metrics.getDeletes());
+      assertEquals(1, metrics.getSearchHits());
+      assertEquals(1, metrics.getSearchMisses());
+      assertEquals(1, metrics.getLeftRotations());
+      assertEquals(0, metrics.getRightRotations());
+      assertEquals(1, metrics.getInsertFixUpIterations());
+      assertEquals(2, metrics.getSize());
+      assertEquals(2, metrics.getHeight());
+    }
+
+    @Test
+    @DisplayName("Disabled metrics stop counting")
+    void testDisableMetrics() {
+      RedBlackTree tree = new RedBlackTree();
+      TreeMetrics metrics = tree.enableMetrics();
+
+      tree.insert(1);
+      tree.disableMetrics();
+      tree.insert(2);
+
+      assertEquals(1, metrics.getInserts());
+    }
+
+    @Test
+    @DisplayName("Metrics are visible through the platform MBean server")
+    void testRegisterMBean() throws Exception {
+      RedBlackTree tree = new RedBlackTree();
+      TreeMetrics metrics = tree.enableMetrics();
+      tree.insert(1);
+
+      ObjectName name = metrics.register("test-tree");
+      try {
+        Object inserts = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Inserts");
+        assertEquals(1L, inserts);
+      } finally {
+        metrics.unregister();
+      }
+      assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+  }
+
+  // ==============================================
+  // FLIGHT RECORDER TESTS
+  // ==============================================
+
+  @Nested
+  @DisplayName("Flight Recorder Events")
+  class FlightRecorderTests {
+
+    @Test
+    @DisplayName("Operations above the threshold are recorded with their details")
+    void testEventsAreRecorded() throws Exception {
+      RedBlackTree tree = new RedBlackTree();
+      Path file = Files.createTempFile("rbt", ".jfr");
+
+      try (Recording recording = new Recording()) {
+        recording.enable("redblacktree.Insert").withThreshold(Duration.ZERO);
+        recording.enable("redblacktree.Search").withThreshold(Duration.ZERO);
+        recording.start();
+
+        tree.insert(10);
+        tree.insert(15);
+        tree.insert(20);
+        tree.search(20);
+
+        recording.stop();
+        recording.dump(file);
+      }
+
+      List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      List<RecordedEvent> inserts = new ArrayList<>();
+      RecordedEvent search = null;
+
+      for (RecordedEvent event : events) {
+        if (event.getEventType().getName().equals("redblacktree.Insert")) {
+          inserts.add(event);
+        } else if (event.getEventType().getName().equals("redblacktree.Search")) {
+          search = event;
+        }
+      }
+
+      assertEquals(3, inserts.size());
+      assertEquals(20, inserts.get(2).getInt("key"));
+      assertEquals(2, inserts.get(2).getInt("pathLength"));
+      assertEquals(1, inserts.get(2).getInt("rotations"));
+      assertTrue(search != null && search.getBoolean("found"));
+      assertEquals(2, search.getInt("pathLength"));
+    }
+  }
+
+  // ==============================================
+  // TRACE RECORDING TESTS
+  // ==============================================
+
+  @Nested
+  @DisplayName("Trace Recording")
+  class TraceRecordingTests {
+
+    @Test
+    @DisplayName("Recorded operations are read back in order")
+    void testRecordAndReadBack() throws Exception {
+      Path file = Files.createTempFile("rbt", ".trace");
+      RedBlackTree tree = new RedBlackTree();
+
+      try (TraceRecorder recorder = new TraceRecorder(file)) {
+        tree.setTraceRecorder(recorder);
+        tree.insert(100);
+        tree.insert(-7);
+        tree.search(Integer.MAX_VALUE);
+        tree.delete(100);
+        tree.setTraceRecorder(null);
+        tree.insert(5);
+      }
+
+      byte[] operations = {TraceRecorder.INSERT, TraceRecorder.INSERT, TraceRecorder.SEARCH,
+          TraceRecorder.DELETE};
+      int[] keys = {100, -7, Integer.MAX_VALUE, 100};
+      long previousTime = 0;
+
+      try (TraceReader reader = new TraceReader(file)) {
+        for (int i = 0; i < keys.length; i++) {
+          assertTrue(reader.next());
+          assertEquals(operations[i], reader.operation());
+          assertEquals(keys[i], reader.key());
+          assertTrue(reader.elapsedNanos() >= previousTime);
+          previousTime = reader.elapsedNanos();
+        }
+        assertFalse(reader.next());
+      }
+    }
+
+    @Test
+    @DisplayName("Traces larger than the buffer survive the round trip")
+    void testLargeTrace() throws Exception {
+      Path file = Files.createTempFile("rbt", ".trace");
+
+      try (TraceRecorder recorder = new TraceRecorder(file)) {
+        for (int i = 0; i < 100_000; i++) {
+          recorder.record(TraceRecorder.SEARCH, i * 7919);
+        }
+      }
+
+      try (TraceReader reader = new TraceReader(file)) {
+        for (int i = 0; i < 100_000; i++) {
+          assertTrue(reader.next());
+          assertEquals(i * 7919, reader.key());
+        }
+        assertFalse(reader.next());
+      }
+    }
+  }
+
+  // ==============================================
+  // NODE RECYCLING TESTS
+  // ==============================================
+
+  @Nested
+  @DisplayName("Node Recycling")
+  class NodeRecyclingTests {
+
+    @Test
+    @DisplayName("Re-inserts reuse nodes freed by deletes")
+    void testChurnReusesNodes() {
+      RedBlackTree tree = new RedBlackTree();
+      tree.enableNodeRecycling(8);
+
+      for (int i = 0; i < 20; i++) {
+        tree.insert(i);
+      }
+      for (int i = 0; i < 20; i++) {
+        tree.delete(i);
+        tree.insert(i + 100);
+        assertTrue(tree.isRedBlackTree());
+      }
+
+      assertEquals(20, tree.getPoolHits());
+      assertEquals(20, tree.getPoolMisses());
+      assertEquals(0.5, tree.getPoolHitRate(), 1e-9);
+
+      for (int i = 0; i < 20; i++) {
+        assertFalse(tree.search(i));
+        assertTrue(tree.search(i + 100));
+      }
+    }
+
+    @Test
+    @DisplayName("Pool never holds more than its capacity")
+    void testPoolCapacityIsBounded() {
+      RedBlackTree tree = new RedBlackTree();
+      tree.enableNodeRecycling(2);
+
+      for (int i = 0; i < 10; i++) {
+        tree.insert(i);
+      }
+      for (int i = 0; i < 10; i++) {
+        tree.delete(i);
+      }
+      for (int i = 0; i < 5; i++) {
+        tree.insert(i);
+      }
+
+      assertEquals(2, tree.getPoolHits());
+      assertEquals(13, tree.getPoolMisses());
+      assertTrue(tree.isRedBlackTree());
+    }
+  }
+
+  @Nested
+  @DisplayName("Bulk Build")
+  class BulkBuildTests {
+
+    @Test
+    @DisplayName("fromSorted builds a valid tree for every size up to 300")
+    void testFromSortedIsValid() {
+      for (int count = 0; count <= 300; count++) {
+        int[] next = {0};
+        RedBlackTree tree = RedBlackTree.fromSorted(count, () -> 3 * next[0]++);
+
+        assertEquals(count, tree.size());
+        assertTrue(tree.isRedBlackTree(), "Size " + count);
+
+        // The built tree supports the usual updates.
+        tree.insert(1);
+        if (count > 0) {
+          tree.delete(0);
+        }
+        assertTrue(tree.isRedBlackTree(), "Size " + count);
+      }
+    }
+
+    @Test
+    @DisplayName("fromSorted rejects keys out of order")
+    void testFromSortedRejectsUnsortedKeys() {
+      int[] keys = {1, 2, 2};
+      int[] next = {0};
+
+      assertThrows(IllegalArgumentException.class,
+              () -> RedBlackTree.fromSorted(3, () -> keys[next[0]++]));
+    }
+  }
+
+  @Nested
+  @DisplayName("Remove Below")
+  class RemoveBelowTests {
+
+    @Test
+    @DisplayName("Split at random bounds keeps a valid tree with the right keys")
+    void testRemoveBelowMatchesReference() {
+      Random random = new Random(13);
+
+      for (int round = 0; round < 200; round++) {
+        RedBlackTree tree = new RedBlackTree();
+        List<Integer> reference = new ArrayList<>();
+        // Distinct keys, since isRedBlackTree rejects duplicates.
+        int density = random.nextInt(101);
+        for (int key = 0; key < 1_000; key++) {
+          if (random.nextInt(100) < density) {
+            reference.add(key);
+          }
+        }
+        Collections.shuffle(reference, random);
+        for (int key : reference) {
+          tree.insert(key);
+        }
+        Collections.sort(reference);
+
+        int bound = random.nextInt(1_100) - 50;
+        List<Integer> removed = new ArrayList<>();
+        int removedCount = tree.removeBelow(bound, removed::add);
+
+        List<Integer> expectedRemoved = new ArrayList<>();
+        while (!reference.isEmpty() && reference.get(0) < bound) {
+          expectedRemoved.add(reference.remove(0));
+        }
+
+        assertEquals(expectedRemoved, removed);
+        assertEquals(expectedRemoved.size(), removedCount);
+        assertEquals(reference.size(), tree.size());
+        assertTrue(tree.isRedBlackTree());
+
+        List<Integer> remaining = new ArrayList<>();
+        tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE, remaining::add);
+        assertEquals(reference, remaining);
+
+        // The tree stays usable after the split.
+        tree.insert(bound - 1);
+        tree.delete(bound - 1);
+        assertTrue(tree.isRedBlackTree());
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("Bloom Filter")
+  class BloomFilterTests {
+
+    @Test
+    @DisplayName("Filtered searches agree with the tree through growth and deletes")
+    void testFilteredSearchesAreExact() {
+      RedBlackTree tree = new RedBlackTree();
+      TreeMetrics metrics = tree.enableMetrics();
+      tree.enableBloomFilter(0.01);
+
+      for (int i = 0; i < 10_000; i++) {
+        tree.insert(2 * i);
+      }
+      for (int i = 0; i < 5_000; i++) {
+        tree.delete(4 * i);
+      }
+
+      for (int key = 0; key < 20_000; key++) {
+        assertEquals(key % 4 == 2, tree.search(key), "Key " + key);
+      }
+      assertTrue(metrics.getBloomFilterRebuilds() > 1);
+      assertTrue(metrics.getBloomFilterBytes() > 0);
+    }
+
+    @Test
+    @DisplayName("Most searches for absent keys are rejected by the filter")
+    void testMissesAreRejected() {
+      RedBlackTree tree = new RedBlackTree();
+      TreeMetrics metrics = tree.enableMetrics();
+
+      for (int i = 0; i < 10_000; i++) {
+        tree.insert(i);
+      }
+      tree.enableBloomFilter(0.01);
+
+      for (int key = 10_000; key < 110_000; key++) {
+        assertFalse(tree.search(key));
+      }
+
+      assertEquals(100_000, metrics.getSearchMisses());
+      assertTrue(metrics.getBloomFilterFalsePositiveRate() < 0.02);
+      assertThrows(IllegalArgumentException.class, () -> tree.enableBloomFilter(1.0));
+    }
+  }
+
+  @Nested
+  @DisplayName("Hot-Key Cache")
+  class HotKeyCacheTests {
+
+    @Test
+    @DisplayName("Cached searches stay exact through deletes")
+    void testCachedSearchesAreExact() {
+      RedBlackTree tree = new RedBlackTree();
+      TreeMetrics metrics = tree.enableMetrics();
+      tree.enableHotKeyCache(64);
+
+      for (int i = 0; i < 10_000; i++) {
+        tree.insert(i);
+      }
+      for (int round = 0; round < 10; round++) {
+        for (int key = 0; key < 32; key++) {
+          assertTrue(tree.search(key));
+        }
+      }
+      assertTrue(metrics.getHotKeyHits() > 0);
+
+      tree.delete(5);
+      tree.removeBelow(3, key -> { });
+      tree.insert(1);
+
+      for (int key = 0; key < 32; key++) {
+        assertEquals(key == 1 || (key >= 3 && key != 5), tree.search(key), "Key " + key);
+      }
+      assertTrue(tree.isRedBlackTree());
+      assertThrows(IllegalArgumentException.class, () -> tree.enableHotKeyCache(0));
+    }
+
+    @Test
+    @DisplayName("Skewed searches are mostly answered by the cache")
+    void testSkewedSearchesHitCache() {
+      RedBlackTree tree = new RedBlackTree();
+      TreeMetrics metrics = tree.enableMetrics();
+      tree.enableHotKeyCache(1024);
+      Random random = new Random(67);
+
+      for (int i = 0; i < 100_000; i++) {
+        tree.insert(i);
+      }
+
+      // Nine in ten searches go to 256 hot keys, the rest are spread over all keys.
+      for (int i = 0; i < 200_000; i++) {
+        int key = random.nextInt(10) == 0 ? random.nextInt(100_000) : random.nextInt(256) * 389;
+        assertTrue(tree.search(key));
+      }
+
+      assertEquals(200_000, metrics.getSearchHits());
+      assertTrue(metrics.getHotKeyHits() > 160_000);
+      assertEquals(8_192, tree.getHotKeyCacheBytes());
+    }
+  }
+
+  @Nested
+  @DisplayName("Range Publisher")
+  class RangePublisherTests {
+
+    /**
+     * Records chunks and requests one more after each, up to a chunk limit.
+     */
+    private static class ChunkSubscriber implements Flow.Subscriber<int[]> {
+      final List<Integer> keys = new ArrayList<>();
+      final int chunkLimit;
+      Flow.Subscription subscription;
+      int chunks;
+      boolean completed;
+      Throwable error;
+
+      ChunkSubscriber(int chunkLimit) {
+        this.chunkLimit = chunkLimit;
+      }
+
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+      }
+
+      @Override
+      public void onNext(int[] chunk) {
+        chunks++;
+        for (int key : chunk) {
+          keys.add(key);
+        }
+        if (chunks < chunkLimit) {
+          subscription.request(1);
+        }
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        error = throwable;
+      }
+
+      @Override
+      public void onComplete() {
+        completed = true;
+      }
+    }
+
+    @Test
+    @DisplayName("Chunks follow demand and resume where the last request stopped")
+    void testChunksFollowDemand() {
+      RedBlackTree tree = new RedBlackTree();
+      for (int i = 0; i < 1_000; i++) {
+        tree.insert(i);
+        tree.insert(i);
+      }
+
+      ChunkSubscriber subscriber = new ChunkSubscriber(3);
+      tree.rangePublisher(100, 899, 64).subscribe(subscriber);
+      assertEquals(0, subscriber.chunks);
+
+      subscriber.subscription.request(1);
+      assertEquals(3, subscriber.chunks);
+      assertEquals(3 * 64, subscriber.keys.size());
+      assertFalse(subscriber.completed);
+
+      // Duplicates split across chunks are neither lost nor repeated.
+      subscriber.subscription.request(Long.MAX_VALUE);
+      assertTrue(subscriber.completed);
+      List<Integer> expected = new ArrayList<>();
+      for (int i = 100; i < 900; i++) {
+        expected.add(i);
+        expected.add(i);
+      }
+      assertEquals(expected, subscriber.keys);
+      assertEquals(25, subscriber.chunks);
+    }
+
+    @Test
+    @DisplayName("Modifying the tree during a scan fails the subscriber")
+    void testFailsFastOnModification() {
+      RedBlackTree tree = new RedBlackTree();
+      for (int i = 0; i < 100; i++) {
+        tree.insert(i);
+      }
+
+      ChunkSubscriber subscriber = new ChunkSubscriber(1);
+      tree.rangePublisher(0, 99, 10).subscribe(subscriber);
+      subscriber.subscription.request(1);
+      tree.delete(50);
+      subscriber.subscription.request(1);
+
+      assertEquals(10, subscriber.keys.size());
+      assertTrue(subscriber.error instanceof ConcurrentModificationException);
+      assertFalse(subscriber.completed);
+    }
+
+    @Test
+    @DisplayName("An empty range completes and invalid demand is an error")
+    void testEmptyRangeAndInvalidDemand() {
+      RedBlackTree tree = new RedBlackTree();
+      tree.insert(5);
+
+      ChunkSubscriber empty = new ChunkSubscriber(1);
+      tree.rangePublisher(6, 10, 4).subscribe(empty);
+      empty.subscription.request(1);
+      assertTrue(empty.completed);
+      assertEquals(0, empty.chunks);
+
+      ChunkSubscriber invalid = new ChunkSubscriber(1);
+      tree.rangePublisher(0, 10, 4).subscribe(invalid);
+      invalid.subscription.request(0);
+      assertTrue(invalid.error instanceof IllegalArgumentException);
+      assertThrows(IllegalArgumentException.class, () -> tree.rangePublisher(0, 10, 0));
+      assertThrows(NullPointerException.class, () -> tree.rangePublisher(0, 10, 4).subscribe(null));
+    }
+
+    @Test
+    @DisplayName("Invalid demand from inside onNext ends the scan after that chunk")
+    void testInvalidDemandInsideOnNext() {
+      RedBlackTree tree = new RedBlackTree();
+      for (int i = 0; i < 100; i++) {
+        tree.insert(i);
+      }
+
+      List<String> signals = new ArrayList<>();
+      tree.rangePublisher(0, 99, 10).subscribe(new Flow.Subscriber<int[]>() {
+        Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+          this.subscription = subscription;
+          subscription.request(5);
+        }
+
+        @Override
+        public void onNext(int[] chunk) {
+          signals.add("next-start");
+          subscription.request(-1);
+          signals.add("next-end");
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          signals.add("error");
+          subscription.request(1);
+        }
+
+        @Override
+        public void onComplete() {
+          signals.add("complete");
+        }
+      });
+
+      assertEquals(List.of("next-start", "next-end", "error"), signals);
+    }
+  }
+
   // ==============================================
   // PROPERTY VALIDATION TESTS
   // ==============================================
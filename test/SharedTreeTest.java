@@ -0,0 +1,66 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redblacktree.RedBlackTree;
+import redblacktree.SharedTreePublisher;
+import redblacktree.SharedTreeReader;
+
+/**
+ * Test suite for publishing trees through shared memory-mapped files.
+ * Author: Alex Matthes
+ */
+class SharedTreeTest {
+
+  @Test
+  @DisplayName("Readers follow the published version")
+  void testReaderFollowsPublisher() throws IOException {
+    Path directory = Files.createTempDirectory("rbt-shared");
+    RedBlackTree tree = new RedBlackTree();
+
+    for (int i = 0; i < 1_000; i++) {
+      tree.insert(i * 2);
+    }
+
+    try (SharedTreePublisher publisher = new SharedTreePublisher(directory, "keys")) {
+      SharedTreeReader reader = new SharedTreeReader(directory, "keys");
+      assertEquals(0, reader.version());
+      assertFalse(reader.search(0));
+
+      assertEquals(1, publisher.publish(tree));
+      assertEquals(1_000, reader.size());
+      assertTrue(reader.search(998));
+      assertFalse(reader.search(999));
+
+      tree.insert(999);
+      tree.delete(0);
+      publisher.publish(tree);
+      publisher.publish(tree);
+
+      assertEquals(3, reader.version());
+      assertTrue(reader.search(999));
+      assertFalse(reader.search(0));
+
+      List<Integer> keys = new ArrayList<>();
+      reader.range(994, 1_000, keys::add);
+      assertEquals(List.of(994, 996, 998, 999, 1000), keys);
+
+      // Only the current and the previous snapshot are kept.
+      assertFalse(Files.exists(directory.resolve("keys.1")));
+      assertTrue(Files.exists(directory.resolve("keys.2")));
+    }
+
+    // A restarted publisher continues the version sequence.
+    try (SharedTreePublisher publisher = new SharedTreePublisher(directory, "keys")) {
+      assertEquals(4, publisher.publish(new RedBlackTree()));
+      assertEquals(0, new SharedTreeReader(directory, "keys").size());
+    }
+  }
+}
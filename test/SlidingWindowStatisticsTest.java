@@ -0,0 +1,109 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redblacktree.SlidingWindowStatistics;
+
+/**
+ * Test suite for the sliding-window order statistics.
+ * Author: Alex Matthes
+ */
+class SlidingWindowStatisticsTest {
+
+  @Test
+  @DisplayName("Percentiles follow the nearest-rank definition")
+  void testPercentiles() {
+    SlidingWindowStatistics statistics = new SlidingWindowStatistics(100);
+
+    for (int value = 100; value >= 1; value--) {
+      statistics.add(value);
+    }
+
+    assertEquals(1, statistics.percentile(0));
+    assertEquals(50, statistics.median());
+    assertEquals(99, statistics.percentile(99));
+    assertEquals(100, statistics.percentile(100));
+    assertEquals(41, statistics.rank(42));
+    assertEquals(10, statistics.select(9));
+
+    // The oldest values, 100 down to 51, leave; the window now holds 1..50 and 1001..1050.
+    for (int value = 1001; value <= 1050; value++) {
+      statistics.add(value);
+    }
+    assertEquals(50, statistics.median());
+    assertEquals(1001, statistics.percentile(51));
+    assertEquals(50, statistics.rank(1000));
+  }
+
+  @Test
+  @DisplayName("Single and batched updates match a sorted copy of the window")
+  void testMatchesSortedWindow() {
+    int windowSize = 500;
+    SlidingWindowStatistics statistics = new SlidingWindowStatistics(windowSize);
+    ArrayDeque<Integer> reference = new ArrayDeque<>();
+    Random random = new Random(37);
+
+    for (int round = 0; round < 400; round++) {
+      // Few distinct values, as in latency streams, with some batches longer than the window.
+      int batchLength = random.nextInt(10) == 0 ? windowSize + random.nextInt(100)
+              : random.nextInt(60);
+      int[] batch = new int[batchLength];
+      for (int i = 0; i < batchLength; i++) {
+        batch[i] = random.nextInt(50) * (random.nextBoolean() ? 1 : -1);
+      }
+
+      if (random.nextBoolean()) {
+        statistics.addAll(batch);
+      } else {
+        for (int value : batch) {
+          statistics.add(value);
+        }
+      }
+
+      for (int value : batch) {
+        reference.addLast(value);
+        if (reference.size() > windowSize) {
+          reference.removeFirst();
+        }
+      }
+
+      int[] sorted = reference.stream().mapToInt(Integer::intValue).sorted().toArray();
+      assertEquals(sorted.length, statistics.size());
+      assertTrue(statistics.isValid(), "Round " + round);
+
+      if (sorted.length > 0) {
+        for (double percentile : new double[] {0, 25, 50, 90, 99, 100}) {
+          int target = (int) Math.max(1, Math.ceil(percentile / 100.0 * sorted.length));
+          assertEquals(sorted[target - 1], statistics.percentile(percentile));
+        }
+        int probe = random.nextInt(100) - 50;
+        int smaller = 0;
+        while (smaller < sorted.length && sorted[smaller] < probe) {
+          smaller++;
+        }
+        assertEquals(smaller, statistics.rank(probe), "Probe " + probe);
+        assertEquals(sorted[sorted.length / 3], statistics.select(sorted.length / 3));
+      }
+    }
+
+    // The 99 distinct values need far less tree storage than one node per value would.
+    assertTrue(statistics.memoryBytes() < windowSize * Integer.BYTES + 256 * 25);
+  }
+
+  @Test
+  @DisplayName("Empty windows and invalid arguments are rejected")
+  void testInvalidArguments() {
+    SlidingWindowStatistics statistics = new SlidingWindowStatistics(10);
+
+    assertThrows(NoSuchElementException.class, statistics::median);
+    statistics.add(1);
+    assertThrows(IllegalArgumentException.class, () -> statistics.percentile(101));
+    assertThrows(IndexOutOfBoundsException.class, () -> statistics.select(1));
+    assertThrows(IllegalArgumentException.class, () -> new SlidingWindowStatistics(0));
+  }
+}
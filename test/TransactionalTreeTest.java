@@ -0,0 +1,130 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redblacktree.TransactionalTree;
+
+/**
+ * Test suite for the optimistic transactional tree.
+ * Author: Alex Matthes
+ */
+class TransactionalTreeTest {
+
+  @Test
+  @DisplayName("A transaction sees its own writes and publishes them on commit")
+  void testCommitPublishesWrites() {
+    TransactionalTree tree = new TransactionalTree();
+    TransactionalTree.Transaction transaction = tree.begin();
+
+    transaction.insert(1);
+    transaction.insert(5_000);
+    transaction.delete(1);
+    assertFalse(transaction.search(1));
+    assertTrue(transaction.search(5_000));
+    assertFalse(tree.search(5_000));
+
+    assertTrue(transaction.commit());
+    assertTrue(tree.search(5_000));
+    assertFalse(tree.search(1));
+    assertEquals(1, tree.size());
+    assertThrows(IllegalStateException.class, () -> transaction.insert(2));
+  }
+
+  @Test
+  @DisplayName("A commit to a read stripe fails the reader, a disjoint one does not")
+  void testConflictDetection() {
+    TransactionalTree tree = new TransactionalTree(64, 10);
+    TransactionalTree.Transaction reader = tree.begin();
+    TransactionalTree.Transaction bystander = tree.begin();
+
+    assertFalse(reader.search(10));
+    assertFalse(bystander.search(1 << 20 | 1 << 10));
+
+    // Key 20 shares key 10's block and therefore its stripe.
+    TransactionalTree.Transaction writer = tree.begin();
+    writer.insert(20);
+    assertTrue(writer.commit());
+
+    reader.insert(30);
+    bystander.insert(1 << 20 | 1 << 10);
+    assertFalse(reader.commit());
+    assertTrue(bystander.commit());
+    assertFalse(tree.search(30));
+    assertEquals(1, tree.getConflicts());
+    assertEquals(2, tree.getCommits());
+  }
+
+  @Test
+  @DisplayName("Concurrent moves between ranges keep the key count constant for readers")
+  void testConcurrentMovesAreAtomic() throws InterruptedException {
+    TransactionalTree tree = new TransactionalTree(16, 4);
+    int keys = 1_000;
+
+    tree.execute(transaction -> {
+      for (int key = 0; key < keys; key++) {
+        transaction.insert(key);
+      }
+      return null;
+    });
+
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicInteger badSnapshots = new AtomicInteger();
+    Thread reader = new Thread(() -> {
+      while (running.get()) {
+        int[] seen = {0};
+        tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE, key -> seen[0]++);
+        if (seen[0] != keys) {
+          badSnapshots.incrementAndGet();
+        }
+      }
+    });
+    reader.start();
+
+    List<Thread> movers = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      SplittableRandom random = new SplittableRandom(t);
+      Thread mover = new Thread(() -> {
+        for (int i = 0; i < 2_000; i++) {
+          int from = random.nextInt(2 * keys);
+          int to = random.nextInt(2 * keys);
+
+          // Move a key if it exists and the target is free.
+          tree.execute(transaction -> {
+            if (transaction.search(from) && !transaction.search(to)) {
+              transaction.delete(from);
+              transaction.insert(to);
+            }
+            return null;
+          });
+        }
+      });
+      movers.add(mover);
+      mover.start();
+    }
+
+    for (Thread mover : movers) {
+      mover.join();
+    }
+    running.set(false);
+    reader.join();
+
+    assertEquals(0, badSnapshots.get());
+    assertEquals(keys, tree.size());
+    assertTrue(tree.isRedBlackTree());
+  }
+
+  @Test
+  @DisplayName("The stripe count must be a power of two")
+  void testRejectsInvalidStripeCount() {
+    assertThrows(IllegalArgumentException.class, () -> new TransactionalTree(3, 10));
+    assertThrows(IllegalArgumentException.class, () -> new TransactionalTree(4, 32));
+  }
+}
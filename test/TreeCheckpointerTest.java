@@ -0,0 +1,180 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redblacktree.RedBlackTree;
+import redblacktree.TreeCheckpointer;
+
+/**
+ * Test suite for incremental tree checkpoints.
+ * Author: Alex Matthes
+ */
+class TreeCheckpointerTest {
+
+  @Test
+  @DisplayName("Base image plus deltas restores the current tree")
+  void testRestoreFromBaseAndDeltas() throws IOException {
+    Path directory = Files.createTempDirectory("rbt-checkpoint");
+    RedBlackTree tree = new RedBlackTree();
+
+    for (int i = 0; i < 1000; i++) {
+      tree.insert(i);
+    }
+
+    try (TreeCheckpointer checkpointer = new TreeCheckpointer(tree, directory, 4, 100)) {
+      checkpointer.writeBase();
+
+      tree.delete(17);
+      tree.insert(5000);
+      assertEquals(2, checkpointer.checkpoint());
+
+      tree.delete(5000);
+      assertEquals(1, checkpointer.checkpoint());
+      assertEquals(0, checkpointer.checkpoint());
+    }
+
+    RedBlackTree restored = TreeCheckpointer.restore(directory);
+
+    assertFalse(restored.search(17));
+    assertFalse(restored.search(5000));
+    assertTrue(restored.search(16));
+    assertTrue(restored.search(999));
+    assertTrue(restored.isRedBlackTree());
+  }
+
+  @Test
+  @DisplayName("Compaction folds deltas into the base image")
+  void testCompaction() throws Exception {
+    Path directory = Files.createTempDirectory("rbt-checkpoint");
+    RedBlackTree tree = new RedBlackTree();
+
+    try (TreeCheckpointer checkpointer = new TreeCheckpointer(tree, directory, 3, 100)) {
+      checkpointer.writeBase();
+
+      for (int i = 0; i < 50; i++) {
+        tree.insert(i * 7);
+        checkpointer.checkpoint();
+      }
+      tree.delete(0);
+      checkpointer.checkpoint();
+
+      checkpointer.compact().get();
+    }
+
+    try (var files = Files.list(directory)) {
+      assertEquals(1, files.count());
+    }
+
+    RedBlackTree restored = TreeCheckpointer.restore(directory);
+
+    for (int i = 1; i < 50; i++) {
+      assertTrue(restored.search(i * 7));
+    }
+    assertFalse(restored.search(0));
+  }
+
+  @Test
+  @DisplayName("Compaction keeps a range that a delta emptied deleted")
+  void testCompactionOfEmptiedRange() throws Exception {
+    Path directory = Files.createTempDirectory("rbt-checkpoint");
+    RedBlackTree tree = new RedBlackTree();
+    tree.insert(100);
+    tree.insert(5);
+
+    try (TreeCheckpointer checkpointer = new TreeCheckpointer(tree, directory, 4, 100)) {
+      checkpointer.writeBase();
+
+      tree.delete(100);
+      assertEquals(1, checkpointer.checkpoint());
+      assertFalse(TreeCheckpointer.restore(directory).search(100));
+
+      checkpointer.compact().get();
+    }
+
+    RedBlackTree restored = TreeCheckpointer.restore(directory);
+
+    assertFalse(restored.search(100));
+    assertTrue(restored.search(5));
+  }
+
+  @Test
+  @DisplayName("Every touched range is written once, including negative ranges")
+  void testManyDirtyRanges() throws IOException {
+    Path directory = Files.createTempDirectory("rbt-checkpoint");
+    RedBlackTree tree = new RedBlackTree();
+
+    try (TreeCheckpointer checkpointer = new TreeCheckpointer(tree, directory, 2, 100)) {
+      checkpointer.writeBase();
+
+      // 1000 ranges of four keys, each touched twice and out of order.
+      for (int i = 0; i < 2_000; i++) {
+        tree.insert(((i * 7) % 1_000 - 500) * 4 + i / 1_000);
+      }
+      assertEquals(1_000, checkpointer.checkpoint());
+      assertEquals(0, checkpointer.checkpoint());
+    }
+
+    RedBlackTree restored = TreeCheckpointer.restore(directory);
+
+    assertEquals(2_000, restored.size());
+    assertTrue(restored.search(-2_000));
+    assertTrue(restored.search(1_997));
+  }
+
+  @Test
+  @DisplayName("A failed background compaction is reported by close")
+  void testCompactionFailureIsReported() throws IOException {
+    Path directory = Files.createTempDirectory("rbt-checkpoint");
+    RedBlackTree tree = new RedBlackTree();
+
+    for (int i = 0; i < 100; i++) {
+      tree.insert(i);
+    }
+
+    TreeCheckpointer checkpointer = new TreeCheckpointer(tree, directory, 4, 1);
+    checkpointer.writeBase();
+
+    // Flip the last checksum byte, so merging the base fails.
+    Path base = directory.resolve("base.ckpt");
+    byte[] bytes = Files.readAllBytes(base);
+    bytes[bytes.length - 1] ^= 1;
+    Files.write(base, bytes);
+
+    tree.insert(5000);
+    assertEquals(1, checkpointer.checkpoint());
+
+    IOException failure = assertThrows(IOException.class, checkpointer::close);
+    assertTrue(failure.getCause().getMessage().startsWith("Checksum mismatch"));
+  }
+
+  @Test
+  @DisplayName("A directory only reopens with the range size it was written with")
+  void testRangeBitsMismatch() throws IOException {
+    Path directory = Files.createTempDirectory("rbt-checkpoint");
+    RedBlackTree tree = new RedBlackTree();
+    tree.insert(Integer.MIN_VALUE);
+    tree.insert(-1);
+    tree.insert(Integer.MAX_VALUE);
+
+    try (TreeCheckpointer checkpointer = new TreeCheckpointer(tree, directory, 31, 100)) {
+      checkpointer.writeBase();
+      tree.delete(-1);
+      assertEquals(1, checkpointer.checkpoint());
+    }
+
+    assertThrows(IOException.class,
+            () -> new TreeCheckpointer(new RedBlackTree(), directory, 4, 100));
+    assertThrows(IllegalArgumentException.class,
+            () -> new TreeCheckpointer(new RedBlackTree(), directory, 32, 100));
+
+    RedBlackTree restored = TreeCheckpointer.restore(directory);
+    assertEquals(2, restored.size());
+    assertFalse(restored.search(-1));
+  }
+}
@@ -0,0 +1,80 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redblacktree.RedBlackTree;
+import redblacktree.TreeImporter;
+
+/**
+ * Test suite for the bulk import pipeline.
+ * Author: Alex Matthes
+ */
+class TreeImporterTest {
+
+  @Test
+  @DisplayName("Text input that fits in memory is imported without runs")
+  void testTextImport() throws IOException {
+    Path directory = Files.createTempDirectory("rbt-import");
+    Path input = directory.resolve("keys.csv");
+    Files.writeString(input, "5,3\n-7, 12\n3\n2147483647,-2147483648\n");
+
+    TreeImporter importer = new TreeImporter(TreeImporter.Format.TEXT, 1 << 20, 4, directory);
+    RedBlackTree tree = importer.importFile(input);
+
+    List<Integer> keys = new ArrayList<>();
+    tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE, keys::add);
+    assertEquals(List.of(Integer.MIN_VALUE, -7, 3, 5, 12, Integer.MAX_VALUE), keys);
+    assertTrue(tree.isRedBlackTree());
+    assertEquals(0, importer.getRunsSpilled());
+    assertEquals(7, importer.getKeysParsed());
+    assertEquals(TreeImporter.Phase.DONE, importer.getPhase());
+
+    Files.writeString(input, "1, 99999999999\n");
+    assertThrows(IOException.class, () -> importer.importFile(input));
+  }
+
+  @Test
+  @DisplayName("Binary input over the memory budget is merged from sorted runs")
+  void testExternalMergeImport() throws IOException {
+    Path directory = Files.createTempDirectory("rbt-import");
+    Path input = directory.resolve("keys.bin");
+    TreeSet<Integer> reference = new TreeSet<>();
+    Random random = new Random(23);
+
+    try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(input)))) {
+      for (int i = 0; i < 20_000; i++) {
+        int key = random.nextInt(15_000) - 5_000;
+        out.writeInt(key);
+        reference.add(key);
+      }
+    }
+
+    TreeImporter importer = new TreeImporter(TreeImporter.Format.BINARY, 4096, 3, directory);
+    RedBlackTree tree = importer.importFile(input);
+
+    List<Integer> keys = new ArrayList<>();
+    tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE, keys::add);
+    assertEquals(new ArrayList<>(reference), keys);
+    assertTrue(tree.isRedBlackTree());
+    assertTrue(importer.getRunsSpilled() > 1);
+    assertEquals(reference.size(), importer.getKeysBuilt());
+    assertEquals(80_000, importer.getBytesParsed());
+
+    // Only the input is left behind.
+    try (var files = Files.list(directory)) {
+      assertEquals(1, files.count());
+    }
+  }
+}
@@ -0,0 +1,100 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import redblacktree.RedBlackTree;
+import redblacktree.TreeService;
+
+/**
+ * Test suite for the single-writer tree service.
+ * Author: Alex Matthes
+ */
+class TreeServiceTest {
+
+  @Test
+  @DisplayName("Commands on one key are applied in enqueue order")
+  void testPerKeyOrdering() {
+    RedBlackTree tree = new RedBlackTree();
+
+    try (TreeService service = new TreeService(tree, 1024)) {
+      // Nothing waits in between, so all of these can land in one sorted batch.
+      CompletableFuture<Boolean> before = service.search(7);
+      service.insert(7);
+      CompletableFuture<Boolean> during = service.search(7);
+      CompletableFuture<Boolean> deleted = service.delete(7);
+      CompletableFuture<Boolean> missing = service.delete(7);
+      CompletableFuture<Boolean> after = service.search(7);
+
+      assertFalse(before.join());
+      assertTrue(during.join());
+      assertTrue(deleted.join());
+      assertFalse(missing.join());
+      assertFalse(after.join());
+    }
+    assertEquals(0, tree.size());
+  }
+
+  @Test
+  @DisplayName("Many virtual threads insert through a small queue without losing commands")
+  void testVirtualThreadClients() {
+    RedBlackTree tree = new RedBlackTree();
+    TreeService service = new TreeService(tree, 64);
+    int clients = 10_000;
+    int keysPerClient = 10;
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<CompletableFuture<?>> done = new ArrayList<>();
+
+      for (int c = 0; c < clients; c++) {
+        int client = c;
+        done.add(CompletableFuture.runAsync(() -> {
+          for (int k = 0; k < keysPerClient; k++) {
+            service.insert(client * keysPerClient + k).join();
+          }
+        }, executor));
+      }
+      CompletableFuture.allOf(done.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    service.close();
+
+    assertEquals(clients * keysPerClient, tree.size());
+    assertTrue(tree.isRedBlackTree());
+    assertEquals(clients * keysPerClient, service.getCommands());
+    assertTrue(service.getBatches() <= service.getCommands());
+    assertTrue(service.getMaxBatchSize() <= 64);
+    assertTrue(service.getAverageBatchSize() >= 1);
+    assertEquals(0, service.getQueueDepth());
+  }
+
+  @Test
+  @DisplayName("Queued commands finish on close and later commands are rejected")
+  void testClose() {
+    RedBlackTree tree = new RedBlackTree();
+    TreeService service = new TreeService(tree, 16);
+    List<CompletableFuture<Boolean>> pending = new ArrayList<>();
+
+    for (int key = 0; key < 1000; key++) {
+      pending.add(service.insert(key));
+    }
+    service.close();
+
+    assertTrue(pending.stream().allMatch(CompletableFuture::isDone));
+    assertEquals(1000, tree.size());
+    assertThrows(IllegalStateException.class, () -> service.search(1));
+  }
+
+  @Test
+  @DisplayName("The capacity must be a power of two")
+  void testRejectsInvalidCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new TreeService(new RedBlackTree(), 100));
+  }
+}